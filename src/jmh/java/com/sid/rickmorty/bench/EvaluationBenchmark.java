@@ -0,0 +1,58 @@
+package com.sid.rickmorty.bench;
+
+import com.sid.rickmorty.evaluation.EvaluationResult;
+import com.sid.rickmorty.evaluation.EvaluationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of heuristic evaluation for generated outputs of typical and long lengths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluationBenchmark {
+
+    private static final String[] WORDS = {
+            "rick", "morty", "portal", "dimension", "citadel", "galaxy", "wubba", "lubba", "dub", "schwifty",
+            "plumbus", "council", "universe", "alien", "garage", "adventure", "science", "family", "burp", "!", "?"
+    };
+
+    @Param({"200", "5000"})
+    public int outputWords;
+
+    private final EvaluationService evaluationService = new EvaluationService();
+    private String context;
+    private String output;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        context = "Rick Sanchez is a Human from Earth (C-137)";
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < outputWords; i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        output = text.toString();
+    }
+
+    @Benchmark
+    public EvaluationResult evaluate() {
+        return evaluationService.evaluate(context, output);
+    }
+}
@@ -0,0 +1,83 @@
+package com.sid.rickmorty.bench;
+
+import com.sid.rickmorty.model.dto.ResidentSummaryDto;
+import com.sid.rickmorty.model.entity.CharacterEntity;
+import com.sid.rickmorty.search.ScoringMode;
+import com.sid.rickmorty.search.SearchResultCache;
+import com.sid.rickmorty.search.SearchService;
+import com.sid.rickmorty.service.CatalogVersion;
+import com.sid.rickmorty.store.CharacterColumns;
+import com.sid.rickmorty.store.CharacterStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency and throughput against synthetic catalogues. The result cache is disabled so every invocation
+ * pays for candidate lookup and ranking; run with the default GC profiler to get the allocation rate per query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SearchBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int catalogueSize;
+
+    @Param({"SEQUENTIAL", "PARALLEL"})
+    public ScoringMode scoringMode;
+
+    private SearchService searchService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<CharacterEntity> characters = SyntheticCatalogue.characters(catalogueSize, 42);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CatalogVersion catalogVersion = new CatalogVersion();
+        // the store is only ever handed columns here, so it needs neither a JdbcTemplate nor a transaction manager
+        CharacterStore store = new CharacterStore(null, null, registry);
+        // the synthetic catalogue is generated in id order, as the builder requires
+        CharacterColumns.Builder columns = CharacterColumns.builder(characters.size());
+        characters.forEach(character -> columns.add(character.id(), character.name(), character.status(),
+                character.species(), character.gender(), character.origin(), character.location(), character.image()));
+        store.publish(columns.build(), 1);
+        searchService = new SearchService(
+                store,
+                catalogVersion,
+                new SearchResultCache(0, registry),
+                registry,
+                20, 100, scoringMode, 4096, 0.3, 256, 10_000);
+        searchService.rebuildSnapshot(1);
+    }
+
+    @Benchmark
+    public List<ResidentSummaryDto> exactName() {
+        return searchService.search("rick sanchez", 20);
+    }
+
+    @Benchmark
+    public List<ResidentSummaryDto> typo() {
+        return searchService.search("rik sanchz", 20);
+    }
+
+    @Benchmark
+    public List<ResidentSummaryDto> broadTerm() {
+        return searchService.search("human", 20);
+    }
+}
@@ -0,0 +1,91 @@
+package com.sid.rickmorty.bench;
+
+import com.sid.rickmorty.client.ApiCharacter;
+import com.sid.rickmorty.client.ApiLocation;
+import com.sid.rickmorty.model.entity.CharacterEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic Rick &amp; Morty-flavoured data for benchmarks. The same size and seed always produce the same catalogue,
+ * so numbers stay comparable between runs and machines.
+ */
+public final class SyntheticCatalogue {
+
+    private static final String[] FIRST = {
+            "Rick", "Morty", "Summer", "Beth", "Jerry", "Squanchy", "Birdperson", "Tammy", "Unity", "Abradolf",
+            "Krombopulos", "Gearhead", "Mr.", "Evil", "Cop", "Doofus", "Noob", "Pickle", "Scary", "Gazorpazorp"
+    };
+    private static final String[] LAST = {
+            "Sanchez", "Smith", "Poopybutthole", "Meeseeks", "Lincler", "Michael", "Gueterman", "Gromflomite",
+            "Plutonian", "Cronenberg", "Terry", "D-99", "C-137", "Prime", "Jr.", "Goldenfold", "Nimbus", "Glootie"
+    };
+    private static final String[] STATUS = {"Alive", "Dead", "unknown"};
+    private static final String[] SPECIES = {
+            "Human", "Alien", "Humanoid", "Robot", "Cronenberg", "Mythological Creature", "Animal", "Disease", "Poopybutthole"
+    };
+    private static final String[] GENDER = {"Male", "Female", "Genderless", "unknown"};
+    private static final String[] PLACES = {
+            "Earth (C-137)", "Earth (Replacement Dimension)", "Citadel of Ricks", "Bird World", "Gazorpazorp",
+            "Interdimensional Cable", "Purge Planet", "Planet Squanch", "Anatomy Park", "unknown"
+    };
+    private static final String[] LOCATION_TYPES = {"Planet", "Space station", "Microverse", "Dimension", "Resort", "Dream"};
+
+    private SyntheticCatalogue() {
+    }
+
+    public static List<CharacterEntity> characters(int count, long seed) {
+        Random random = new Random(seed);
+        List<CharacterEntity> characters = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            characters.add(character(id, random));
+        }
+        return characters;
+    }
+
+    public static CharacterEntity character(int id, Random random) {
+        return new CharacterEntity(
+                id,
+                pick(FIRST, random) + " " + pick(LAST, random) + (random.nextInt(4) == 0 ? " " + id : ""),
+                pick(STATUS, random),
+                pick(SPECIES, random),
+                pick(GENDER, random),
+                pick(PLACES, random),
+                pick(PLACES, random),
+                "https://rickandmortyapi.com/api/character/avatar/" + id + ".jpeg");
+    }
+
+    /**
+     * The character as the client decodes it from {@code /character/{ids}}.
+     */
+    public static ApiCharacter upstreamCharacter(CharacterEntity character) {
+        return new ApiCharacter(character.id(), character.name(), character.status(), character.species(),
+                character.gender(), character.origin(), character.location(), character.image());
+    }
+
+    /**
+     * One decoded upstream page of {@code size} locations, each listing {@code residentsPerLocation} residents drawn
+     * from a catalogue of {@code catalogueSize} characters.
+     */
+    public static List<ApiLocation> upstreamLocationPage(int page, int size, int residentsPerLocation,
+                                                         int catalogueSize, long seed) {
+        Random random = new Random(seed + page);
+        List<ApiLocation> locations = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int id = (page - 1) * size + i + 1;
+            List<Integer> residents = new ArrayList<>(residentsPerLocation);
+            for (int r = 0; r < residentsPerLocation; r++) {
+                residents.add(1 + random.nextInt(catalogueSize));
+            }
+            locations.add(new ApiLocation(id, pick(PLACES, random) + " " + id, pick(LOCATION_TYPES, random),
+                    "Dimension C-" + random.nextInt(1000), residents));
+        }
+        return locations;
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+}
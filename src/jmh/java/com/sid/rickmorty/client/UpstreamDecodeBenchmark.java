@@ -0,0 +1,97 @@
+package com.sid.rickmorty.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Decoding one recorded upstream body: the typed streaming decoder fed in network-sized chunks, against the generic
+ * {@code Map} tree the client used to build from the aggregated body. {@code body} picks the recorded location page 1
+ * or a 200-id character batch. Compare {@code gc.alloc.rate.norm} as well as time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UpstreamDecodeBenchmark {
+
+    private static final int CHUNK_BYTES = 8192;
+
+    @Param({"locations", "characters"})
+    public String body;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path fixtures = Path.of(System.getProperty("rickmorty.fixtures", "src/jmh/fixtures/rickmorty"));
+        String prefix = body.equals("locations") ? "/location?page=1\t" : "/character/";
+        String file = Files.readAllLines(fixtures.resolve("index.tsv")).stream()
+                .filter(line -> line.startsWith(prefix))
+                .map(line -> line.substring(line.indexOf('\t') + 1))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No recorded " + body + " body in " + fixtures));
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(fixtures.resolve(file)))) {
+            json = in.readAllBytes();
+        }
+    }
+
+    @Benchmark
+    public Object typedStreaming() {
+        Flux<DataBuffer> chunks = Flux.fromIterable(chunks());
+        return body.equals("locations")
+                ? UpstreamJsonDecoder.decode(chunks, UpstreamJsonDecoder.Shape.PAGE, "location",
+                        UpstreamJsonDecoder::location, () -> { }).block()
+                : UpstreamJsonDecoder.decode(chunks, UpstreamJsonDecoder.Shape.RECORDS, "character",
+                        UpstreamJsonDecoder::character, () -> { }).block();
+    }
+
+    @Benchmark
+    public Object genericTree() throws IOException {
+        // the former path: the whole body aggregated into one buffer, then bound to a Map / List tree
+        byte[] aggregated = new byte[json.length];
+        int offset = 0;
+        for (DataBuffer chunk : chunks()) {
+            int length = chunk.readableByteCount();
+            chunk.read(aggregated, offset, length);
+            offset += length;
+        }
+        return body.equals("locations") ? objectMapper.readValue(aggregated, Map.class)
+                : objectMapper.readValue(aggregated, Object.class);
+    }
+
+    private List<DataBuffer> chunks() {
+        List<DataBuffer> chunks = new ArrayList<>(json.length / CHUNK_BYTES + 1);
+        for (int offset = 0; offset < json.length; offset += CHUNK_BYTES) {
+            chunks.add(DefaultDataBufferFactory.sharedInstance.wrap(
+                    Arrays.copyOfRange(json, offset, Math.min(json.length, offset + CHUNK_BYTES))));
+        }
+        return chunks;
+    }
+}
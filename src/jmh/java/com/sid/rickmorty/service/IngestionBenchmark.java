@@ -0,0 +1,165 @@
+package com.sid.rickmorty.service;
+
+import com.sid.rickmorty.RickMortyServiceApplication;
+import com.sid.rickmorty.bench.SyntheticCatalogue;
+import com.sid.rickmorty.client.ApiCharacter;
+import com.sid.rickmorty.client.ApiLocation;
+import com.sid.rickmorty.client.ApiPage;
+import com.sid.rickmorty.client.RickAndMortyClient;
+import com.sid.rickmorty.model.entity.CharacterEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a {@link LocationService#refreshFromSource()} whose upstream is a single page of locations (and their
+ * residents), against a database pre-filled with {@code catalogueSize} characters. The upstream client is replaced by
+ * an in-memory stub that serves one of 16 synthetic pages per run, so only the persistence side is measured. Every
+ * page is ingested once during setup, so the measured runs find nothing to change: this is the delta check
+ * (fingerprint load, lookups and link diffing) that every scheduled refresh pays, not the staged writes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class IngestionBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int RESIDENTS_PER_LOCATION = 10;
+
+    @Param({"1000", "100000", "1000000"})
+    public int catalogueSize;
+
+    private Path workDir;
+    private ConfigurableApplicationContext context;
+    private LocationService locationService;
+    private StubClient stub;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("rickmorty-bench");
+        stub = new StubClient();
+        context = new SpringApplicationBuilder(RickMortyServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .initializers(ctx -> ((GenericApplicationContext) ctx).registerBean(
+                        "benchmarkClient", RickAndMortyClient.class, () -> stub, bd -> bd.setPrimary(true)))
+                .run("--spring.datasource.url=jdbc:sqlite:" + workDir.resolve("bench.db"),
+                        "--rickmorty.ingestion.enabled=false",
+                        "--logging.level.root=WARN");
+        locationService = context.getBean(LocationService.class);
+        prefill(context.getBean(JdbcTemplate.class), new TransactionTemplate(context.getBean(PlatformTransactionManager.class)));
+
+        for (int page = 1; page <= 16; page++) {
+            stub.pages.add(SyntheticCatalogue.upstreamLocationPage(page, PAGE_SIZE, RESIDENTS_PER_LOCATION,
+                    catalogueSize, 42));
+        }
+        for (int page = 0; page < stub.pages.size(); page++) {
+            locationService.refreshFromSource();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        try (var files = Files.list(workDir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(workDir);
+    }
+
+    @Benchmark
+    public RefreshReport refreshLocationPage() {
+        return locationService.refreshFromSource(RefreshProgress.NONE);
+    }
+
+    private void prefill(JdbcTemplate jdbcTemplate, TransactionTemplate transactions) {
+        List<CharacterEntity> characters = SyntheticCatalogue.characters(catalogueSize, 42);
+        transactions.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                "INSERT OR REPLACE INTO characters(id, name, status, species, gender, origin, location, image) VALUES(?, ?, ?, ?, ?, ?, ?, ?)",
+                characters,
+                1_000,
+                (ps, character) -> {
+                    ps.setInt(1, character.id());
+                    ps.setString(2, character.name());
+                    ps.setString(3, character.status());
+                    ps.setString(4, character.species());
+                    ps.setString(5, character.gender());
+                    ps.setString(6, character.origin());
+                    ps.setString(7, character.location());
+                    ps.setString(8, character.image());
+                }));
+    }
+
+    /**
+     * Serves one synthetic location page per refresh, rotating through {@link #pages}, and character batches from the
+     * synthetic generator instead of the network.
+     */
+    static final class StubClient extends RickAndMortyClient {
+
+        private final List<List<ApiLocation>> pages = new ArrayList<>();
+        private int nextPage;
+
+        StubClient() {
+            super(WebClient.create(), new SimpleMeterRegistry());
+        }
+
+        @Override
+        public Mono<ApiPage<ApiLocation>> fetchLocationsPage(int page) {
+            List<ApiLocation> locations = pages.get(nextPage++ % pages.size());
+            return Mono.just(new ApiPage<>(new ApiPage.Info(locations.size(), 1, null), locations));
+        }
+
+        // no page count, so residents are always fetched as batches
+        @Override
+        public Mono<ApiPage<ApiCharacter>> fetchCharactersPage(int page) {
+            return Mono.just(ApiPage.empty());
+        }
+
+        @Override
+        public Mono<List<ApiCharacter>> fetchCharactersBatch(List<Integer> ids) {
+            List<ApiCharacter> characters = new ArrayList<>(ids.size());
+            for (Integer id : ids) {
+                characters.add(SyntheticCatalogue.upstreamCharacter(SyntheticCatalogue.character(id, new Random(id))));
+            }
+            return Mono.just(characters);
+        }
+
+        @Override
+        public Flux<ApiCharacter> streamCharactersBatch(List<Integer> ids) {
+            return fetchCharactersBatch(ids).flatMapIterable(characters -> characters);
+        }
+    }
+}
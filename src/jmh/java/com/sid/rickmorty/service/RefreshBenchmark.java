@@ -0,0 +1,96 @@
+package com.sid.rickmorty.service;
+
+import com.sid.rickmorty.RickMortyServiceApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wall time of one full {@link LocationService#refreshFromSource()} into an empty database, against recorded
+ * upstream responses replayed by the local fixture server instead of the network. {@code scale} repeats the recorded
+ * catalogue under shifted ids; {@code latencyMs} delays every replayed response. Fixtures are read from
+ * {@code src/jmh/fixtures/rickmorty}, or the directory in {@code -Drickmorty.fixtures=...}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class RefreshBenchmark {
+
+    @Param({"1", "50"})
+    public int scale;
+
+    @Param({"0", "50"})
+    public int latencyMs;
+
+    private Path workDir;
+    private ConfigurableApplicationContext context;
+    private LocationService locationService;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("rickmorty-refresh-bench");
+        Path fixtures = Path.of(System.getProperty("rickmorty.fixtures", "src/jmh/fixtures/rickmorty")).toAbsolutePath();
+        context = new SpringApplicationBuilder(RickMortyServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:sqlite:" + workDir.resolve("bench.db"),
+                        "--rickmorty.ingestion.enabled=false",
+                        "--rickmorty.fixtures.replay-dir=" + fixtures,
+                        "--rickmorty.fixtures.replay-latency=" + latencyMs + "ms",
+                        "--rickmorty.fixtures.replay-scale=" + scale,
+                        // every iteration downloads in full, as a first refresh would
+                        "--rickmorty.upstream.cache.dir=",
+                        "--logging.level.root=WARN");
+        locationService = context.getBean(LocationService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    // every measured refresh starts from an empty catalogue, so it inserts everything rather than finding no changes
+    @Setup(Level.Iteration)
+    public void emptyCatalogue() {
+        for (String table : CatalogStaging.LIVE.all()) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+        for (CatalogStaging.Tables generation : new CatalogStaging.Tables[]{CatalogStaging.NEXT, CatalogStaging.PREVIOUS}) {
+            generation.all().forEach(table -> jdbcTemplate.execute("DROP TABLE IF EXISTS " + table));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        try (var files = Files.list(workDir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(workDir);
+    }
+
+    @Benchmark
+    public void refreshFromSource() {
+        locationService.refreshFromSource();
+    }
+}
@@ -0,0 +1,353 @@
+package com.sid.rickmorty.client;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link ExchangeFilterFunction} that adapts how many upstream requests are in flight at once (AIMD). Requests beyond
+ * the current limit wait in arrival order. A request counts as in flight from when it is sent until its body has been
+ * read, and that time is its latency sample.
+ * <p>
+ * Each response on time, while the limit is in use, grows the limit by {@code 1 / limit}, so about one per round
+ * trip, up to {@code maxLimit}. A 429 or 503 halves it, as does a 5xx or a failed connection. A smoothed latency
+ * above {@code latencyTolerance} times the uncongested baseline cuts it by a tenth. A cut only counts for requests
+ * sent after the previous cut, so one burst of failures lowers the limit once rather than once per failure. The limit
+ * never goes below {@code minLimit}. Once throttled at some limit, it grows back only to one below that, and probes one
+ * higher every 10 seconds, so a fixed upstream quota is not tripped again on every round trip.
+ * <p>
+ * A 429 or 503 with {@code Retry-After} (seconds or an HTTP date, capped at {@code maxRetryAfter}) also holds back
+ * every new request until then; requests already in flight finish. Retries go through the filter like any other
+ * request, so they queue behind the limit and the pause instead of arriving together.
+ * <p>
+ * Metrics: {@code upstream.limiter.limit}, {@code .in-flight} and {@code .queued} gauges;
+ * {@code upstream.limiter.throttled} (429 and 503 responses), {@code .decreases{cause=throttled|error|latency}} and
+ * {@code .pauses} counters.
+ */
+public class AdaptiveConcurrencyLimiter implements ExchangeFilterFunction {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+    private static final double BACKOFF_RATIO = 0.5;
+    private static final double LATENCY_BACKOFF_RATIO = 0.9;
+    // weight of a new sample in the smoothed latency, and how fast the baseline follows a lasting rise in latency
+    private static final double SMOOTHING = 0.2;
+    private static final double BASELINE_DRIFT = 0.01;
+    // after a throttle, how often the limit may probe one above the level that was refused
+    private static final long PROBE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final Duration maxRetryAfter;
+
+    // guarded by this
+    private double limit;
+    private int inFlight;
+    private final ArrayDeque<Permit> queue = new ArrayDeque<>();
+    private long pausedUntil;
+    private boolean resumeScheduled;
+    private long lastDecrease;
+    private double ceiling = Double.POSITIVE_INFINITY;
+    private long ceilingSetAt;
+    private double smoothedLatency = Double.NaN;
+    private double baselineLatency = Double.NaN;
+
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder throttledDecreases = new LongAdder();
+    private final LongAdder errorDecreases = new LongAdder();
+    private final LongAdder latencyDecreases = new LongAdder();
+    private final LongAdder pauses = new LongAdder();
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double latencyTolerance,
+                                      Duration maxRetryAfter, MeterRegistry meterRegistry) {
+        if (minLimit <= 0 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException(
+                    "upstream limiter limits must satisfy 0 < min-limit <= initial-limit <= max-limit");
+        }
+        if (latencyTolerance <= 1) {
+            throw new IllegalArgumentException("rickmorty.upstream.limiter.latency-tolerance must be greater than 1");
+        }
+        if (maxRetryAfter.isNegative()) {
+            throw new IllegalArgumentException("rickmorty.upstream.limiter.max-retry-after must not be negative");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.maxRetryAfter = maxRetryAfter;
+        this.lastDecrease = System.nanoTime();
+        this.pausedUntil = lastDecrease;
+        Gauge.builder("upstream.limiter.limit", this, AdaptiveConcurrencyLimiter::limit).register(meterRegistry);
+        Gauge.builder("upstream.limiter.in-flight", this, AdaptiveConcurrencyLimiter::inFlight).register(meterRegistry);
+        Gauge.builder("upstream.limiter.queued", this, AdaptiveConcurrencyLimiter::queued).register(meterRegistry);
+        FunctionCounter.builder("upstream.limiter.throttled", throttled, LongAdder::sum)
+                .description("Upstream 429 and 503 responses")
+                .register(meterRegistry);
+        FunctionCounter.builder("upstream.limiter.decreases", throttledDecreases, LongAdder::sum)
+                .tag("cause", "throttled").register(meterRegistry);
+        FunctionCounter.builder("upstream.limiter.decreases", errorDecreases, LongAdder::sum)
+                .tag("cause", "error").register(meterRegistry);
+        FunctionCounter.builder("upstream.limiter.decreases", latencyDecreases, LongAdder::sum)
+                .tag("cause", "latency").register(meterRegistry);
+        FunctionCounter.builder("upstream.limiter.pauses", pauses, LongAdder::sum)
+                .description("Retry-After pauses honoured")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            Permit permit = new Permit();
+            return Mono.<Void>create(permit::await)
+                    .then(Mono.defer(() -> {
+                        permit.sentAt = System.nanoTime();
+                        return next.exchange(request);
+                    }))
+                    .map(response -> {
+                        HttpStatusCode status = response.statusCode();
+                        Duration retryAfter = isThrottle(status) ? retryAfter(response.headers().asHttpHeaders()) : null;
+                        // an error answer counts by its status even when its body is discarded unread
+                        return response.mutate()
+                                .body(body -> body.doFinally(signal -> permit.release(
+                                        signal == SignalType.ON_ERROR ? Outcome.ERROR
+                                                : signal == SignalType.ON_COMPLETE || !status.is2xxSuccessful()
+                                                ? outcome(status) : Outcome.ABANDONED,
+                                        retryAfter)))
+                                .build();
+                    })
+                    .doOnError(error -> permit.release(Outcome.ERROR, null))
+                    .doOnCancel(() -> permit.release(Outcome.ABANDONED, null));
+        });
+    }
+
+    public synchronized double limit() {
+        return limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int queued() {
+        return queue.size();
+    }
+
+    private static boolean isThrottle(HttpStatusCode status) {
+        return status.value() == HttpStatus.TOO_MANY_REQUESTS.value()
+                || status.value() == HttpStatus.SERVICE_UNAVAILABLE.value();
+    }
+
+    // a 404 or other client error is a prompt answer, so it counts as a success for the limit
+    private static Outcome outcome(HttpStatusCode status) {
+        if (isThrottle(status)) {
+            return Outcome.THROTTLED;
+        }
+        return status.is5xxServerError() ? Outcome.ERROR : Outcome.SUCCESS;
+    }
+
+    // null when absent or unreadable
+    static Duration retryAfter(HttpHeaders headers) {
+        String value = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(Long.parseLong(value.trim()), 0));
+        } catch (NumberFormatException e) {
+            try {
+                Duration until = Duration.between(ZonedDateTime.now(),
+                        ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                return until.isNegative() ? Duration.ZERO : until;
+            } catch (DateTimeParseException unreadable) {
+                log.debug("Ignoring unreadable Retry-After '{}'", value);
+                return null;
+            }
+        }
+    }
+
+    private void completed(Permit permit, Outcome outcome, Duration retryAfter) {
+        List<Permit> granted;
+        synchronized (this) {
+            boolean saturated = inFlight >= (int) limit || !queue.isEmpty();
+            inFlight--;
+            long now = System.nanoTime();
+            switch (outcome) {
+                case SUCCESS -> sample(now - permit.sentAt, now, permit.sentAt, saturated);
+                case THROTTLED -> {
+                    throttled.increment();
+                    if (permit.sentAt - lastDecrease >= 0) {
+                        ceiling = Math.floor(limit);
+                        ceilingSetAt = now;
+                    }
+                    decrease(BACKOFF_RATIO, permit.sentAt, now, throttledDecreases);
+                    if (retryAfter != null) {
+                        pause(retryAfter, now);
+                    }
+                }
+                case ERROR -> decrease(BACKOFF_RATIO, permit.sentAt, now, errorDecreases);
+                case ABANDONED -> {
+                }
+            }
+            granted = grant(now);
+        }
+        granted.forEach(Permit::start);
+    }
+
+    private void sample(long latency, long now, long sentAt, boolean saturated) {
+        if (Double.isNaN(smoothedLatency)) {
+            smoothedLatency = latency;
+            baselineLatency = latency;
+            return;
+        }
+        smoothedLatency += (latency - smoothedLatency) * SMOOTHING;
+        // the baseline is the lowest smoothed latency seen, slowly following a lasting rise so it is not stuck forever
+        baselineLatency = smoothedLatency < baselineLatency ? smoothedLatency
+                : baselineLatency + (smoothedLatency - baselineLatency) * BASELINE_DRIFT;
+        if (smoothedLatency > baselineLatency * latencyTolerance) {
+            decrease(LATENCY_BACKOFF_RATIO, sentAt, now, latencyDecreases);
+        } else if (saturated) {
+            // only a limit that is actually in use grows, so a quiet period does not leave it high
+            limit = Math.max(limit, Math.min(growthCap(now), limit + 1 / limit));
+        }
+    }
+
+    // below the last level upstream throttled at, rising by one per probe interval since
+    private double growthCap(long now) {
+        if (ceiling == Double.POSITIVE_INFINITY) {
+            return maxLimit;
+        }
+        double cap = ceiling - 1 + (double) (now - ceilingSetAt) / PROBE_INTERVAL_NANOS;
+        return Math.min(maxLimit, Math.max(minLimit, cap));
+    }
+
+    private void decrease(double ratio, long sentAt, long now, LongAdder cause) {
+        if (sentAt - lastDecrease < 0) {
+            return;
+        }
+        double before = limit;
+        limit = Math.max(minLimit, limit * ratio);
+        lastDecrease = now;
+        cause.increment();
+        log.debug("Upstream concurrency limit {} -> {}", (int) before, (int) limit);
+    }
+
+    private void pause(Duration retryAfter, long now) {
+        Duration delay = retryAfter.compareTo(maxRetryAfter) > 0 ? maxRetryAfter : retryAfter;
+        long until = now + delay.toNanos();
+        if (delay.isZero() || until - pausedUntil <= 0) {
+            return;
+        }
+        pausedUntil = until;
+        pauses.increment();
+        log.info("Upstream asked to retry after {}; holding new requests for {} ms", retryAfter, delay.toMillis());
+        if (!resumeScheduled) {
+            resumeScheduled = true;
+            Schedulers.parallel().schedule(this::resume, delay.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void resume() {
+        List<Permit> granted;
+        synchronized (this) {
+            resumeScheduled = false;
+            long now = System.nanoTime();
+            long remaining = pausedUntil - now;
+            if (remaining > 0) {
+                // extended while waiting
+                resumeScheduled = true;
+                Schedulers.parallel().schedule(this::resume, remaining, TimeUnit.NANOSECONDS);
+                return;
+            }
+            granted = grant(now);
+        }
+        granted.forEach(Permit::start);
+    }
+
+    // called holding the lock; the granted permits are started after it is released
+    private List<Permit> grant(long now) {
+        if (queue.isEmpty() || pausedUntil - now > 0) {
+            return List.of();
+        }
+        List<Permit> granted = new ArrayList<>();
+        while (!queue.isEmpty() && inFlight < (int) limit) {
+            Permit permit = queue.poll();
+            permit.granted = true;
+            inFlight++;
+            granted.add(permit);
+        }
+        return granted;
+    }
+
+    private enum Outcome { SUCCESS, THROTTLED, ERROR, ABANDONED }
+
+    /**
+     * One request's place in the limiter, from waiting for a slot to releasing it.
+     */
+    private final class Permit {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+        // guarded by the limiter
+        private boolean granted;
+        private MonoSink<Void> sink;
+        private volatile long sentAt;
+
+        void await(MonoSink<Void> sink) {
+            sink.onCancel(() -> release(Outcome.ABANDONED, null));
+            boolean start;
+            synchronized (AdaptiveConcurrencyLimiter.this) {
+                this.sink = sink;
+                start = queue.isEmpty() && inFlight < (int) limit && pausedUntil - System.nanoTime() <= 0;
+                if (start) {
+                    granted = true;
+                    inFlight++;
+                } else {
+                    queue.add(this);
+                }
+            }
+            if (start) {
+                sink.success();
+            }
+        }
+
+        void start() {
+            sink.success();
+        }
+
+        void release(Outcome outcome, Duration retryAfter) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            synchronized (AdaptiveConcurrencyLimiter.this) {
+                if (!granted) {
+                    queue.remove(this);
+                    return;
+                }
+            }
+            completed(this, sentAt == 0 ? Outcome.ABANDONED : outcome, retryAfter);
+        }
+    }
+}
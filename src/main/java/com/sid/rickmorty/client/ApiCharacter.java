@@ -0,0 +1,9 @@
+package com.sid.rickmorty.client;
+
+/**
+ * One upstream character as ingestion uses it; {@code origin} and {@code location} are the names of the nested
+ * upstream objects, empty when the object or its name is absent.
+ */
+public record ApiCharacter(int id, String name, String status, String species, String gender, String origin,
+                           String location, String image) {
+}
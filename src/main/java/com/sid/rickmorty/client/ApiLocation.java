@@ -0,0 +1,9 @@
+package com.sid.rickmorty.client;
+
+import java.util.List;
+
+/**
+ * One upstream location as ingestion uses it; resident URLs are already reduced to character ids.
+ */
+public record ApiLocation(int id, String name, String type, String dimension, List<Integer> residentIds) {
+}
@@ -0,0 +1,18 @@
+package com.sid.rickmorty.client;
+
+import java.util.List;
+
+/**
+ * One page of an upstream listing. {@code info} fields are null when the upstream left them out.
+ */
+public record ApiPage<T>(Info info, List<T> results) {
+
+    public static <T> ApiPage<T> empty() {
+        return new ApiPage<>(Info.NONE, List.of());
+    }
+
+    public record Info(Integer count, Integer pages, String next) {
+
+        public static final Info NONE = new Info(null, null, null);
+    }
+}
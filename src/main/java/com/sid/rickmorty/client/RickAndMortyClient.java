@@ -1,40 +1,54 @@
 package com.sid.rickmorty.client;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * Upstream REST client. Bodies are decoded into {@link ApiLocation} and {@link ApiCharacter} records as they stream
+ * in ({@link UpstreamJsonDecoder}); records that do not bind are dropped and counted as
+ * {@code upstream.records.rejected{kind}}. The {@code stream*} methods hand each record on as soon as it is decoded;
+ * the {@code fetch*} ones collect a whole response. Server errors and 429s are retried with backoff; how many requests
+ * are in flight at once, retries included, is up to the {@link AdaptiveConcurrencyLimiter} on the WebClient.
+ */
 @Component
 public class RickAndMortyClient {
 
     private static final Logger log = LoggerFactory.getLogger(RickAndMortyClient.class);
-    private static final ParameterizedTypeReference<Map<String, Object>> MAP_TYPE =
-            new ParameterizedTypeReference<>() {};
-    
+
     private final WebClient webClient;
+    private final Counter rejectedLocations;
+    private final Counter rejectedCharacters;
     private static final int MAX_RETRIES = 3;
     private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
 
-    public RickAndMortyClient(WebClient rickAndMortyWebClient) {
+    public RickAndMortyClient(WebClient rickAndMortyWebClient, MeterRegistry meterRegistry) {
         this.webClient = rickAndMortyWebClient;
+        this.rejectedLocations = rejectedCounter(meterRegistry, "location");
+        this.rejectedCharacters = rejectedCounter(meterRegistry, "character");
     }
 
-    public Mono<Map<String, Object>> fetchLocationsPage(int page) {
+    public Mono<ApiPage<ApiLocation>> fetchLocationsPage(int page) {
         return webClient.get()
                 .uri(uriBuilder -> uriBuilder.path("/location").queryParam("page", page).build())
                 .retrieve()
                 .onStatus(HttpStatusCode::isError, this::handleError)
-                .bodyToMono(MAP_TYPE)
+                .bodyToFlux(DataBuffer.class)
+                .as(body -> UpstreamJsonDecoder.decode(body, UpstreamJsonDecoder.Shape.PAGE, "location",
+                        UpstreamJsonDecoder::location, rejectedLocations::increment))
                 .retryWhen(Retry.backoff(MAX_RETRIES, RETRY_DELAY)
                         .filter(throwable -> !isClientError(throwable))
                         .doBeforeRetry(retrySignal -> 
@@ -42,12 +56,72 @@ public class RickAndMortyClient {
                 .doOnError(error -> log.error("Failed to fetch locations page {} after retries", page, error));
     }
 
-    public Mono<Map<String, Object>> fetchCharacter(int characterId) {
+    /**
+     * The locations of one listing page, each emitted as soon as it is decoded. A retry after a partly delivered body
+     * reads the page again, and locations already emitted are not emitted twice.
+     */
+    public Flux<ApiLocation> streamLocationsPage(int page) {
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/location").queryParam("page", page).build())
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, this::handleError)
+                .bodyToFlux(DataBuffer.class)
+                .as(body -> UpstreamJsonDecoder.records(body, UpstreamJsonDecoder.Shape.PAGE, "location",
+                        UpstreamJsonDecoder::location, rejectedLocations::increment, info -> { }))
+                .retryWhen(Retry.backoff(MAX_RETRIES, RETRY_DELAY)
+                        .filter(throwable -> !isClientError(throwable))
+                        .doBeforeRetry(retrySignal ->
+                            log.warn("Retrying locations page {} after failure", page, retrySignal.failure())))
+                .distinct(ApiLocation::id)
+                .doOnError(error -> log.error("Failed to fetch locations page {} after retries", page, error));
+    }
+
+    public Mono<ApiPage<ApiCharacter>> fetchCharactersPage(int page) {
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/character").queryParam("page", page).build())
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, this::handleError)
+                .bodyToFlux(DataBuffer.class)
+                .as(body -> UpstreamJsonDecoder.decode(body, UpstreamJsonDecoder.Shape.PAGE, "character",
+                        UpstreamJsonDecoder::character, rejectedCharacters::increment))
+                .retryWhen(Retry.backoff(MAX_RETRIES, RETRY_DELAY)
+                        .filter(throwable -> !isClientError(throwable))
+                        .doBeforeRetry(retrySignal -> 
+                            log.warn("Retrying characters page {} after failure", page, retrySignal.failure())))
+                .doOnError(error -> log.error("Failed to fetch characters page {} after retries", page, error));
+    }
+
+    /**
+     * As {@link #streamLocationsPage(int)}, for a page of the character listing.
+     */
+    public Flux<ApiCharacter> streamCharactersPage(int page) {
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/character").queryParam("page", page).build())
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, this::handleError)
+                .bodyToFlux(DataBuffer.class)
+                .as(body -> UpstreamJsonDecoder.records(body, UpstreamJsonDecoder.Shape.PAGE, "character",
+                        UpstreamJsonDecoder::character, rejectedCharacters::increment, info -> { }))
+                .retryWhen(Retry.backoff(MAX_RETRIES, RETRY_DELAY)
+                        .filter(throwable -> !isClientError(throwable))
+                        .doBeforeRetry(retrySignal ->
+                            log.warn("Retrying characters page {} after failure", page, retrySignal.failure())))
+                .distinct(ApiCharacter::id)
+                .doOnError(error -> log.error("Failed to fetch characters page {} after retries", page, error));
+    }
+
+    /**
+     * Empty when the upstream record does not bind.
+     */
+    public Mono<ApiCharacter> fetchCharacter(int characterId) {
         return webClient.get()
                 .uri("/character/{id}", characterId)
                 .retrieve()
                 .onStatus(HttpStatusCode::isError, this::handleError)
-                .bodyToMono(MAP_TYPE)
+                .bodyToFlux(DataBuffer.class)
+                .as(body -> UpstreamJsonDecoder.decode(body, UpstreamJsonDecoder.Shape.RECORDS, "character",
+                        UpstreamJsonDecoder::character, rejectedCharacters::increment))
+                .flatMap(decoded -> Mono.justOrEmpty(decoded.results().stream().findFirst()))
                 .retryWhen(Retry.backoff(MAX_RETRIES, RETRY_DELAY)
                         .filter(throwable -> !isClientError(throwable))
                         .doBeforeRetry(retrySignal -> 
@@ -55,36 +129,44 @@ public class RickAndMortyClient {
                 .doOnError(error -> log.error("Failed to fetch character {} after retries", characterId, error));
     }
 
-    public Mono<List<Map<String, Object>>> fetchCharactersBatch(List<Integer> ids) {
+    public Mono<List<ApiCharacter>> fetchCharactersBatch(List<Integer> ids) {
+        return streamCharactersBatch(ids).collectList();
+    }
+
+    /**
+     * The characters of one {@code /character/{ids}} request, each emitted as soon as it is decoded; a retry never
+     * emits a character twice.
+     */
+    public Flux<ApiCharacter> streamCharactersBatch(List<Integer> ids) {
         if (ids == null || ids.isEmpty()) {
-            return Mono.just(List.of());
+            return Flux.empty();
         }
         
         String idsParam = ids.stream()
                 .map(String::valueOf)
                 .collect(Collectors.joining(","));
         
+        // a single id answers with one object instead of an array; the decoder accepts either
         return webClient.get()
                 .uri("/character/{ids}", idsParam)
                 .retrieve()
                 .onStatus(HttpStatusCode::isError, this::handleError)
-                .bodyToMono(Object.class)
-                .map(this::parseBatchResponse)
+                .bodyToFlux(DataBuffer.class)
+                .as(body -> UpstreamJsonDecoder.records(body, UpstreamJsonDecoder.Shape.RECORDS, "character",
+                        UpstreamJsonDecoder::character, rejectedCharacters::increment, info -> { }))
                 .retryWhen(Retry.backoff(MAX_RETRIES, RETRY_DELAY)
                         .filter(throwable -> !isClientError(throwable))
                         .doBeforeRetry(retrySignal -> 
                             log.warn("Retrying batch fetch for {} after failure", ids, retrySignal.failure())))
+                .distinct(ApiCharacter::id)
                 .doOnError(error -> log.error("Failed to fetch characters batch {} after retries", ids, error));
     }
 
-    @SuppressWarnings("unchecked")
-    private List<Map<String, Object>> parseBatchResponse(Object body) {
-        if (body instanceof List<?> list) {
-            return list.stream()
-                    .map(element -> (Map<String, Object>) element)
-                    .toList();
-        }
-        return List.of((Map<String, Object>) body);
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String kind) {
+        return Counter.builder("upstream.records.rejected")
+                .description("Upstream records dropped because they did not decode")
+                .tag("kind", kind)
+                .register(meterRegistry);
     }
 
     private Mono<? extends Throwable> handleError(org.springframework.web.reactive.function.client.ClientResponse response) {
@@ -92,7 +174,8 @@ public class RickAndMortyClient {
         log.error("API error: {} {}", status.value(), status);
         return response.createException()
                 .flatMap(ex -> {
-                    if (status.is4xxClientError()) {
+                    // a 429 is retried like a server error; the limiter has already backed off for it
+                    if (status.is4xxClientError() && status.value() != HttpStatus.TOO_MANY_REQUESTS.value()) {
                         return Mono.error(new ApiClientException("Client error: " + status, ex));
                     }
                     return Mono.error(new ApiServerException("Server error: " + status, ex));
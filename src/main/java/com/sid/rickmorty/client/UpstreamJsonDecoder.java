@@ -0,0 +1,434 @@
+package com.sid.rickmorty.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Decodes upstream JSON bodies into typed records while the bytes arrive, with Jackson's non-blocking parser. Each
+ * network chunk is parsed and released as it comes in, and parser events go straight into a {@link Reader} for the
+ * record being read, so neither the whole body, a generic {@code Map} tree nor a record's tokens are ever buffered; the
+ * WebClient in-memory limit no longer applies. {@link #records} emits every record from the chunk that completes it,
+ * before later chunks have arrived, and hands the page {@code info} to its own callback. A record that does not bind
+ * (missing or non-integer id, missing name, a field of the wrong type) is logged, counted and dropped while the rest
+ * of the body still decodes. Invalid JSON fails the whole body, as before.
+ */
+final class UpstreamJsonDecoder<T> {
+
+    /**
+     * {@code PAGE} is a listing ({@code {"info": {...}, "results": [...]}}); {@code RECORDS} is a {@code /{ids}}
+     * response, either an array of records or a single record.
+     */
+    enum Shape { PAGE, RECORDS }
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamJsonDecoder.class);
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final Shape shape;
+    private final String kind;
+    private final Supplier<Reader<T>> readers;
+    private final Runnable rejected;
+    private final Consumer<ApiPage.Info> info;
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+    private List<T> completed;
+    private Reader<?> reader;
+    private boolean readingInfo;
+    private int depth;
+    private String container;
+
+    private UpstreamJsonDecoder(Shape shape, String kind, Supplier<Reader<T>> readers, Runnable rejected,
+                                Consumer<ApiPage.Info> info) {
+        this.shape = shape;
+        this.kind = kind;
+        this.readers = readers;
+        this.rejected = rejected;
+        this.info = info;
+        try {
+            this.parser = JSON.createNonBlockingByteBufferParser();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * The records of {@code body}, each read with a fresh reader from {@code readers} and emitted as soon as the chunk
+     * holding its last byte has been parsed. {@code info} receives a listing's page info once that object is complete
+     * (upstream sends it ahead of the results); it is not called for a body without one. {@code rejected} runs once
+     * per dropped record. Chunks still queued when the subscriber cancels are released.
+     */
+    static <T> Flux<T> records(Flux<DataBuffer> body, Shape shape, String kind, Supplier<Reader<T>> readers,
+                               Runnable rejected, Consumer<ApiPage.Info> info) {
+        return Flux.defer(() -> {
+            UpstreamJsonDecoder<T> decoder = new UpstreamJsonDecoder<>(shape, kind, readers, rejected, info);
+            return body.concatMapIterable(decoder::feed)
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(decoder.finish())))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    /**
+     * {@link #records} collected into a page, for callers that need the page info together with the results; an
+     * empty body is an empty page.
+     */
+    static <T> Mono<ApiPage<T>> decode(Flux<DataBuffer> body, Shape shape, String kind, Supplier<Reader<T>> readers,
+                                       Runnable rejected) {
+        return Mono.defer(() -> {
+            AtomicReference<ApiPage.Info> info = new AtomicReference<>(ApiPage.Info.NONE);
+            return records(body, shape, kind, readers, rejected, info::set)
+                    .collectList()
+                    .map(results -> new ApiPage<>(info.get(), results));
+        });
+    }
+
+    static Reader<ApiLocation> location() {
+        return new LocationReader();
+    }
+
+    static Reader<ApiCharacter> character() {
+        return new CharacterReader();
+    }
+
+    // the records this chunk completed; usually a handful, and empty while a record spans chunks
+    private List<T> feed(DataBuffer buffer) {
+        completed = new ArrayList<>();
+        try (DataBuffer.ByteBufferIterator chunks = buffer.readableByteBuffers()) {
+            while (chunks.hasNext()) {
+                feeder.feedInput(chunks.next());
+                drain();
+            }
+        } catch (IOException e) {
+            throw new DecodingException("Invalid JSON in upstream " + kind + " response", e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+        return completed;
+    }
+
+    private List<T> finish() {
+        completed = new ArrayList<>();
+        feeder.endOfInput();
+        try {
+            drain();
+        } catch (IOException e) {
+            throw new DecodingException("Invalid JSON in upstream " + kind + " response", e);
+        }
+        if (reader != null || !parser.getParsingContext().inRoot()) {
+            throw new DecodingException("Truncated upstream " + kind + " response");
+        }
+        return completed;
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (reader == null) {
+                if (token == JsonToken.START_OBJECT) {
+                    startRecord();
+                }
+                continue;
+            }
+            if (token == JsonToken.FIELD_NAME) {
+                continue;
+            }
+            if (token.isStructEnd()) {
+                if (--depth == 0) {
+                    completeRecord();
+                }
+                continue;
+            }
+            // only the record's own fields and the members of their objects or arrays are read; deeper is ignored
+            if (depth == 1) {
+                reader.accept(null, parser.currentName(), token, parser);
+            } else if (depth == 2) {
+                reader.accept(container, parser.currentName(), token, parser);
+            }
+            if (token.isStructStart()) {
+                if (depth == 1) {
+                    container = parser.currentName();
+                }
+                depth++;
+            }
+        }
+    }
+
+    // called on START_OBJECT, when the parsing context is already the new object's
+    private void startRecord() {
+        JsonStreamContext parent = parser.getParsingContext().getParent();
+        boolean record;
+        if (shape == Shape.RECORDS) {
+            record = parent.inRoot() || parent.inArray() && parent.getParent().inRoot();
+        } else {
+            JsonStreamContext field = parent.getParent();
+            readingInfo = parent.inObject() && parent.getParent().inRoot() && "info".equals(parent.getCurrentName());
+            record = parent.inArray() && field.inObject() && field.getParent().inRoot()
+                    && "results".equals(field.getCurrentName());
+        }
+        if (readingInfo) {
+            reader = new InfoReader();
+        } else if (record) {
+            reader = readers.get();
+        }
+        depth = reader == null ? 0 : 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void completeRecord() {
+        Reader<?> finished = reader;
+        reader = null;
+        String problem = finished.problem();
+        if (readingInfo) {
+            readingInfo = false;
+            if (problem == null) {
+                info.accept((ApiPage.Info) finished.build());
+            } else {
+                log.warn("Ignoring malformed upstream page info: {}", problem);
+            }
+        } else if (problem == null) {
+            completed.add((T) finished.build());
+        } else {
+            log.warn("Skipping malformed upstream {}: {}", kind, problem);
+            rejected.run();
+        }
+    }
+
+    /**
+     * Builds one record from the parser events inside it. {@code container} is null for the record's own fields, and
+     * otherwise names the field whose object or array holds the value. Once {@link #reject} has been called the rest
+     * of the record is skipped.
+     */
+    abstract static class Reader<R> {
+
+        private String problem;
+
+        final void accept(String container, String field, JsonToken token, JsonParser parser) {
+            if (problem != null) {
+                return;
+            }
+            try {
+                read(container, field, token, parser);
+            } catch (JsonProcessingException e) {
+                reject(e.getOriginalMessage());
+            } catch (IOException e) {
+                reject(e.getMessage());
+            }
+        }
+
+        abstract void read(String container, String field, JsonToken token, JsonParser parser) throws IOException;
+
+        /**
+         * The record, called only when nothing was rejected.
+         */
+        abstract R build();
+
+        final void reject(String reason) {
+            if (problem == null) {
+                problem = reason;
+            }
+        }
+
+        final String problem() {
+            if (problem == null) {
+                checkComplete();
+            }
+            return problem;
+        }
+
+        void checkComplete() {
+        }
+
+        final Integer integer(String field, JsonToken token, JsonParser parser) throws IOException {
+            if (token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            if (token != JsonToken.VALUE_NUMBER_INT) {
+                reject("'" + field + "' is " + token + ", expected an integer");
+                return null;
+            }
+            return parser.getIntValue();
+        }
+
+        final String text(String field, JsonToken token, JsonParser parser) throws IOException {
+            if (token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            if (token != JsonToken.VALUE_STRING) {
+                reject("'" + field + "' is " + token + ", expected a string");
+                return null;
+            }
+            return parser.getText();
+        }
+
+        final void required(String field, Object value) {
+            if (value == null) {
+                reject("'" + field + "' is missing or null");
+            }
+        }
+
+        // a field holding an object or array, or null; anything else is the wrong type
+        final void container(String field, JsonToken token, JsonToken expected) {
+            if (token != expected && token != JsonToken.VALUE_NULL) {
+                reject("'" + field + "' is " + token + ", expected " + expected);
+            }
+        }
+    }
+
+    private static final class InfoReader extends Reader<ApiPage.Info> {
+
+        private Integer count;
+        private Integer pages;
+        private String next;
+
+        @Override
+        void read(String container, String field, JsonToken token, JsonParser parser) throws IOException {
+            if (container != null) {
+                return;
+            }
+            switch (field) {
+                case "count" -> count = integer(field, token, parser);
+                case "pages" -> pages = integer(field, token, parser);
+                case "next" -> next = text(field, token, parser);
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        ApiPage.Info build() {
+            return new ApiPage.Info(count, pages, next);
+        }
+    }
+
+    private static final class LocationReader extends Reader<ApiLocation> {
+
+        private Integer id;
+        private String name;
+        private String type;
+        private String dimension;
+        private final List<Integer> residentIds = new ArrayList<>();
+
+        @Override
+        void read(String container, String field, JsonToken token, JsonParser parser) throws IOException {
+            if (container == null) {
+                switch (field) {
+                    case "id" -> id = integer(field, token, parser);
+                    case "name" -> name = text(field, token, parser);
+                    case "type" -> type = text(field, token, parser);
+                    case "dimension" -> dimension = text(field, token, parser);
+                    case "residents" -> container(field, token, JsonToken.START_ARRAY);
+                    default -> {
+                    }
+                }
+            } else if (container.equals("residents")) {
+                if (token == JsonToken.VALUE_STRING) {
+                    resident(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                } else if (token != JsonToken.VALUE_NULL) {
+                    reject("'residents[]' is " + token + ", expected a string");
+                }
+            }
+        }
+
+        // reads the id after the last '/' straight from the parser's buffer, so no string is built per resident URL
+        private void resident(char[] text, int offset, int length) {
+            int end = offset + length;
+            int start = end;
+            while (start > offset && text[start - 1] != '/') {
+                start--;
+            }
+            if (start == offset && new String(text, offset, length).isBlank()) {
+                return;
+            }
+            if (start == offset || start == end) {
+                log.warn("Invalid resident URL format: {}", new String(text, offset, length));
+                return;
+            }
+            int id = 0;
+            for (int i = start; i < end; i++) {
+                int digit = text[i] - '0';
+                if (digit < 0 || digit > 9 || id > (Integer.MAX_VALUE - digit) / 10) {
+                    log.warn("Failed to parse resident ID from URL: {}", new String(text, offset, length));
+                    return;
+                }
+                id = id * 10 + digit;
+            }
+            residentIds.add(id);
+        }
+
+        @Override
+        void checkComplete() {
+            required("id", id);
+            required("name", name);
+        }
+
+        @Override
+        ApiLocation build() {
+            return new ApiLocation(id, name, type, dimension, residentIds);
+        }
+    }
+
+    private static final class CharacterReader extends Reader<ApiCharacter> {
+
+        private Integer id;
+        private String name;
+        private String status;
+        private String species;
+        private String gender;
+        private String origin = "";
+        private String location = "";
+        private String image;
+
+        @Override
+        void read(String container, String field, JsonToken token, JsonParser parser) throws IOException {
+            if (container == null) {
+                switch (field) {
+                    case "id" -> id = integer(field, token, parser);
+                    case "name" -> name = text(field, token, parser);
+                    case "status" -> status = text(field, token, parser);
+                    case "species" -> species = text(field, token, parser);
+                    case "gender" -> gender = text(field, token, parser);
+                    case "image" -> image = text(field, token, parser);
+                    case "origin", "location" -> container(field, token, JsonToken.START_OBJECT);
+                    default -> {
+                    }
+                }
+            } else if ("name".equals(field)) {
+                // the name of an {"name": ..., "url": ...} reference; empty when the object or its name is absent
+                switch (container) {
+                    case "origin" -> origin = text(container + ".name", token, parser);
+                    case "location" -> location = text(container + ".name", token, parser);
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        @Override
+        void checkComplete() {
+            required("id", id);
+            required("name", name);
+        }
+
+        @Override
+        ApiCharacter build() {
+            return new ApiCharacter(id, name, status, species, gender, origin, location, image);
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.sid.rickmorty.client;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@link ExchangeFilterFunction} that keeps upstream GET bodies on disk and asks upstream only whether they changed.
+ * A cached request is sent with {@code If-None-Match} and {@code If-Modified-Since} from the stored {@code ETag} and
+ * {@code Last-Modified}; on a {@code 304} the stored body is handed on as a {@code 200}, so callers never see the
+ * difference. An entry younger than {@code ttl} is reused without asking at all, which is what keeps an upstream that
+ * sends no validators from being downloaded in full every time ({@code ttl} zero always asks).
+ * <p>
+ * Fresh bodies are copied aside while they stream through to the caller and written once complete, off the event loop.
+ * Responses without validators are only kept when {@code ttl} is set; {@code Cache-Control: no-store} is never kept,
+ * and a 404 or 410 drops the entry. Entries are keyed by path and query below the API base, each stored as a gzip
+ * body plus a properties file of its validators. Past {@code maxEntries} the least recently used are removed.
+ * <p>
+ * Metrics: {@code upstream.cache.fresh} (reused within the ttl), {@code .not-modified} (reused after a 304),
+ * {@code .misses} and {@code .bytes.reused} counters, and the {@code upstream.cache.entries} gauge.
+ */
+public class UpstreamResponseCache implements ExchangeFilterFunction {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamResponseCache.class);
+    private static final int MAX_BODY_BYTES = 16 * 1024 * 1024;
+
+    private final Path directory;
+    private final String basePath;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final ExchangeStrategies strategies;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // a key's body, metadata and entry are replaced together under its stripe, so concurrent downloads cannot mix
+    private final Object[] writeLocks = IntStream.range(0, 64).mapToObj(i -> new Object()).toArray();
+
+    private final LongAdder fresh = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesReused = new LongAdder();
+
+    public UpstreamResponseCache(Path directory, String apiBaseUrl, Duration ttl, int maxEntries,
+                                 ExchangeStrategies strategies, MeterRegistry meterRegistry) {
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("rickmorty.upstream.cache.ttl must not be negative");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("rickmorty.upstream.cache.max-entries must be positive");
+        }
+        this.directory = directory;
+        String path = URI.create(apiBaseUrl).getPath();
+        this.basePath = path == null || path.equals("/") ? "" : path.replaceAll("/$", "");
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+        this.strategies = strategies;
+        try {
+            Files.createDirectories(directory);
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open upstream cache directory " + directory, e);
+        }
+        FunctionCounter.builder("upstream.cache.fresh", fresh, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("upstream.cache.not-modified", notModified, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("upstream.cache.misses", misses, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("upstream.cache.bytes.reused", bytesReused, LongAdder::sum)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("upstream.cache.entries", entries, Map::size).register(meterRegistry);
+        log.info("Caching upstream responses in {} ({} entries, ttl {})", directory.toAbsolutePath(), entries.size(),
+                ttl);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (request.method() != HttpMethod.GET) {
+            return next.exchange(request);
+        }
+        String key = key(request.url());
+        Entry cached = entries.get(key);
+        if (cached == null) {
+            misses.increment();
+            return next.exchange(request).map(response -> store(key, response));
+        }
+        cached.usedAt = System.currentTimeMillis();
+        if (!ttl.isZero() && System.currentTimeMillis() - cached.storedAt < ttl.toMillis()) {
+            return readBody(cached)
+                    .map(body -> {
+                        fresh.increment();
+                        bytesReused.add(body.length);
+                        return ClientResponse.create(HttpStatus.OK, strategies)
+                                .header(HttpHeaders.CONTENT_TYPE, cached.contentType)
+                                .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body)))
+                                .build();
+                    })
+                    .onErrorResume(IOException.class, e -> refetch(key, cached, request, next, e));
+        }
+        ClientRequest conditional = ClientRequest.from(request)
+                .headers(headers -> {
+                    if (cached.etag != null) {
+                        headers.setIfNoneMatch(cached.etag);
+                    }
+                    if (cached.lastModified != null) {
+                        headers.set(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified);
+                    }
+                })
+                .build();
+        return next.exchange(conditional).flatMap(response -> {
+            if (response.statusCode().value() != HttpStatus.NOT_MODIFIED.value()) {
+                misses.increment();
+                return Mono.just(store(key, response));
+            }
+            // replacing the body below releases the (empty) 304 one
+            return readBody(cached)
+                    .map(body -> {
+                        notModified.increment();
+                        bytesReused.add(body.length);
+                        cached.storedAt = System.currentTimeMillis();
+                        Schedulers.boundedElastic().schedule(() -> refreshMetadata(key, cached));
+                        return response.mutate()
+                                .statusCode(HttpStatus.OK)
+                                .headers(headers -> {
+                                    headers.remove(HttpHeaders.CONTENT_LENGTH);
+                                    headers.set(HttpHeaders.CONTENT_TYPE, cached.contentType);
+                                })
+                                .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body)))
+                                .build();
+                    })
+                    .onErrorResume(IOException.class, e -> response.releaseBody()
+                            .then(refetch(key, cached, request, next, e)))
+                    .doOnCancel(() -> response.releaseBody().subscribe());
+        });
+    }
+
+    // the stored body is gone or unreadable: forget the entry and download it in full
+    private Mono<ClientResponse> refetch(String key, Entry cached, ClientRequest request, ExchangeFunction next,
+                                         IOException cause) {
+        log.warn("Cached upstream body for {} is unreadable; downloading it again", key, cause);
+        remove(key, cached);
+        misses.increment();
+        return next.exchange(request).map(response -> store(key, response));
+    }
+
+    private ClientResponse store(String key, ClientResponse response) {
+        HttpStatusCode status = response.statusCode();
+        if (status.value() != HttpStatus.OK.value()) {
+            if (status.value() == HttpStatus.NOT_FOUND.value() || status.value() == HttpStatus.GONE.value()) {
+                forget(key);
+            }
+            return response;
+        }
+        HttpHeaders headers = response.headers().asHttpHeaders();
+        String etag = headers.getETag();
+        String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+        String cacheControl = headers.getCacheControl();
+        if (etag == null && lastModified == null && ttl.isZero()
+                || cacheControl != null && cacheControl.toLowerCase().contains("no-store")) {
+            // whatever was stored before is out of date now, and nothing replaces it
+            forget(key);
+            return response;
+        }
+        String contentType = headers.getContentType() == null ? "application/json" : headers.getContentType().toString();
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        return response.mutate()
+                .body(body -> body
+                        .doOnNext(buffer -> capture(buffer, copy))
+                        .doOnComplete(() -> {
+                            if (copy.size() <= MAX_BODY_BYTES) {
+                                Entry entry = new Entry(file(key), etag, lastModified, contentType);
+                                Schedulers.boundedElastic().schedule(() -> write(key, entry, copy));
+                            }
+                        }))
+                .build();
+    }
+
+    // copies the readable bytes without moving the buffer's read position, so the caller still gets all of them
+    private static void capture(DataBuffer buffer, ByteArrayOutputStream copy) {
+        if (copy.size() > MAX_BODY_BYTES) {
+            return;
+        }
+        try (DataBuffer.ByteBufferIterator chunks = buffer.readableByteBuffers()) {
+            while (chunks.hasNext()) {
+                ByteBuffer chunk = chunks.next();
+                byte[] bytes = new byte[chunk.remaining()];
+                chunk.get(bytes);
+                copy.write(bytes, 0, bytes.length);
+            }
+        }
+    }
+
+    private Mono<byte[]> readBody(Entry entry) {
+        return Mono.fromCallable(() -> {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(directory.resolve(entry.file + ".gz")))) {
+                return in.readAllBytes();
+            }
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // Concurrent downloads of one key each compress into their own temporary file; the last one to take the key's
+    // lock replaces the body, its metadata and the entry together
+    private void write(String key, Entry entry, ByteArrayOutputStream body) {
+        try {
+            Path partial = Files.createTempFile(directory, entry.file, ".part");
+            try {
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial))) {
+                    body.writeTo(out);
+                }
+                synchronized (writeLock(key)) {
+                    Files.move(partial, directory.resolve(entry.file + ".gz"), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                    writeMetadata(key, entry);
+                    entries.put(key, entry);
+                }
+            } finally {
+                Files.deleteIfExists(partial);
+            }
+            evict();
+        } catch (IOException e) {
+            // a failed write only costs a full download next time
+            log.warn("Could not cache upstream response for {}", key, e);
+        }
+    }
+
+    // records a 304's new storedAt, unless a fresh download has replaced the entry meanwhile
+    private void refreshMetadata(String key, Entry entry) {
+        synchronized (writeLock(key)) {
+            if (entries.get(key) == entry) {
+                writeMetadata(key, entry);
+            }
+        }
+    }
+
+    private Object writeLock(String key) {
+        return writeLocks[Math.floorMod(key.hashCode(), writeLocks.length)];
+    }
+
+    private void writeMetadata(String key, Entry entry) {
+        Properties properties = new Properties();
+        properties.setProperty("key", key);
+        properties.setProperty("content-type", entry.contentType);
+        properties.setProperty("stored-at", Long.toString(entry.storedAt));
+        if (entry.etag != null) {
+            properties.setProperty("etag", entry.etag);
+        }
+        if (entry.lastModified != null) {
+            properties.setProperty("last-modified", entry.lastModified);
+        }
+        try {
+            Path partial = Files.createTempFile(directory, entry.file, ".part");
+            try {
+                try (Writer out = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+                    properties.store(out, null);
+                }
+                Files.move(partial, directory.resolve(entry.file + ".properties"), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(partial);
+            }
+        } catch (IOException e) {
+            log.warn("Could not write upstream cache metadata for {}", key, e);
+        }
+    }
+
+    private void load() throws IOException {
+        // temporary files left by a write that never finished
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.part")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.properties")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String stem = name.substring(0, name.length() - ".properties".length());
+                Properties properties = new Properties();
+                try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    properties.load(in);
+                    Entry entry = new Entry(stem, properties.getProperty("etag"), properties.getProperty("last-modified"),
+                            properties.getProperty("content-type", "application/json"));
+                    entry.storedAt = Long.parseLong(properties.getProperty("stored-at", "0"));
+                    String key = properties.getProperty("key");
+                    if (key != null && Files.exists(directory.resolve(stem + ".gz"))) {
+                        entries.put(key, entry);
+                    }
+                } catch (IOException | IllegalArgumentException e) {
+                    log.warn("Ignoring unreadable upstream cache entry {}", file, e);
+                }
+            }
+        }
+        evict();
+    }
+
+    private void evict() {
+        while (entries.size() > maxEntries) {
+            entries.entrySet().stream()
+                    .min(Comparator.comparingLong(candidate -> candidate.getValue().usedAt))
+                    .ifPresent(oldest -> remove(oldest.getKey(), oldest.getValue()));
+        }
+    }
+
+    private void forget(String key) {
+        Entry stale = entries.get(key);
+        if (stale != null) {
+            remove(key, stale);
+        }
+    }
+
+    private void remove(String key, Entry entry) {
+        if (!entries.remove(key, entry)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(directory.resolve(entry.file + ".properties"));
+            Files.deleteIfExists(directory.resolve(entry.file + ".gz"));
+        } catch (IOException e) {
+            log.warn("Could not delete upstream cache entry {}", entry.file, e);
+        }
+    }
+
+    String key(URI url) {
+        String path = url.getRawPath();
+        if (path.startsWith(basePath)) {
+            path = path.substring(basePath.length());
+        }
+        return url.getRawQuery() == null ? path : path + "?" + url.getRawQuery();
+    }
+
+    // request keys for large id batches are far longer than a file name may be, so files are named by digest
+    private static String file(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A cached body's validators. {@code storedAt} is when it was last downloaded or confirmed unchanged.
+     */
+    private static final class Entry {
+
+        private final String file;
+        private final String etag;
+        private final String lastModified;
+        private final String contentType;
+        private volatile long storedAt = System.currentTimeMillis();
+        private volatile long usedAt = System.currentTimeMillis();
+
+        Entry(String file, String etag, String lastModified, String contentType) {
+            this.file = file;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.sid.rickmorty.client.fixture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@link ExchangeFilterFunction} that saves every successful upstream GET body as a gzip file in a fixture directory,
+ * for {@link FixtureServer} to replay later. Each request path and query (relative to the API base, e.g.
+ * {@code /location?page=2}) is recorded in {@code index.tsv} next to the file holding its body. Recording the same
+ * request again replaces its file.
+ */
+public class FixtureRecorder implements ExchangeFilterFunction {
+
+    static final String INDEX = "index.tsv";
+
+    private static final Logger log = LoggerFactory.getLogger(FixtureRecorder.class);
+
+    private final Path directory;
+    private final String basePath;
+
+    public FixtureRecorder(Path directory, String apiBaseUrl) {
+        this.directory = directory;
+        String path = URI.create(apiBaseUrl).getPath();
+        this.basePath = path == null || path.equals("/") ? "" : path.replaceAll("/$", "");
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create fixture directory " + directory, e);
+        }
+        log.info("Recording upstream responses to {}", directory.toAbsolutePath());
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (request.method() != HttpMethod.GET) {
+            return next.exchange(request);
+        }
+        return next.exchange(request).flatMap(response -> {
+            if (!response.statusCode().is2xxSuccessful()) {
+                return Mono.just(response);
+            }
+            return response.bodyToMono(byte[].class)
+                    .defaultIfEmpty(new byte[0])
+                    .flatMap(body -> Mono.fromRunnable(() -> record(key(request.url()), body))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .thenReturn(response.mutate()
+                                    .body(Flux.<DataBuffer>just(DefaultDataBufferFactory.sharedInstance.wrap(body)))
+                                    .build()));
+        });
+    }
+
+    String key(URI url) {
+        String path = url.getPath();
+        if (path.startsWith(basePath)) {
+            path = path.substring(basePath.length());
+        }
+        return url.getRawQuery() == null ? path : path + "?" + url.getRawQuery();
+    }
+
+    private void record(String key, byte[] body) {
+        String file = fileName(key);
+        try {
+            Path target = directory.resolve(file);
+            Path partial = directory.resolve(file + ".part");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial))) {
+                out.write(body);
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+            synchronized (this) {
+                Files.writeString(directory.resolve(INDEX), key + "\t" + file + "\n", StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        } catch (IOException e) {
+            // a failed recording must not fail the ingestion it observes
+            log.warn("Could not record fixture for {}", key, e);
+        }
+    }
+
+    // request keys for large id batches are far longer than a file name may be, so files are named by digest
+    static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8) + ".json.gz";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package com.sid.rickmorty.client.fixture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Local stand-in for the Rick &amp; Morty API that replays a directory recorded by {@link FixtureRecorder}, so
+ * ingestion can run and be measured without a network.
+ * <p>
+ * On start every location and character found in the recordings is rendered once, as JSON, into a temporary file.
+ * The file is memory-mapped and responses are assembled from slices of it without copying. With {@code scale > 1}
+ * the catalogue is repeated that many times under shifted ids, with residents pointing into their own copy, which
+ * gives a catalogue {@code scale} times the recorded size with the same shape. Every response can be delayed by a
+ * fixed {@code latency} to stand in for the network. With {@code capacity > 0} it answers at most that many requests at
+ * once and turns the rest away with {@code 429} and {@code Retry-After: 1}, like a rate-limited upstream. Every
+ * {@code 200} carries an {@code ETag}, and a request whose {@code If-None-Match} matches it gets an empty {@code 304}.
+ * <p>
+ * It serves the paths the client uses, below {@code /api}: {@code /location?page=}, {@code /character?page=},
+ * {@code /character/{id}}, {@code /character/{ids}} and {@code /location/{id}}, paged 20 per page like the real API.
+ */
+public final class FixtureServer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(FixtureServer.class);
+    private static final int PAGE_SIZE = 20;
+    private static final byte[] COMMA = {','};
+    private static final byte[] NOTHING_HERE = "{\"error\":\"There is nothing here\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TOO_MANY = "{\"error\":\"Too many requests\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final Duration latency;
+    private final int capacity;
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder turnedAway = new LongAdder();
+    private final DisposableServer server;
+    private final String baseUrl;
+    private final Path renderFile;
+    // rendered after binding, since the rendered URLs carry the bound port
+    private volatile Entities locations;
+    private volatile Entities characters;
+
+    private FixtureServer(Path directory, int port, Duration latency, int scale, int capacity) throws IOException {
+        if (scale <= 0) {
+            throw new IllegalArgumentException("fixture scale must be positive");
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("fixture capacity must not be negative");
+        }
+        this.latency = latency;
+        this.capacity = capacity;
+        this.server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(port)
+                .route(routes -> routes
+                        .get("/api/location", (request, response) ->
+                                admit(response, () -> page(request, response, "location", locations)))
+                        .get("/api/character", (request, response) ->
+                                admit(response, () -> page(request, response, "character", characters)))
+                        .get("/api/location/{ids}", (request, response) ->
+                                admit(response, () -> byIds(request, response, locations)))
+                        .get("/api/character/{ids}", (request, response) ->
+                                admit(response, () -> byIds(request, response, characters))))
+                .bindNow();
+        this.baseUrl = "http://127.0.0.1:" + server.port() + "/api";
+        this.renderFile = Files.createTempFile("rickmorty-fixtures", ".bin");
+        try {
+            render(directory, scale);
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Loads {@code directory} and starts serving on {@code port} ({@code 0} picks a free one).
+     */
+    public static FixtureServer start(Path directory, int port, Duration latency, int scale) throws IOException {
+        return start(directory, port, latency, scale, 0);
+    }
+
+    /**
+     * As {@link #start(Path, int, Duration, int)}, answering at most {@code capacity} requests at once ({@code 0} for
+     * no limit).
+     */
+    public static FixtureServer start(Path directory, int port, Duration latency, int scale, int capacity)
+            throws IOException {
+        return new FixtureServer(directory, port, latency, scale, capacity);
+    }
+
+    /**
+     * Base URL to configure the client with, including the {@code /api} prefix.
+     */
+    public String baseUrl() {
+        return baseUrl;
+    }
+
+    public int locationCount() {
+        return locations.ids.length;
+    }
+
+    public int characterCount() {
+        return characters.ids.length;
+    }
+
+    /**
+     * Requests answered with 429 because {@code capacity} were already being answered.
+     */
+    public long turnedAway() {
+        return turnedAway.sum();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+        try {
+            Files.deleteIfExists(renderFile);
+        } catch (IOException e) {
+            log.warn("Could not delete {}", renderFile, e);
+        }
+    }
+
+    private void render(Path directory, int scale) throws IOException {
+        long started = System.nanoTime();
+        ObjectMapper mapper = new ObjectMapper();
+        TreeMap<Integer, ObjectNode> recordedLocations = new TreeMap<>();
+        TreeMap<Integer, ObjectNode> recordedCharacters = new TreeMap<>();
+        for (Map.Entry<String, String> recording : readIndex(directory).entrySet()) {
+            JsonNode body;
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(directory.resolve(recording.getValue())))) {
+                body = mapper.readTree(in);
+            }
+            String key = recording.getKey();
+            TreeMap<Integer, ObjectNode> target = key.startsWith("/location") ? recordedLocations
+                    : key.startsWith("/character") ? recordedCharacters : null;
+            if (target == null) {
+                continue;
+            }
+            JsonNode entities = body.has("results") ? body.get("results") : body;
+            for (JsonNode entity : entities.isArray() ? entities : List.of(entities)) {
+                if (entity instanceof ObjectNode node && node.path("id").isInt()) {
+                    target.put(node.get("id").asInt(), node);
+                }
+            }
+        }
+        if (recordedLocations.isEmpty()) {
+            throw new IllegalArgumentException("No recorded locations in " + directory);
+        }
+
+        int locationStride = recordedLocations.lastKey();
+        int characterStride = recordedCharacters.isEmpty() ? 0 : recordedCharacters.lastKey();
+        int locationTotal = recordedLocations.size() * scale;
+        int characterTotal = recordedCharacters.size() * scale;
+        int[] locationIds = new int[locationTotal];
+        int[] characterIds = new int[characterTotal];
+        long[] locationOffsets = new long[locationTotal + 1];
+        long[] characterOffsets = new long[characterTotal + 1];
+        long written = 0;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(renderFile), 1 << 16)) {
+            int row = 0;
+            for (int copy = 0; copy < scale; copy++) {
+                int locationShift = copy * locationStride;
+                int characterShift = copy * characterStride;
+                for (ObjectNode recorded : recordedLocations.values()) {
+                    ObjectNode location = recorded.deepCopy();
+                    int id = location.get("id").asInt() + locationShift;
+                    location.put("id", id);
+                    location.put("url", baseUrl + "/location/" + id);
+                    ArrayNode residents = location.putArray("residents");
+                    for (JsonNode resident : recorded.path("residents")) {
+                        residents.add(shiftUrl(resident.asText(), "character", characterShift));
+                    }
+                    byte[] json = mapper.writeValueAsBytes(location);
+                    out.write(json);
+                    written += json.length;
+                    locationIds[row] = id;
+                    locationOffsets[++row] = written;
+                }
+            }
+            row = 0;
+            characterOffsets[0] = written;
+            for (int copy = 0; copy < scale; copy++) {
+                int locationShift = copy * locationStride;
+                int characterShift = copy * characterStride;
+                for (ObjectNode recorded : recordedCharacters.values()) {
+                    ObjectNode character = recorded.deepCopy();
+                    int id = character.get("id").asInt() + characterShift;
+                    character.put("id", id);
+                    character.put("url", baseUrl + "/character/" + id);
+                    for (String place : List.of("origin", "location")) {
+                        if (character.get(place) instanceof ObjectNode link && link.hasNonNull("url")) {
+                            link.put("url", shiftUrl(link.get("url").asText(), "location", locationShift));
+                        }
+                    }
+                    byte[] json = mapper.writeValueAsBytes(character);
+                    out.write(json);
+                    written += json.length;
+                    characterIds[row] = id;
+                    characterOffsets[++row] = written;
+                }
+            }
+        }
+        if (written > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Fixture scale " + scale + " renders more than 2 GiB; use a smaller scale");
+        }
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(renderFile, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        locations = new Entities(locationIds, locationOffsets, mapped);
+        characters = new Entities(characterIds, characterOffsets, mapped);
+        log.info("Replaying {} locations and {} characters (x{}) from {} on {} with {} ms latency, {} MiB mapped in {} ms",
+                locationTotal, characterTotal, scale, directory, baseUrl, latency.toMillis(),
+                mapped.capacity() >> 20, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private Mono<Void> admit(HttpServerResponse response, Supplier<Mono<Void>> handler) {
+        if (capacity == 0) {
+            return handler.get();
+        }
+        if (active.incrementAndGet() > capacity) {
+            active.decrementAndGet();
+            turnedAway.increment();
+            return response.status(HttpResponseStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaderNames.RETRY_AFTER, "1")
+                    .header(HttpHeaderNames.CONTENT_TYPE, "application/json; charset=utf-8")
+                    .sendByteArray(Mono.just(TOO_MANY))
+                    .then();
+        }
+        return handler.get().doFinally(signal -> active.decrementAndGet());
+    }
+
+    private Mono<Void> page(HttpServerRequest request, HttpServerResponse response, String kind, Entities entities) {
+        List<String> pageParam = new QueryStringDecoder(request.uri()).parameters().getOrDefault("page", List.of("1"));
+        int page;
+        try {
+            page = Integer.parseInt(pageParam.get(0));
+        } catch (NumberFormatException e) {
+            return send(request, response, HttpResponseStatus.NOT_FOUND, Unpooled.wrappedBuffer(NOTHING_HERE));
+        }
+        int count = entities.ids.length;
+        int pages = (count + PAGE_SIZE - 1) / PAGE_SIZE;
+        if (page < 1 || page > pages) {
+            return send(request, response, HttpResponseStatus.NOT_FOUND, Unpooled.wrappedBuffer(NOTHING_HERE));
+        }
+        String next = page < pages ? "\"" + baseUrl + "/" + kind + "?page=" + (page + 1) + "\"" : "null";
+        String prev = page > 1 ? "\"" + baseUrl + "/" + kind + "?page=" + (page - 1) + "\"" : "null";
+        String head = "{\"info\":{\"count\":" + count + ",\"pages\":" + pages + ",\"next\":" + next + ",\"prev\":"
+                + prev + "},\"results\":";
+        int from = (page - 1) * PAGE_SIZE;
+        int[] rows = new int[Math.min(count, from + PAGE_SIZE) - from];
+        Arrays.setAll(rows, i -> from + i);
+        return send(request, response, HttpResponseStatus.OK, entities.array(head, rows, "}"));
+    }
+
+    private Mono<Void> byIds(HttpServerRequest request, HttpServerResponse response, Entities entities) {
+        String spec = QueryStringDecoder.decodeComponent(request.param("ids"));
+        List<Integer> rows = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            try {
+                int row = entities.rowOf(Integer.parseInt(part.trim()));
+                if (row >= 0) {
+                    rows.add(row);
+                }
+            } catch (NumberFormatException ignored) {
+                // the real API skips ids it cannot parse as well
+            }
+        }
+        if (!spec.contains(",")) {
+            return rows.isEmpty()
+                    ? send(request, response, HttpResponseStatus.NOT_FOUND, Unpooled.wrappedBuffer(NOTHING_HERE))
+                    : send(request, response, HttpResponseStatus.OK,
+                            Unpooled.wrappedBuffer(entities.slice(rows.get(0))));
+        }
+        return send(request, response, HttpResponseStatus.OK,
+                entities.array("", rows.stream().mapToInt(Integer::intValue).toArray(), ""));
+    }
+
+    private Mono<Void> send(HttpServerRequest request, HttpServerResponse response, HttpResponseStatus status,
+                            ByteBuf body) {
+        if (status == HttpResponseStatus.OK) {
+            String etag = etag(body);
+            response.header(HttpHeaderNames.ETAG, etag);
+            if (etag.equals(request.requestHeaders().get(HttpHeaderNames.IF_NONE_MATCH))) {
+                body.release();
+                Mono<Void> notModified = Mono.defer(() -> response.status(HttpResponseStatus.NOT_MODIFIED).send());
+                return latency.isZero() ? notModified : Mono.delay(latency).then(notModified);
+            }
+        }
+        Mono<Void> reply = Mono.defer(() -> response.status(status)
+                .header(HttpHeaderNames.CONTENT_TYPE, "application/json; charset=utf-8")
+                .header(HttpHeaderNames.CONTENT_LENGTH, Integer.toString(body.readableBytes()))
+                .send(Mono.just(body))
+                .then());
+        return latency.isZero() ? reply : Mono.delay(latency).then(reply);
+    }
+
+    // responses never change while the server runs, so a checksum of the body identifies it
+    private static String etag(ByteBuf body) {
+        CRC32C crc = new CRC32C();
+        for (ByteBuffer part : body.nioBuffers()) {
+            crc.update(part);
+        }
+        return "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(body.readableBytes()) + "\"";
+    }
+
+    // the id is the last path segment of the URLs the API uses for references
+    private String shiftUrl(String url, String kind, int shift) {
+        int slash = url.lastIndexOf('/');
+        try {
+            return baseUrl + "/" + kind + "/" + (Integer.parseInt(url.substring(slash + 1)) + shift);
+        } catch (NumberFormatException e) {
+            return url;
+        }
+    }
+
+    private static Map<String, String> readIndex(Path directory) throws IOException {
+        Map<String, String> files = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(directory.resolve(FixtureRecorder.INDEX), StandardCharsets.UTF_8)) {
+            int tab = line.indexOf('\t');
+            if (tab > 0) {
+                // a request recorded twice keeps its latest body
+                files.put(line.substring(0, tab), line.substring(tab + 1));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Entities of one kind, ordered by id, as JSON slices of the mapped file.
+     */
+    private record Entities(int[] ids, long[] offsets, MappedByteBuffer mapped) {
+
+        int rowOf(int id) {
+            int row = Arrays.binarySearch(ids, id);
+            return row < 0 ? -1 : row;
+        }
+
+        ByteBuffer slice(int row) {
+            return mapped.slice((int) offsets[row], (int) (offsets[row + 1] - offsets[row]));
+        }
+
+        ByteBuf array(String head, int[] rows, String tail) {
+            List<ByteBuffer> parts = new ArrayList<>(rows.length * 2 + 1);
+            parts.add(ByteBuffer.wrap((head + "[").getBytes(StandardCharsets.UTF_8)));
+            for (int i = 0; i < rows.length; i++) {
+                if (i > 0) {
+                    parts.add(ByteBuffer.wrap(COMMA));
+                }
+                parts.add(slice(rows[i]));
+            }
+            parts.add(ByteBuffer.wrap(("]" + tail).getBytes(StandardCharsets.UTF_8)));
+            return Unpooled.wrappedBuffer(parts.toArray(ByteBuffer[]::new));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.sid.rickmorty.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.jdbc.DataSourceHealthIndicator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.sqlite.SQLiteConfig;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * SQLite storage in WAL mode with one pooled writer connection and a pool of read-only connections.
+ * WAL lets readers keep reading the last committed snapshot while the ingestion transaction writes, and a single
+ * writer matches SQLite's one-writer model instead of making pooled writers queue on the database lock.
+ * Statements run in a read-only transaction ({@code @Transactional(readOnly = true)}, which includes Spring Data's
+ * CRUD finders) go to the reader pool; everything else uses the writer.
+ */
+@Configuration
+public class SqliteDataSourceConfig {
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource writerDataSource(@Value("${spring.datasource.url}") String url,
+                                             @Value("${rickmorty.sqlite.synchronous:NORMAL}") String synchronous,
+                                             @Value("${rickmorty.sqlite.mmap-size:268435456}") long mmapSize,
+                                             @Value("${rickmorty.sqlite.cache-size:-16384}") int cacheSize,
+                                             @Value("${rickmorty.sqlite.busy-timeout:5000}") int busyTimeout) {
+        SQLiteConfig config = tunedConfig(synchronous, mmapSize, cacheSize, busyTimeout);
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        return pool("sqlite-writer", url, config, 1);
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource readerDataSource(@Value("${spring.datasource.url}") String url,
+                                             @Value("${rickmorty.sqlite.synchronous:NORMAL}") String synchronous,
+                                             @Value("${rickmorty.sqlite.mmap-size:268435456}") long mmapSize,
+                                             @Value("${rickmorty.sqlite.cache-size:-16384}") int cacheSize,
+                                             @Value("${rickmorty.sqlite.busy-timeout:5000}") int busyTimeout,
+                                             @Value("${rickmorty.sqlite.reader-pool-size:4}") int readerPoolSize) {
+        if (readerPoolSize <= 0) {
+            throw new IllegalArgumentException("rickmorty.sqlite.reader-pool-size must be positive");
+        }
+        // journal_mode is a property of the database file, set by the writer; a read-only connection cannot change it
+        SQLiteConfig config = tunedConfig(synchronous, mmapSize, cacheSize, busyTimeout);
+        config.setReadOnly(true);
+        HikariDataSource dataSource = pool("sqlite-reader", url, config, readerPoolSize);
+        // sqlite-jdbc rejects changing the read-only flag on an open connection, so Hikari must reset it to the same value
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("writerDataSource") DataSource writer,
+                                 @Qualifier("readerDataSource") DataSource reader) {
+        AbstractRoutingDataSource routing = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? "reader" : "writer";
+            }
+        };
+        routing.setTargetDataSources(Map.of("writer", writer, "reader", reader));
+        routing.setDefaultTargetDataSource(writer);
+        routing.afterPropertiesSet();
+        // the transaction manager asks for a connection before the read-only flag is bound, so defer picking a pool
+        // until the first statement actually runs
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * Probes the database through the reader pool. The single writer connection is held for a whole ingestion
+     * transaction, and a health check queued behind it would time out while the service is serving reads just fine.
+     */
+    @Bean
+    public HealthIndicator dbHealthIndicator(@Qualifier("readerDataSource") DataSource reader) {
+        return new DataSourceHealthIndicator(reader, "SELECT 1");
+    }
+
+    private static SQLiteConfig tunedConfig(String synchronous, long mmapSize, int cacheSize, int busyTimeout) {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setSynchronous(SQLiteConfig.SynchronousMode.valueOf(synchronous.toUpperCase()));
+        config.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, Long.toString(mmapSize));
+        config.setCacheSize(cacheSize);
+        config.setBusyTimeout(busyTimeout);
+        return config;
+    }
+
+    private static HikariDataSource pool(String name, String url, SQLiteConfig config, int size) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl(url);
+        dataSource.setDriverClassName("org.sqlite.JDBC");
+        dataSource.setDataSourceProperties(config.toProperties());
+        dataSource.setMaximumPoolSize(size);
+        dataSource.setMinimumIdle(Math.min(size, 1));
+        return dataSource;
+    }
+}
@@ -1,6 +1,13 @@
 package com.sid.rickmorty.config;
 
+import com.sid.rickmorty.client.AdaptiveConcurrencyLimiter;
+import com.sid.rickmorty.client.UpstreamResponseCache;
+import com.sid.rickmorty.client.fixture.FixtureRecorder;
+import com.sid.rickmorty.client.fixture.FixtureServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
@@ -8,24 +15,72 @@ import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.netty.http.client.HttpClient;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
 /**
  * Centralized WebClient configuration so we can switch between REST and GraphQL clients quickly.
- * Dialing up buffer limits allows us to ingest large payloads without reconfiguration.
+ * Ingestion responses are decoded as they stream in and never aggregated; the raised buffer limit covers the bodies
+ * that still are, such as recorded fixtures. Every upstream request goes through an {@link AdaptiveConcurrencyLimiter},
+ * which sets how many are in flight at once from the latency and errors it sees. With
+ * {@code rickmorty.upstream.cache.dir} set, bodies are kept on disk by an {@link UpstreamResponseCache} and later
+ * requests only ask upstream whether they changed.
+ * With {@code rickmorty.fixtures.replay-dir} set, the client talks to a local {@link FixtureServer} instead of the
+ * API base; with {@code rickmorty.fixtures.record-dir} set, every successful response is recorded for later replay.
  */
 @Configuration
 public class WebClientConfig {
 
     @Bean
-    public WebClient rickAndMortyWebClient(@Value("${rickmorty.api-base:https://rickandmortyapi.com/api}") String apiBaseUrl) {
+    public WebClient rickAndMortyWebClient(@Value("${rickmorty.api-base:https://rickandmortyapi.com/api}") String apiBaseUrl,
+                                           @Value("${rickmorty.fixtures.record-dir:}") String recordDir,
+                                           @Value("${rickmorty.upstream.cache.dir:data/upstream-cache}") String cacheDir,
+                                           @Value("${rickmorty.upstream.cache.ttl:PT0S}") Duration cacheTtl,
+                                           @Value("${rickmorty.upstream.cache.max-entries:10000}") int cacheMaxEntries,
+                                           ObjectProvider<FixtureServer> fixtureServer,
+                                           AdaptiveConcurrencyLimiter upstreamLimiter,
+                                           MeterRegistry meterRegistry) {
+        FixtureServer replay = fixtureServer.getIfAvailable();
+        String baseUrl = replay != null ? replay.baseUrl() : apiBaseUrl;
         HttpClient httpClient = HttpClient.create();
-        return WebClient.builder()
-                .clientConnector(new ReactorClientHttpConnector(httpClient))
-                .baseUrl(apiBaseUrl)
-                .exchangeStrategies(ExchangeStrategies.builder()
-                        .codecs(clientDefaultCodecsConfigurer -> clientDefaultCodecsConfigurer
-                                .defaultCodecs()
-                                .maxInMemorySize(4 * 1024 * 1024))
-                        .build())
+        ExchangeStrategies strategies = ExchangeStrategies.builder()
+                .codecs(clientDefaultCodecsConfigurer -> clientDefaultCodecsConfigurer
+                        .defaultCodecs()
+                        .maxInMemorySize(4 * 1024 * 1024))
                 .build();
+        WebClient.Builder builder = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .baseUrl(baseUrl)
+                .exchangeStrategies(strategies);
+        // outermost first: recording sees cached bodies too, and a reused body never takes a limiter slot
+        if (!recordDir.isBlank()) {
+            builder.filter(new FixtureRecorder(Path.of(recordDir), baseUrl));
+        }
+        if (!cacheDir.isBlank()) {
+            builder.filter(new UpstreamResponseCache(Path.of(cacheDir), baseUrl, cacheTtl, cacheMaxEntries, strategies,
+                    meterRegistry));
+        }
+        return builder.filter(upstreamLimiter).build();
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter upstreamLimiter(@Value("${rickmorty.upstream.limiter.initial-limit:4}") int initialLimit,
+                                                      @Value("${rickmorty.upstream.limiter.min-limit:1}") int minLimit,
+                                                      @Value("${rickmorty.upstream.limiter.max-limit:16}") int maxLimit,
+                                                      @Value("${rickmorty.upstream.limiter.latency-tolerance:2.0}") double latencyTolerance,
+                                                      @Value("${rickmorty.upstream.limiter.max-retry-after:PT60S}") Duration maxRetryAfter,
+                                                      MeterRegistry meterRegistry) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, latencyTolerance, maxRetryAfter,
+                meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnExpression("!'${rickmorty.fixtures.replay-dir:}'.isBlank()")
+    public FixtureServer fixtureServer(@Value("${rickmorty.fixtures.replay-dir}") String replayDir,
+                                       @Value("${rickmorty.fixtures.replay-latency:PT0S}") Duration latency,
+                                       @Value("${rickmorty.fixtures.replay-scale:1}") int scale,
+                                       @Value("${rickmorty.fixtures.replay-capacity:0}") int capacity) throws IOException {
+        return FixtureServer.start(Path.of(replayDir), 0, latency, scale, capacity);
     }
 }
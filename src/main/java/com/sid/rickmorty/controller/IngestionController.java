@@ -0,0 +1,51 @@
+package com.sid.rickmorty.controller;
+
+import com.sid.rickmorty.model.dto.IngestionJobDto;
+import com.sid.rickmorty.service.IngestionJobService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Background refresh jobs started by {@code POST /api/locations/refresh}, the schedule or startup.
+ */
+@RestController
+@RequestMapping("/api/ingestion/jobs")
+public class IngestionController {
+
+    private final IngestionJobService jobService;
+
+    public IngestionController(IngestionJobService jobService) {
+        this.jobService = jobService;
+    }
+
+    /**
+     * Recent jobs, newest first.
+     */
+    @GetMapping
+    public List<IngestionJobDto> list() {
+        return jobService.recent();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<IngestionJobDto> get(@PathVariable String id) {
+        return jobService.find(id).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * 202 once the job has been asked to stop (it reports CANCELLED when it has); 409 when it had already finished.
+     */
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<IngestionJobDto> cancel(@PathVariable String id) {
+        return jobService.cancel(id)
+                .map(request -> ResponseEntity.status(request.accepted() ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                        .body(request.job()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
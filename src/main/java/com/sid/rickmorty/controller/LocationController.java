@@ -1,13 +1,22 @@
 package com.sid.rickmorty.controller;
 
+import com.sid.rickmorty.model.dto.IngestionJobDto;
 import com.sid.rickmorty.model.dto.LocationDto;
+import com.sid.rickmorty.service.IngestionJobService;
+import com.sid.rickmorty.service.LocationResponseCache;
 import com.sid.rickmorty.service.LocationService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -15,19 +24,88 @@ import java.util.List;
 public class LocationController {
 
     private final LocationService locationService;
+    private final LocationResponseCache responseCache;
+    private final IngestionJobService jobService;
 
-    public LocationController(LocationService locationService) {
+    public LocationController(LocationService locationService, LocationResponseCache responseCache,
+                              IngestionJobService jobService) {
         this.locationService = locationService;
+        this.responseCache = responseCache;
+        this.jobService = jobService;
     }
 
+    /**
+     * The unfiltered listing is served from pre-serialized bytes with an ETag; paged or filtered requests are
+     * queried on demand.
+     */
     @GetMapping
-    public List<LocationDto> list() {
-        return locationService.listLocations();
+    public ResponseEntity<?> list(@RequestParam(required = false) Integer page,
+                                  @RequestParam(required = false) Integer size,
+                                  @RequestParam(required = false) String dimension,
+                                  @RequestParam(required = false) String type,
+                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                  @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (page != null || size != null || dimension != null || type != null) {
+            List<LocationDto> locations = locationService.listLocations(page, size, dimension, type);
+            return ResponseEntity.ok(locations);
+        }
+        LocationResponseCache.Body body = responseCache.current();
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String etag = gzip ? body.gzipEtag() : body.etag();
+        if (responseCache.notModified(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body.gzip());
+        }
+        return response.body(body.json());
     }
 
+    /**
+     * Starts a background refresh and returns its job (202), or the job already queued or running (409); either way
+     * the Location header points at {@code /api/ingestion/jobs/{id}}.
+     */
     @PostMapping("/refresh")
-    public ResponseEntity<Void> refresh() {
-        locationService.refreshFromSource();
-        return ResponseEntity.accepted().build();
+    public ResponseEntity<IngestionJobDto> refresh() {
+        IngestionJobService.JobRequest request = jobService.submit(IngestionJobDto.Trigger.MANUAL);
+        return ResponseEntity.status(request.accepted() ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .location(URI.create("/api/ingestion/jobs/" + request.job().id()))
+                .body(request.job());
+    }
+
+    /**
+     * Swaps the catalogue generation replaced by the last refresh back in; 409 when there is none to return to.
+     */
+    @PostMapping("/refresh/rollback")
+    public ResponseEntity<Void> rollback() {
+        return locationService.rollback()
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!parts[0].trim().equalsIgnoreCase("gzip")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                if (parts[i].trim().matches("q=0(\\.0{0,3})?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
     }
 }
@@ -1,26 +1,92 @@
 package com.sid.rickmorty.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sid.rickmorty.model.dto.BatchSearchRequest;
+import com.sid.rickmorty.model.dto.BatchSearchResultDto;
 import com.sid.rickmorty.model.dto.ResidentSummaryDto;
+import com.sid.rickmorty.model.dto.SearchPageDto;
+import com.sid.rickmorty.model.dto.SuggestionDto;
 import com.sid.rickmorty.search.SearchService;
+import com.sid.rickmorty.search.SuggestionService;
+import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.Iterator;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/search")
 public class SearchController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final int STREAM_FLUSH_EVERY = 64;
+
     private final SearchService searchService;
+    private final SuggestionService suggestionService;
+    private final ObjectWriter lineWriter;
 
-    public SearchController(SearchService searchService) {
+    public SearchController(SearchService searchService, SuggestionService suggestionService, ObjectMapper mapper) {
         this.searchService = searchService;
+        this.suggestionService = suggestionService;
+        this.lineWriter = mapper.writerFor(ResidentSummaryDto.class);
     }
 
     @GetMapping
-    public List<ResidentSummaryDto> search(@RequestParam(required = false, defaultValue = "") String q) {
-        return searchService.search(q);
+    public List<ResidentSummaryDto> search(@RequestParam(required = false, defaultValue = "") String q,
+                                           @RequestParam(required = false) Integer limit) {
+        return searchService.search(q, limit);
+    }
+
+    @PostMapping("/batch")
+    public List<BatchSearchResultDto> batch(@Valid @RequestBody BatchSearchRequest request) {
+        return searchService.searchBatch(request.queries(), request.limit());
+    }
+
+    @GetMapping("/page")
+    public SearchPageDto page(@RequestParam(required = false, defaultValue = "") String q,
+                              @RequestParam(required = false) String cursor,
+                              @RequestParam(required = false) Integer limit) {
+        return searchService.searchPage(q, cursor, limit);
+    }
+
+    /**
+     * Every match as newline-delimited JSON, best first, flushed in small batches so clients can render while the
+     * rest is still being written.
+     */
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false, defaultValue = "") String q,
+                                                        @RequestParam(required = false) Integer limit) {
+        if (limit != null && limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        Iterator<ResidentSummaryDto> results = searchService.stream(q);
+        int max = limit == null ? Integer.MAX_VALUE : limit;
+        StreamingResponseBody body = output -> {
+            int written = 0;
+            while (written < max && results.hasNext()) {
+                output.write(lineWriter.writeValueAsBytes(results.next()));
+                output.write('\n');
+                if (++written % STREAM_FLUSH_EVERY == 0) {
+                    output.flush();
+                }
+            }
+            output.flush();
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    @GetMapping("/suggest")
+    public List<SuggestionDto> suggest(@RequestParam(required = false, defaultValue = "") String prefix,
+                                       @RequestParam(required = false) Integer limit) {
+        return suggestionService.suggest(prefix, limit);
     }
 }
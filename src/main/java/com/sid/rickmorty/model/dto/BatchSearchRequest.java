@@ -0,0 +1,14 @@
+package com.sid.rickmorty.model.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+/**
+ * Many free-text queries resolved in one call; {@code limit} applies to each query.
+ */
+public record BatchSearchRequest(
+        @NotEmpty(message = "at least one query is required") List<String> queries,
+        Integer limit
+) {
+}
@@ -0,0 +1,12 @@
+package com.sid.rickmorty.model.dto;
+
+import java.util.List;
+
+/**
+ * Results for one query of a batch, echoed back so callers can match them without relying on position alone.
+ */
+public record BatchSearchResultDto(
+        String query,
+        List<ResidentSummaryDto> results
+) {
+}
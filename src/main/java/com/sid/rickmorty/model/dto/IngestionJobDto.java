@@ -0,0 +1,41 @@
+package com.sid.rickmorty.model.dto;
+
+import java.time.Instant;
+
+/**
+ * Snapshot of one background refresh. Totals are null until the upstream has reported them; until every location
+ * page is in, {@code charactersTotal} is projected from the residents seen so far. {@code itemsPerSecond} counts
+ * locations and characters fetched, and {@code etaSeconds} is only set while the job runs and its totals are known.
+ * A scheduled or startup job that finds a refresh or rollback already holding the catalogue ends {@code SKIPPED}.
+ */
+public record IngestionJobDto(
+        String id,
+        Trigger trigger,
+        Status status,
+        boolean cancelRequested,
+        Instant submittedAt,
+        Instant startedAt,
+        Instant finishedAt,
+        int locationPagesDone,
+        Integer locationPagesTotal,
+        int locationsDone,
+        Integer locationsTotal,
+        int charactersFetched,
+        Integer charactersTotal,
+        int charactersWritten,
+        double itemsPerSecond,
+        Long etaSeconds,
+        RefreshReportDto report,
+        String error
+) {
+
+    public enum Trigger { MANUAL, SCHEDULED, STARTUP }
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, SKIPPED, FAILED, CANCELLED;
+
+        public boolean active() {
+            return this == QUEUED || this == RUNNING;
+        }
+    }
+}
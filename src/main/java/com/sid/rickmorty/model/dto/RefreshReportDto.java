@@ -0,0 +1,11 @@
+package com.sid.rickmorty.model.dto;
+
+/**
+ * Rows a finished refresh inserted, updated, deleted or left unchanged, per table. {@code skipped} is set (and every
+ * count zero) when the run found another refresh or rollback in progress and did nothing.
+ */
+public record RefreshReportDto(RowCounts locations, RowCounts characters, RowCounts residents, boolean skipped) {
+
+    public record RowCounts(int inserted, int updated, int deleted, int unchanged) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.sid.rickmorty.model.dto;
+
+import java.util.List;
+
+/**
+ * One page of ranked search results; {@code nextCursor} is null on the last page.
+ */
+public record SearchPageDto(
+        List<ResidentSummaryDto> items,
+        String nextCursor
+) {
+}
@@ -0,0 +1,11 @@
+package com.sid.rickmorty.model.dto;
+
+/**
+ * Type-ahead entry: the display text plus enough to navigate to the matching character or location.
+ */
+public record SuggestionDto(
+        String text,
+        String type,
+        int id
+) {
+}
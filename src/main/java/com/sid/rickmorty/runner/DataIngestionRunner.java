@@ -1,6 +1,7 @@
 package com.sid.rickmorty.runner;
 
-import com.sid.rickmorty.service.LocationService;
+import com.sid.rickmorty.model.dto.IngestionJobDto;
+import com.sid.rickmorty.service.IngestionJobService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
@@ -9,28 +10,36 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 /**
- * Simple scheduled ingester. Automatically refreshes so the demo always has data.
+ * Simple scheduled ingester. Automatically refreshes so the demo always has data. Refreshes run as background jobs,
+ * so startup does not wait for the seed.
  */
 @Component
 @ConditionalOnProperty(prefix = "rickmorty.ingestion", name = "enabled", havingValue = "true", matchIfMissing = true)
 public class DataIngestionRunner implements CommandLineRunner {
 
     private static final Logger log = LoggerFactory.getLogger(DataIngestionRunner.class);
-    private final LocationService locationService;
+    private final IngestionJobService jobService;
 
-    public DataIngestionRunner(LocationService locationService) {
-        this.locationService = locationService;
+    public DataIngestionRunner(IngestionJobService jobService) {
+        this.jobService = jobService;
     }
 
     @Override
     public void run(String... args) {
         log.info("Seeding location cache");
-        locationService.refreshFromSource();
+        submit(IngestionJobDto.Trigger.STARTUP);
     }
 
     @Scheduled(fixedDelayString = "${rickmorty.ingestion.refresh-interval:PT30M}", initialDelayString = "${rickmorty.ingestion.initial-delay:PT30S}")
     public void refresh() {
         log.info("Scheduled refresh triggered");
-        locationService.refreshFromSource();
+        submit(IngestionJobDto.Trigger.SCHEDULED);
+    }
+
+    private void submit(IngestionJobDto.Trigger trigger) {
+        IngestionJobService.JobRequest request = jobService.submit(trigger);
+        if (!request.accepted()) {
+            log.info("Refresh job {} is still {}; skipping", request.job().id(), request.job().status());
+        }
     }
 }
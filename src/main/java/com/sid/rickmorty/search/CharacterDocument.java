@@ -0,0 +1,63 @@
+package com.sid.rickmorty.search;
+
+import com.sid.rickmorty.model.dto.ResidentSummaryDto;
+import com.sid.rickmorty.store.CharacterColumns;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Read-optimized view of one character: lower-cased fields and the token set of its searchable corpus, computed once
+ * per ingestion instead of once per query. Values shared between characters (dictionary columns, tokens) are single
+ * instances, and the client-facing summary is materialized from the {@link CharacterColumns} row only for hits.
+ */
+public record CharacterDocument(
+        int id,
+        int ordinal,
+        String nameLower,
+        String speciesLower,
+        String statusLower,
+        String originLower,
+        Set<String> corpusTokens,
+        CharacterColumns columns
+) {
+
+    static CharacterDocument of(CharacterColumns columns, int ordinal, String speciesLower, String statusLower,
+                                String originLower, Map<String, String> tokenPool) {
+        String nameLower = safeLower(columns.name(ordinal));
+        String corpus = (nameLower + " " + speciesLower + " " + statusLower + " " + originLower).trim();
+        Set<String> tokens = new HashSet<>();
+        for (String token : tokenize(corpus)) {
+            tokens.add(tokenPool.computeIfAbsent(token, Function.identity()));
+        }
+        return new CharacterDocument(
+                columns.id(ordinal),
+                ordinal,
+                nameLower,
+                speciesLower,
+                statusLower,
+                originLower,
+                Set.copyOf(tokens),
+                columns);
+    }
+
+    public ResidentSummaryDto summary() {
+        return columns.summary(ordinal);
+    }
+
+    static Set<String> tokenize(String text) {
+        return Arrays.stream(text.split("[^a-z0-9]+"))
+                .map(String::trim)
+                .filter(token -> token.length() > 1)
+                .collect(Collectors.toSet());
+    }
+
+    static String safeLower(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.US);
+    }
+}
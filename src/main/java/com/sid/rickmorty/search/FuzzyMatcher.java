@@ -0,0 +1,120 @@
+package com.sid.rickmorty.search;
+
+/**
+ * Bounded Levenshtein engine for fuzzy name scoring. Only the diagonal band of width {@code 2k+1} is evaluated,
+ * the computation bails out as soon as a whole row exceeds {@code k}, and the two working rows are per-thread
+ * buffers, so scoring a candidate allocates nothing.
+ */
+public final class FuzzyMatcher {
+
+    private static final ThreadLocal<Rows> ROWS = ThreadLocal.withInitial(Rows::new);
+
+    private FuzzyMatcher() {
+    }
+
+    /**
+     * Similarity in {@code [0, 100]} defined as {@code (1 - distance / maxLen) * 100}, identical to the
+     * full-matrix implementation. A distance of {@code maxLen} already scores zero, so the search is bounded
+     * at {@code maxLen - 1} and anything beyond it is reported as the (exact) worst case.
+     */
+    public static double similarityScore(String a, String b) {
+        return similarityScore(a, b, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Same as {@link #similarityScore(String, String)} when the result is greater than {@code mustExceed}; otherwise
+     * returns some value no greater than it. The bound tightens the band to the distances that could still win.
+     */
+    public static double similarityScore(String a, String b, double mustExceed) {
+        if (a.isBlank() || b.isBlank()) {
+            return 0;
+        }
+        int maxLen = Math.max(a.length(), b.length());
+        int bound = maxLen - 1;
+        if (mustExceed >= 100) {
+            return 0;
+        }
+        if (mustExceed >= 0) {
+            // score > mustExceed  <=>  distance < maxLen * (1 - mustExceed / 100). The product can land just under an
+            // integer (8.999... for 9), so one spare edit is kept; distances within it are still scored exactly.
+            bound = Math.min(bound, (int) Math.floor(maxLen * (1 - mustExceed / 100.0)) + 1);
+        }
+        int distance = distance(a, b, bound);
+        if (distance > bound) {
+            return 0;
+        }
+        double similarity = 1.0 - ((double) distance / maxLen);
+        return Math.max(0, similarity) * 100;
+    }
+
+    /**
+     * Edit distance between {@code a} and {@code b}, or {@code maxDistance + 1} once it is known to exceed the bound.
+     */
+    public static int distance(CharSequence a, CharSequence b, int maxDistance) {
+        int n = a.length();
+        int m = b.length();
+        int over = maxDistance + 1;
+        if (maxDistance < 0 || Math.abs(n - m) > maxDistance) {
+            return over;
+        }
+        if (n == 0 || m == 0) {
+            return Math.max(n, m);
+        }
+
+        Rows rows = ROWS.get();
+        int[] prev = rows.prev(m + 1);
+        int[] curr = rows.curr(m + 1);
+        for (int j = 0; j <= m; j++) {
+            prev[j] = j <= maxDistance ? j : over;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - maxDistance);
+            int to = Math.min(m, i + maxDistance);
+            curr[0] = i <= maxDistance ? i : over;
+            int rowMin = from == 1 ? curr[0] : over;
+            if (from > 1) {
+                curr[from - 1] = over;
+            }
+            char ca = a.charAt(i - 1);
+            for (int j = from; j <= to; j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(prev[j] + 1, curr[j - 1] + 1), prev[j - 1] + cost);
+                value = Math.min(value, over);
+                curr[j] = value;
+                if (value < rowMin) {
+                    rowMin = value;
+                }
+            }
+            if (to < m) {
+                curr[to + 1] = over;
+            }
+            if (rowMin > maxDistance) {
+                return over;
+            }
+            int[] swap = prev;
+            prev = curr;
+            curr = swap;
+        }
+        return Math.min(prev[m], over);
+    }
+
+    private static final class Rows {
+        private int[] first = new int[32];
+        private int[] second = new int[32];
+
+        int[] prev(int size) {
+            if (first.length < size) {
+                first = new int[Math.max(size, first.length * 2)];
+            }
+            return first;
+        }
+
+        int[] curr(int size) {
+            if (second.length < size) {
+                second = new int[Math.max(size, second.length * 2)];
+            }
+            return second;
+        }
+    }
+}
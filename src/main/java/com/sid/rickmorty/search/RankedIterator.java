@@ -0,0 +1,76 @@
+package com.sid.rickmorty.search;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Yields scored candidates best-first by lazily heap-sorting two primitive arrays. Heapifying is {@code O(n)} and each
+ * element costs {@code O(log n)} only when it is actually consumed, so a streaming response can start writing
+ * immediately and a client that disconnects early never pays for a full sort.
+ */
+final class RankedIterator implements Iterator<CharacterDocument> {
+
+    private final SearchSnapshot snapshot;
+    private final double[] scores;
+    private final int[] ordinals;
+    private int size;
+
+    RankedIterator(SearchSnapshot snapshot, double[] scores, int[] ordinals, int size) {
+        this.snapshot = snapshot;
+        this.scores = scores;
+        this.ordinals = ordinals;
+        this.size = size;
+        for (int i = (size >>> 1) - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return size > 0;
+    }
+
+    @Override
+    public CharacterDocument next() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        int best = ordinals[0];
+        size--;
+        scores[0] = scores[size];
+        ordinals[0] = ordinals[size];
+        siftDown(0);
+        return snapshot.document(best);
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                return;
+            }
+            int right = left + 1;
+            int better = right < size && ranksBefore(right, left) ? right : left;
+            if (!ranksBefore(better, index)) {
+                return;
+            }
+            swap(index, better);
+            index = better;
+        }
+    }
+
+    // ordinals follow id order, so comparing them is the id tie-break
+    private boolean ranksBefore(int a, int b) {
+        int byScore = Double.compare(scores[b], scores[a]);
+        return byScore < 0 || (byScore == 0 && ordinals[a] < ordinals[b]);
+    }
+
+    private void swap(int a, int b) {
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+        int ordinal = ordinals[a];
+        ordinals[a] = ordinals[b];
+        ordinals[b] = ordinal;
+    }
+}
@@ -0,0 +1,10 @@
+package com.sid.rickmorty.search;
+
+/**
+ * How candidates are scored: on the request thread, or split across the common fork-join pool once the
+ * candidate set is large enough to pay for the coordination.
+ */
+public enum ScoringMode {
+    SEQUENTIAL,
+    PARALLEL
+}
@@ -0,0 +1,32 @@
+package com.sid.rickmorty.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in the stable result order (score descending, then id ascending), encoded as an opaque URL-safe token.
+ * A page starts strictly after the cursor's (score, id), so paging stays consistent even when scores tie.
+ */
+record SearchCursor(double score, int id) {
+
+    boolean precedes(double otherScore, int otherId) {
+        int byScore = Double.compare(otherScore, score);
+        return byScore < 0 || (byScore == 0 && otherId > id);
+    }
+
+    String encode() {
+        String raw = Long.toHexString(Double.doubleToLongBits(score)) + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static SearchCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            int separator = raw.indexOf(':');
+            double score = Double.longBitsToDouble(Long.parseUnsignedLong(raw.substring(0, separator), 16));
+            return new SearchCursor(score, Integer.parseInt(raw.substring(separator + 1)));
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("cursor is not valid");
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.sid.rickmorty.search;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable token-to-posting-list index over the searchable document fields (name, species, status, origin).
+ * Terms are kept sorted so a query term resolves to every indexed token it prefixes with two binary searches,
+ * which means lookups cost roughly the number of matching postings rather than the size of the catalogue.
+ * Query terms of three or more characters also match tokens that contain them mid-word ("anchez" finds "sanchez"),
+ * through a trigram index over the term dictionary. A {@link TrigramIndex} over the same documents supplies
+ * typo-tolerant candidates for fuzzy scoring.
+ */
+public final class SearchIndex {
+
+    private static final int[] NO_POSTINGS = new int[0];
+
+    private final String[] terms;
+    private final int[][] postings;
+    private final int[][] termsByGram;
+    private final TrigramIndex trigrams;
+    private final Stats stats;
+
+    private SearchIndex(int documents, String[] terms, int[][] postings, int[][] termsByGram, TrigramIndex trigrams,
+                        long buildNanos) {
+        this.terms = terms;
+        this.postings = postings;
+        this.termsByGram = termsByGram;
+        this.trigrams = trigrams;
+        this.stats = new Stats(documents, terms.length, countPostings(postings), buildNanos,
+                estimateBytes(terms, postings) + estimateBytes(termsByGram) + trigrams.estimatedBytes());
+    }
+
+    /**
+     * Indexes {@code documents}; ordinals are positions in the array, which callers keep in id order.
+     */
+    public static SearchIndex build(CharacterDocument[] documents) {
+        long started = System.nanoTime();
+        Map<String, PostingBuilder> builders = new HashMap<>();
+        for (int doc = 0; doc < documents.length; doc++) {
+            CharacterDocument document = documents[doc];
+            addTokens(builders, doc, document.nameLower());
+            addTokens(builders, doc, document.speciesLower());
+            addTokens(builders, doc, document.statusLower());
+            addTokens(builders, doc, document.originLower());
+        }
+
+        String[] terms = builders.keySet().toArray(String[]::new);
+        Arrays.sort(terms);
+        int[][] postings = new int[terms.length][];
+        for (int i = 0; i < terms.length; i++) {
+            postings[i] = builders.get(terms[i]).toArray();
+        }
+        TrigramIndex trigrams = TrigramIndex.build(documents);
+        return new SearchIndex(documents.length, terms, postings, indexTermGrams(terms), trigrams,
+                System.nanoTime() - started);
+    }
+
+    public static SearchIndex empty() {
+        return Empty.INSTANCE;
+    }
+
+    /**
+     * Returns the ordinals of every document holding a token that starts with one of the query terms, or contains one
+     * of three or more characters, sorted ascending (which is also id order) and free of duplicates.
+     */
+    public int[] candidates(String[] queryTerms) {
+        int[] collected = NO_POSTINGS;
+        int size = 0;
+        for (String queryTerm : queryTerms) {
+            for (String token : queryTerm.split("[^a-z0-9]+")) {
+                if (token.isEmpty()) {
+                    continue;
+                }
+                int from = lowerBound(token);
+                int to = lowerBound(token + Character.MAX_VALUE);
+                for (int t = from; t < to; t++) {
+                    collected = append(collected, size, postings[t]);
+                    size += postings[t].length;
+                }
+                // prefix matches were collected above, so only tokens holding the term past their first character
+                for (int t : containingTerms(token)) {
+                    if (t < from || t >= to) {
+                        collected = append(collected, size, postings[t]);
+                        size += postings[t].length;
+                    }
+                }
+            }
+        }
+        return distinctSorted(collected, size);
+    }
+
+    /**
+     * Ordinals (ascending) of names that are trigram-similar to the whole query, for misspellings the prefix lookup misses.
+     */
+    public int[] fuzzyCandidates(String normalizedQuery, double minSimilarity, int maxCandidates) {
+        return trigrams.candidates(normalizedQuery, minSimilarity, maxCandidates);
+    }
+
+    /**
+     * Merges two ascending, duplicate-free ordinal arrays.
+     */
+    public static int[] union(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        int[] merged = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                merged[size++] = a[i++];
+            } else if (a[i] > b[j]) {
+                merged[size++] = b[j++];
+            } else {
+                merged[size++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            merged[size++] = a[i++];
+        }
+        while (j < b.length) {
+            merged[size++] = b[j++];
+        }
+        return size == merged.length ? merged : Arrays.copyOf(merged, size);
+    }
+
+    public Stats stats() {
+        return stats;
+    }
+
+    /**
+     * Ordinals of the terms containing {@code token}. Every trigram of the token occurs in such a term, so the
+     * shortest of the token's trigram lists is a superset that only needs a substring check.
+     */
+    private int[] containingTerms(String token) {
+        int[] grams = TrigramIndex.innerGrams(token);
+        if (grams.length == 0) {
+            return NO_POSTINGS;
+        }
+        int[] shortest = termsByGram[grams[0]];
+        for (int gram : grams) {
+            if (termsByGram[gram].length < shortest.length) {
+                shortest = termsByGram[gram];
+            }
+        }
+        int[] matches = new int[shortest.length];
+        int size = 0;
+        for (int t : shortest) {
+            if (terms[t].contains(token)) {
+                matches[size++] = t;
+            }
+        }
+        return Arrays.copyOf(matches, size);
+    }
+
+    private static int[] append(int[] collected, int size, int[] list) {
+        if (size + list.length > collected.length) {
+            collected = Arrays.copyOf(collected, Math.max(size + list.length, collected.length * 2));
+        }
+        System.arraycopy(list, 0, collected, size, list.length);
+        return collected;
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = terms.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (terms[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void addTokens(Map<String, PostingBuilder> builders, int doc, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        for (String token : value.split("[^a-z0-9]+")) {
+            if (!token.isEmpty()) {
+                builders.computeIfAbsent(token, ignored -> new PostingBuilder()).add(doc);
+            }
+        }
+    }
+
+    // term ordinals per trigram of the term; terms are already [a-z0-9], so no normalization is needed
+    private static int[][] indexTermGrams(String[] terms) {
+        int[] sizes = new int[TrigramIndex.gramSpace()];
+        int[][] termGrams = new int[terms.length][];
+        for (int t = 0; t < terms.length; t++) {
+            termGrams[t] = TrigramIndex.innerGrams(terms[t]);
+            for (int gram : termGrams[t]) {
+                sizes[gram]++;
+            }
+        }
+        int[][] termsByGram = new int[sizes.length][];
+        for (int gram = 0; gram < sizes.length; gram++) {
+            termsByGram[gram] = sizes[gram] == 0 ? NO_POSTINGS : new int[sizes[gram]];
+        }
+        int[] fill = new int[sizes.length];
+        for (int t = 0; t < terms.length; t++) {
+            for (int gram : termGrams[t]) {
+                termsByGram[gram][fill[gram]++] = t;
+            }
+        }
+        return termsByGram;
+    }
+
+    private static int[] distinctSorted(int[] values, int size) {
+        if (size == 0) {
+            return NO_POSTINGS;
+        }
+        Arrays.sort(values, 0, size);
+        int unique = 1;
+        for (int i = 1; i < size; i++) {
+            if (values[i] != values[unique - 1]) {
+                values[unique++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, unique);
+    }
+
+    private static long countPostings(int[][] postings) {
+        long total = 0;
+        for (int[] list : postings) {
+            total += list.length;
+        }
+        return total;
+    }
+
+    // Rough retained-size estimate: compact Latin-1 strings plus int[] posting lists, including object headers
+    private static long estimateBytes(String[] terms, int[][] postings) {
+        long bytes = 16L + 4L * terms.length + 16L + 4L * postings.length;
+        for (String term : terms) {
+            bytes += 24 + 16 + term.length();
+        }
+        for (int[] list : postings) {
+            bytes += 16 + 4L * list.length;
+        }
+        return bytes;
+    }
+
+    private static long estimateBytes(int[][] lists) {
+        long bytes = 16L + 4L * lists.length;
+        for (int[] list : lists) {
+            if (list != NO_POSTINGS) {
+                bytes += 16 + 4L * list.length;
+            }
+        }
+        return bytes;
+    }
+
+    private static final class Empty {
+        private static final SearchIndex INSTANCE = build(new CharacterDocument[0]);
+    }
+
+    public record Stats(int documents, int terms, long postings, long buildNanos, long estimatedBytes) {
+    }
+
+    private static final class PostingBuilder {
+        private int[] docs = new int[4];
+        private int size;
+
+        void add(int doc) {
+            // documents are visited in ordinal order, so a repeated token on the same document is always the tail
+            if (size > 0 && docs[size - 1] == doc) {
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(docs, size);
+        }
+    }
+}
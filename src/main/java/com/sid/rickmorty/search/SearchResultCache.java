@@ -0,0 +1,84 @@
+package com.sid.rickmorty.search;
+
+import com.sid.rickmorty.model.dto.ResidentSummaryDto;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of ranked search results keyed by normalized query and limit. Every entry carries the catalogue
+ * version of the index it was computed from, and an entry whose version is not the current one is treated as a miss,
+ * so a refresh invalidates everything without having to walk the map.
+ */
+@Component
+public class SearchResultCache {
+
+    private final int maxEntries;
+    private final Map<String, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public SearchResultCache(@Value("${rickmorty.search.cache.max-entries:1024}") int maxEntries,
+                             MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                boolean evict = size() > SearchResultCache.this.maxEntries;
+                if (evict) {
+                    evictions.increment();
+                }
+                return evict;
+            }
+        };
+        FunctionCounter.builder("search.cache.hits", hits, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("search.cache.misses", misses, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("search.cache.evictions", evictions, LongAdder::sum).register(meterRegistry);
+        Gauge.builder("search.cache.size", this, SearchResultCache::size).register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached results for {@code key} at {@code version}, computing and storing them on a miss.
+     * The loader runs outside the lock; two concurrent misses for the same key simply both compute.
+     */
+    public List<ResidentSummaryDto> get(String key, long version, Supplier<List<ResidentSummaryDto>> loader) {
+        if (maxEntries <= 0) {
+            return loader.get();
+        }
+        Entry cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached != null && cached.version() == version) {
+            hits.increment();
+            return cached.results();
+        }
+        misses.increment();
+        List<ResidentSummaryDto> results = loader.get();
+        synchronized (entries) {
+            Entry current = entries.get(key);
+            if (current == null || current.version() <= version) {
+                entries.put(key, new Entry(version, results));
+            }
+        }
+        return results;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private record Entry(long version, List<ResidentSummaryDto> results) {
+    }
+}
@@ -1,68 +1,295 @@
 package com.sid.rickmorty.search;
 
+import com.sid.rickmorty.model.dto.BatchSearchResultDto;
 import com.sid.rickmorty.model.dto.ResidentSummaryDto;
-import com.sid.rickmorty.repository.CharacterRepository;
+import com.sid.rickmorty.model.dto.SearchPageDto;
+import com.sid.rickmorty.service.CatalogRefreshedEvent;
+import com.sid.rickmorty.service.CatalogVersion;
+import com.sid.rickmorty.store.CharacterStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
-import java.util.Comparator;
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Locale;
 import java.util.Set;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
 
 @Service
 public class SearchService {
 
-    private final CharacterRepository characterRepository;
+    private static final Logger log = LoggerFactory.getLogger(SearchService.class);
 
-    public SearchService(CharacterRepository characterRepository) {
-        this.characterRepository = characterRepository;
+    private final CharacterStore characterStore;
+    private final CatalogVersion catalogVersion;
+    private final SearchResultCache resultCache;
+    private final int defaultLimit;
+    private final int maxLimit;
+    private final ScoringMode scoringMode;
+    private final int parallelThreshold;
+    private final double trigramMinSimilarity;
+    private final int trigramMaxCandidates;
+    private final int batchMaxQueries;
+    private final AtomicReference<SearchSnapshot> snapshot = new AtomicReference<>();
+    private final Object firstBuildLock = new Object();
+
+    public SearchService(CharacterStore characterStore,
+                         CatalogVersion catalogVersion,
+                         SearchResultCache resultCache,
+                         MeterRegistry meterRegistry,
+                         @Value("${rickmorty.search.default-limit:20}") int defaultLimit,
+                         @Value("${rickmorty.search.max-limit:100}") int maxLimit,
+                         @Value("${rickmorty.search.scoring-mode:sequential}") ScoringMode scoringMode,
+                         @Value("${rickmorty.search.parallel-threshold:4096}") int parallelThreshold,
+                         @Value("${rickmorty.search.trigram.min-similarity:0.3}") double trigramMinSimilarity,
+                         @Value("${rickmorty.search.trigram.max-candidates:256}") int trigramMaxCandidates,
+                         @Value("${rickmorty.search.batch.max-queries:10000}") int batchMaxQueries) {
+        this.characterStore = characterStore;
+        this.catalogVersion = catalogVersion;
+        this.resultCache = resultCache;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+        this.scoringMode = scoringMode;
+        this.parallelThreshold = parallelThreshold;
+        this.trigramMinSimilarity = trigramMinSimilarity;
+        this.trigramMaxCandidates = trigramMaxCandidates;
+        this.batchMaxQueries = batchMaxQueries;
+        Gauge.builder("search.index.documents", this, service -> service.currentStats().documents())
+                .register(meterRegistry);
+        Gauge.builder("search.index.build.time", this, service -> service.currentStats().buildNanos() / 1_000_000.0)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("search.index.memory", this, service -> service.currentStats().estimatedBytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    // Delivered after the ingestion transaction commits, so the index never captures uncommitted rows
+    @EventListener
+    public void onCatalogRefreshed(CatalogRefreshedEvent event) {
+        rebuildSnapshot(event.version());
+    }
+
+    /**
+     * Builds a complete snapshot off to the side and publishes it with one reference swap. Readers never wait on this;
+     * a snapshot older than the one already published (a late lazy build racing a refresh) is discarded.
+     */
+    public SearchSnapshot rebuildSnapshot(long version) {
+        long started = System.nanoTime();
+        SearchSnapshot rebuilt = SearchSnapshot.build(characterStore.columns(), version);
+        SearchSnapshot published = snapshot.accumulateAndGet(rebuilt,
+                (current, candidate) -> current == null || candidate.version() >= current.version() ? candidate : current);
+        SearchIndex.Stats stats = rebuilt.index().stats();
+        log.info("Search snapshot v{} built: {} characters, {} terms, {} postings in {} ms (~{} KiB index){}",
+                version, stats.documents(), stats.terms(), stats.postings(), (System.nanoTime() - started) / 1_000_000,
+                stats.estimatedBytes() / 1024, published == rebuilt ? "" : "; superseded, not published");
+        return published;
     }
 
     public List<ResidentSummaryDto> search(String query) {
+        return search(query, null);
+    }
+
+    public List<ResidentSummaryDto> search(String query, Integer limit) {
         if (query == null || query.isBlank()) {
             return List.of();
         }
 
-        String normalized = query.toLowerCase(Locale.US).trim();
-        String[] queryTerms = normalized.split("\\s+");
-        Set<String> queryTokens = tokenize(normalized);
-
-        return StreamSupport.stream(characterRepository.findAll().spliterator(), false)
-                .map(character -> {
-                    double score = calculateRelevanceScore(character, normalized, queryTerms, queryTokens);
-                    return new SearchResult(character, score);
-                })
-                .filter(result -> result.score > 0)
-                .sorted(Comparator.comparingDouble((SearchResult r) -> r.score).reversed())
-                .limit(20)
-                .map(result -> new ResidentSummaryDto(
-                        result.character.id(),
-                        result.character.name(),
-                        result.character.status(),
-                        result.character.species(),
-                        result.character.image()))
-                .toList();
-    }
-
-    private double calculateRelevanceScore(
-            com.sid.rickmorty.model.entity.CharacterEntity character,
-            String normalizedQuery,
-            String[] queryTerms,
-            Set<String> queryTokens) {
-        
-        String nameLower = safeLower(character.name());
-        String speciesLower = safeLower(character.species());
-        String statusLower = safeLower(character.status());
-        String originLower = safeLower(character.origin());
-        String corpus = (nameLower + " " + speciesLower + " " + statusLower + " " + originLower).trim();
-
-        double lexical = lexicalScore(nameLower, speciesLower, statusLower, normalizedQuery, queryTerms);
-        double tokenOverlap = similarity(queryTokens, tokenize(corpus));
-        double fuzzy = fuzzyNameScore(nameLower, normalizedQuery);
+        ParsedQuery parsed = ParsedQuery.of(query);
+        int k = resolveLimit(limit);
+        SearchSnapshot current = currentSnapshot();
+        return resultCache.get(parsed.normalized() + '\u0000' + k, current.version(),
+                () -> rank(current, parsed, k, null).stream().map(hit -> hit.document().summary()).toList());
+    }
+
+    /**
+     * Resolves many queries against a single snapshot. Each distinct normalized query is parsed and ranked once, the
+     * distinct queries are ranked in parallel on the common fork-join pool, and results come back in request order.
+     */
+    public List<BatchSearchResultDto> searchBatch(List<String> queries, Integer limit) {
+        if (queries.size() > batchMaxQueries) {
+            throw new IllegalArgumentException("at most " + batchMaxQueries + " queries per batch");
+        }
+        int k = resolveLimit(limit);
+        SearchSnapshot current = currentSnapshot();
+
+        Map<String, Integer> slots = new HashMap<>();
+        List<ParsedQuery> distinct = new ArrayList<>();
+        int[] slotOfQuery = new int[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            String query = queries.get(i);
+            if (query == null || query.isBlank()) {
+                slotOfQuery[i] = -1;
+                continue;
+            }
+            ParsedQuery parsed = ParsedQuery.of(query);
+            slotOfQuery[i] = slots.computeIfAbsent(parsed.normalized(), ignored -> {
+                distinct.add(parsed);
+                return distinct.size() - 1;
+            });
+        }
+
+        List<List<ResidentSummaryDto>> resolved = resolveAll(current, distinct, k);
+        List<BatchSearchResultDto> response = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            response.add(new BatchSearchResultDto(queries.get(i),
+                    slotOfQuery[i] < 0 ? List.of() : resolved.get(slotOfQuery[i])));
+        }
+        return response;
+    }
+
+    // Bypasses the result cache on purpose: thousands of one-off enrichment queries would evict the hot dashboard entries
+    private List<List<ResidentSummaryDto>> resolveAll(SearchSnapshot current, List<ParsedQuery> distinct, int k) {
+        // each slot is set exactly once and the list is never resized, so parallel writers never share an element
+        List<List<ResidentSummaryDto>> resolved = new ArrayList<>(Collections.nCopies(distinct.size(), null));
+        IntStream.range(0, distinct.size()).parallel().forEach(slot -> resolved.set(slot,
+                rank(current, distinct.get(slot), k, null).stream().map(hit -> hit.document().summary()).toList()));
+        return resolved;
+    }
+
+    /**
+     * Cursor-paginated variant of {@link #search(String, Integer)}: returns the {@code limit} hits that follow
+     * {@code cursor} in (score desc, id asc) order, plus the cursor for the next page when there is one.
+     */
+    public SearchPageDto searchPage(String query, String cursor, Integer limit) {
+        if (query == null || query.isBlank()) {
+            return new SearchPageDto(List.of(), null);
+        }
+        ParsedQuery parsed = ParsedQuery.of(query);
+        int k = resolveLimit(limit);
+        SearchCursor after = cursor == null || cursor.isBlank() ? null : SearchCursor.decode(cursor);
+        // one extra hit tells us whether another page exists without a second pass
+        List<TopK.Hit> hits = rank(currentSnapshot(), parsed, k + 1, after);
+        List<TopK.Hit> page = hits.size() > k ? hits.subList(0, k) : hits;
+        String nextCursor = hits.size() > k
+                ? new SearchCursor(page.get(k - 1).score(), page.get(k - 1).document().id()).encode()
+                : null;
+        return new SearchPageDto(page.stream().map(hit -> hit.document().summary()).toList(), nextCursor);
+    }
+
+    /**
+     * Every hit for {@code query}, best first. Candidates are scored up front into primitive arrays and ordered lazily
+     * as the caller consumes them, so a streaming response starts immediately and holds no DTO list.
+     */
+    public Iterator<ResidentSummaryDto> stream(String query) {
+        if (query == null || query.isBlank()) {
+            return Collections.emptyIterator();
+        }
+        ParsedQuery parsed = ParsedQuery.of(query);
+        SearchSnapshot current = currentSnapshot();
+        int[] candidates = candidates(current, parsed);
+        double[] scores = new double[candidates.length];
+        int[] ordinals = new int[candidates.length];
+        int size = 0;
+        for (int ordinal : candidates) {
+            double score = calculateRelevanceScore(current.document(ordinal), parsed, Double.NEGATIVE_INFINITY);
+            if (score > 0) {
+                scores[size] = score;
+                ordinals[size++] = ordinal;
+            }
+        }
+        RankedIterator ranked = new RankedIterator(current, scores, ordinals, size);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return ranked.hasNext();
+            }
+
+            @Override
+            public ResidentSummaryDto next() {
+                return ranked.next().summary();
+            }
+        };
+    }
+
+    private List<TopK.Hit> rank(SearchSnapshot current, ParsedQuery parsed, int k, SearchCursor after) {
+        int[] candidates = candidates(current, parsed);
+        TopK top = scoringMode == ScoringMode.PARALLEL && candidates.length >= parallelThreshold
+                ? ForkJoinPool.commonPool().invoke(
+                        new ScoringTask(current, candidates, 0, candidates.length, parsed, k, after))
+                : scoreRange(current, candidates, 0, candidates.length, parsed, k, after);
+        return top.toSortedList();
+    }
+
+    private int[] candidates(SearchSnapshot current, ParsedQuery parsed) {
+        SearchIndex index = current.index();
+        return SearchIndex.union(
+                index.candidates(parsed.terms()),
+                index.fuzzyCandidates(parsed.normalized(), trigramMinSimilarity, trigramMaxCandidates));
+    }
+
+    private int resolveLimit(Integer limit) {
+        if (limit == null) {
+            return defaultLimit;
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        return Math.min(limit, maxLimit);
+    }
+
+    private TopK scoreRange(SearchSnapshot current, int[] candidates, int from, int to, ParsedQuery query, int k,
+                            SearchCursor after) {
+        TopK top = new TopK(k);
+        for (int i = from; i < to; i++) {
+            CharacterDocument document = current.document(candidates[i]);
+            double floor = top.floor();
+            double score = calculateRelevanceScore(document, query, floor);
+            if (score > 0 && score > floor && (after == null || after.precedes(score, document.id()))) {
+                top.offer(document, score);
+            }
+        }
+        return top;
+    }
+
+    // the lazy first build is serialized so a burst of first requests builds one snapshot, not one each
+    private SearchSnapshot currentSnapshot() {
+        SearchSnapshot current = snapshot.get();
+        if (current != null) {
+            return current;
+        }
+        synchronized (firstBuildLock) {
+            current = snapshot.get();
+            return current != null ? current : rebuildSnapshot(catalogVersion.current());
+        }
+    }
+
+    private SearchIndex.Stats currentStats() {
+        SearchSnapshot current = snapshot.get();
+        return current == null ? SearchIndex.empty().stats() : current.index().stats();
+    }
+
+    /**
+     * Blended relevance score. When {@code floor} is finite the fuzzy component is only computed as far as it can
+     * still lift the total above it; candidates that cannot get there return a score no greater than {@code floor}.
+     */
+    private double calculateRelevanceScore(CharacterDocument document, ParsedQuery query, double floor) {
+        String nameLower = document.nameLower();
+        double lexical = lexicalScore(nameLower, document.speciesLower(), document.statusLower(),
+                query.normalized(), query.terms());
+        double tokenOverlap = similarity(query.tokens(), document.corpusTokens());
+        double partial = lexical + (tokenOverlap * 40);
+        double fuzzyMustExceed = (floor - partial) / 30;
+        if (fuzzyMustExceed >= 100) {
+            return partial;
+        }
+        double fuzzy = FuzzyMatcher.similarityScore(nameLower, query.normalized(), fuzzyMustExceed);
 
         // Weighted blend to approximate semantic/fuzzy relevance without external embeddings
-        return lexical + (tokenOverlap * 40) + (fuzzy * 30);
+        return partial + (fuzzy * 30);
     }
 
     private double lexicalScore(String nameLower, String speciesLower, String statusLower,
@@ -95,59 +322,67 @@ public class SearchService {
         return score;
     }
 
-    private Set<String> tokenize(String text) {
-        return java.util.Arrays.stream(text.split("[^a-z0-9]+"))
-                .map(String::trim)
-                .filter(token -> token.length() > 1)
-                .collect(java.util.stream.Collectors.toSet());
-    }
-
     private double similarity(Set<String> a, Set<String> b) {
         if (a.isEmpty() || b.isEmpty()) {
             return 0;
         }
-        long intersection = a.stream().filter(b::contains).count();
+        long intersection = 0;
+        for (String token : a) {
+            if (b.contains(token)) {
+                intersection++;
+            }
+        }
         long union = a.size() + b.size() - intersection;
         return union == 0 ? 0 : (double) intersection / union;
     }
 
-    private double fuzzyNameScore(String nameLower, String normalizedQuery) {
-        if (nameLower.isBlank() || normalizedQuery.isBlank()) {
-            return 0;
+    private record ParsedQuery(String normalized, String[] terms, Set<String> tokens) {
+
+        static ParsedQuery of(String query) {
+            String normalized = query.toLowerCase(Locale.US).trim();
+            return new ParsedQuery(normalized, normalized.split("\\s+"), CharacterDocument.tokenize(normalized));
         }
-        int distance = levenshteinDistance(nameLower, normalizedQuery);
-        int maxLen = Math.max(nameLower.length(), normalizedQuery.length());
-        double similarity = maxLen == 0 ? 0 : 1.0 - ((double) distance / maxLen);
-        return Math.max(0, similarity) * 100;
     }
 
-    private String safeLower(String value) {
-        return value == null ? "" : value.toLowerCase(Locale.US);
-    }
+    /**
+     * Fork-join split of the candidate array; each leaf keeps its own top-K and the partial heaps are merged upwards.
+     */
+    private final class ScoringTask extends RecursiveTask<TopK> {
 
-    // Lightweight Levenshtein to keep fuzzy scoring dependency-free
-    private int levenshteinDistance(String a, String b) {
-        int[][] dp = new int[a.length() + 1][b.length() + 1];
-        for (int i = 0; i <= a.length(); i++) {
-            dp[i][0] = i;
-        }
-        for (int j = 0; j <= b.length(); j++) {
-            dp[0][j] = j;
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private static final int LEAF_SIZE = 1024;
+
+        // never serialized; the task only lives inside one fork-join run
+        private final transient SearchSnapshot current;
+        private final int[] candidates;
+        private final int from;
+        private final int to;
+        private final transient ParsedQuery query;
+        private final int k;
+        private final transient SearchCursor after;
+
+        ScoringTask(SearchSnapshot current, int[] candidates, int from, int to, ParsedQuery query, int k,
+                    SearchCursor after) {
+            this.current = current;
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+            this.query = query;
+            this.k = k;
+            this.after = after;
         }
-        for (int i = 1; i <= a.length(); i++) {
-            for (int j = 1; j <= b.length(); j++) {
-                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
-                dp[i][j] = Math.min(
-                        Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1),
-                        dp[i - 1][j - 1] + cost
-                );
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= LEAF_SIZE) {
+                return scoreRange(current, candidates, from, to, query, k, after);
             }
+            int mid = (from + to) >>> 1;
+            ScoringTask left = new ScoringTask(current, candidates, from, mid, query, k, after);
+            left.fork();
+            TopK right = new ScoringTask(current, candidates, mid, to, query, k, after).compute();
+            return left.join().merge(right);
         }
-        return dp[a.length()][b.length()];
     }
-
-    private record SearchResult(
-            com.sid.rickmorty.model.entity.CharacterEntity character,
-            double score
-    ) {}
 }
@@ -0,0 +1,70 @@
+package com.sid.rickmorty.search;
+
+import com.sid.rickmorty.store.CharacterColumns;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Everything a query needs, frozen at one catalogue version: precomputed {@link CharacterDocument}s in id order (so
+ * document ordinals are also {@link CharacterColumns} ordinals) and the indexes over their ordinals. Instances are
+ * never mutated after construction, so {@link SearchService} can publish a new one with a single reference swap while
+ * in-flight queries finish against the old one.
+ */
+public final class SearchSnapshot {
+
+    private final long version;
+    private final CharacterDocument[] documents;
+    private final SearchIndex index;
+
+    private SearchSnapshot(long version, CharacterDocument[] documents, SearchIndex index) {
+        this.version = version;
+        this.documents = documents;
+        this.index = index;
+    }
+
+    public static SearchSnapshot build(CharacterColumns columns, long version) {
+        // dictionary columns are lower-cased once per distinct value rather than once per character
+        String[] speciesLower = lowered(columns.species());
+        String[] statusLower = lowered(columns.status());
+        String[] originLower = lowered(columns.origin());
+        Map<String, String> tokenPool = new HashMap<>();
+        CharacterDocument[] documents = new CharacterDocument[columns.size()];
+        for (int ordinal = 0; ordinal < documents.length; ordinal++) {
+            documents[ordinal] = CharacterDocument.of(columns, ordinal,
+                    lookup(speciesLower, columns.species().code(ordinal)),
+                    lookup(statusLower, columns.status().code(ordinal)),
+                    lookup(originLower, columns.origin().code(ordinal)),
+                    tokenPool);
+        }
+        return new SearchSnapshot(version, documents, SearchIndex.build(documents));
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public SearchIndex index() {
+        return index;
+    }
+
+    public CharacterDocument document(int ordinal) {
+        return documents[ordinal];
+    }
+
+    public int size() {
+        return documents.length;
+    }
+
+    private static String[] lowered(CharacterColumns.DictionaryColumn column) {
+        String[] lowered = new String[column.cardinality()];
+        for (int code = 0; code < lowered.length; code++) {
+            lowered[code] = CharacterDocument.safeLower(column.valueOf(code));
+        }
+        return lowered;
+    }
+
+    private static String lookup(String[] lowered, int code) {
+        return code < 0 ? "" : lowered[code];
+    }
+}
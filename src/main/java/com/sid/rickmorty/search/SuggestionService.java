@@ -0,0 +1,73 @@
+package com.sid.rickmorty.search;
+
+import com.sid.rickmorty.model.dto.SuggestionDto;
+import com.sid.rickmorty.repository.LocationRepository;
+import com.sid.rickmorty.service.CatalogRefreshedEvent;
+import com.sid.rickmorty.store.CharacterColumns;
+import com.sid.rickmorty.store.CharacterStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Serves type-ahead over character and location names from a {@link SuggestionTrie} rebuilt after every ingestion.
+ */
+@Service
+public class SuggestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(SuggestionService.class);
+
+    private final CharacterStore characterStore;
+    private final LocationRepository locationRepository;
+    private final int perNode;
+    private volatile SuggestionTrie trie;
+
+    public SuggestionService(CharacterStore characterStore,
+                             LocationRepository locationRepository,
+                             @Value("${rickmorty.search.suggest.per-node:10}") int perNode) {
+        this.characterStore = characterStore;
+        this.locationRepository = locationRepository;
+        this.perNode = perNode;
+    }
+
+    @EventListener
+    public void onCatalogRefreshed(CatalogRefreshedEvent event) {
+        rebuild();
+    }
+
+    public List<SuggestionDto> suggest(String prefix, Integer limit) {
+        if (limit != null && limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        return currentTrie().suggest(prefix, limit == null ? perNode : Math.min(limit, perNode));
+    }
+
+    public synchronized SuggestionTrie rebuild() {
+        long started = System.nanoTime();
+        SuggestionTrie.Builder builder = SuggestionTrie.builder(perNode);
+        CharacterColumns characters = characterStore.columns();
+        for (int ordinal = 0; ordinal < characters.size(); ordinal++) {
+            builder.add(characters.name(ordinal), "character", characters.id(ordinal));
+        }
+        locationRepository.findAll().forEach(location -> builder.add(location.name(), "location", location.id()));
+        SuggestionTrie rebuilt = builder.build();
+        log.info("Suggestion trie rebuilt: {} suggestions, {} nodes in {} ms",
+                rebuilt.suggestionCount(), rebuilt.nodeCount(), (System.nanoTime() - started) / 1_000_000);
+        trie = rebuilt;
+        return rebuilt;
+    }
+
+    private SuggestionTrie currentTrie() {
+        SuggestionTrie current = trie;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            return trie != null ? trie : rebuild();
+        }
+    }
+}
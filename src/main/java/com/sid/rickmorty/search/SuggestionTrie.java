@@ -0,0 +1,239 @@
+package com.sid.rickmorty.search;
+
+import com.sid.rickmorty.model.dto.SuggestionDto;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable prefix trie for type-ahead. Every node stores its best {@code perNode} suggestions, so a lookup is a walk
+ * down the prefix followed by a copy of a precomputed list and never visits the subtree. After building, the trie is
+ * flattened into parallel primitive arrays (children contiguous and sorted by label) to keep it compact.
+ * Names are indexed from the start of every word, so "sanch" finds "Rick Sanchez".
+ */
+public final class SuggestionTrie {
+
+    private static final Comparator<Suggestion> RANKING = Comparator.comparingInt(Suggestion::weight).reversed()
+            .thenComparingInt(suggestion -> suggestion.text().length())
+            .thenComparing(Suggestion::text);
+
+    private final String[] texts;
+    private final String[] types;
+    private final int[] ids;
+
+    private final char[] labels;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final int[] topOffset;
+    private final int[] topCount;
+    private final int[] tops;
+
+    private SuggestionTrie(List<Suggestion> suggestions, char[] labels, int[] firstChild, int[] childCount,
+                           int[] topOffset, int[] topCount, int[] tops) {
+        this.texts = suggestions.stream().map(Suggestion::text).toArray(String[]::new);
+        this.types = suggestions.stream().map(Suggestion::type).toArray(String[]::new);
+        this.ids = suggestions.stream().mapToInt(Suggestion::id).toArray();
+        this.labels = labels;
+        this.firstChild = firstChild;
+        this.childCount = childCount;
+        this.topOffset = topOffset;
+        this.topCount = topCount;
+        this.tops = tops;
+    }
+
+    public static Builder builder(int perNode) {
+        return new Builder(perNode);
+    }
+
+    public List<SuggestionDto> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        int node = 0;
+        for (int i = 0; i < key.length() && node >= 0; i++) {
+            node = child(node, key.charAt(i));
+        }
+        if (node < 0) {
+            return List.of();
+        }
+        int count = Math.min(limit, topCount[node]);
+        List<SuggestionDto> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int ordinal = tops[topOffset[node] + i];
+            result.add(new SuggestionDto(texts[ordinal], types[ordinal], ids[ordinal]));
+        }
+        return result;
+    }
+
+    public int nodeCount() {
+        return labels.length;
+    }
+
+    public int suggestionCount() {
+        return texts.length;
+    }
+
+    private int child(int node, char label) {
+        int low = firstChild[node];
+        int high = low + childCount[node] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char candidate = labels[mid];
+            if (candidate < label) {
+                low = mid + 1;
+            } else if (candidate > label) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(value.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = Character.toLowerCase(value.charAt(i));
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                normalized.append(c);
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    private record Suggestion(String text, String type, int id, int weight) {
+    }
+
+    /**
+     * Collects entries, folding repeated (type, name) pairs into one suggestion whose weight is the number of
+     * occurrences and whose id is the lowest one seen.
+     */
+    public static final class Builder {
+
+        private final int perNode;
+        private final Map<String, int[]> merged = new HashMap<>();
+        private final Map<String, String> displayTexts = new HashMap<>();
+
+        private Builder(int perNode) {
+            this.perNode = perNode;
+        }
+
+        public Builder add(String text, String type, int id) {
+            String key = normalize(text);
+            if (key.isEmpty()) {
+                return this;
+            }
+            String mergeKey = type + '\u0000' + key;
+            int[] idAndWeight = merged.get(mergeKey);
+            if (idAndWeight == null) {
+                merged.put(mergeKey, new int[]{id, 1});
+                displayTexts.put(mergeKey, text.trim());
+            } else {
+                idAndWeight[0] = Math.min(idAndWeight[0], id);
+                idAndWeight[1]++;
+            }
+            return this;
+        }
+
+        public SuggestionTrie build() {
+            List<Suggestion> suggestions = new ArrayList<>(merged.size());
+            merged.forEach((mergeKey, idAndWeight) -> suggestions.add(new Suggestion(
+                    displayTexts.get(mergeKey), mergeKey.substring(0, mergeKey.indexOf('\u0000')),
+                    idAndWeight[0], idAndWeight[1])));
+            suggestions.sort(RANKING);
+
+            // suggestions are inserted best-first, so each node's list is simply the first perNode arrivals
+            MutableNode root = new MutableNode();
+            for (int ordinal = 0; ordinal < suggestions.size(); ordinal++) {
+                String key = normalize(suggestions.get(ordinal).text());
+                for (int start = 0; start < key.length(); start++) {
+                    if (start == 0 || key.charAt(start - 1) == ' ') {
+                        insert(root, key, start, ordinal);
+                    }
+                }
+            }
+            return flatten(root, suggestions);
+        }
+
+        private void insert(MutableNode root, String key, int start, int ordinal) {
+            MutableNode node = root;
+            for (int i = start; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), ignored -> new MutableNode());
+                node.offer(ordinal, perNode);
+            }
+        }
+
+        private SuggestionTrie flatten(MutableNode root, List<Suggestion> suggestions) {
+            List<MutableNode> order = new ArrayList<>();
+            List<Character> nodeLabels = new ArrayList<>();
+            ArrayDeque<MutableNode> queue = new ArrayDeque<>();
+            order.add(root);
+            nodeLabels.add('\0');
+            queue.add(root);
+            Map<MutableNode, Integer> firstChildIndex = new HashMap<>();
+            while (!queue.isEmpty()) {
+                MutableNode node = queue.poll();
+                firstChildIndex.put(node, order.size());
+                node.children.forEach((label, child) -> {
+                    order.add(child);
+                    nodeLabels.add(label);
+                    queue.add(child);
+                });
+            }
+
+            int size = order.size();
+            char[] labels = new char[size];
+            int[] firstChild = new int[size];
+            int[] childCount = new int[size];
+            int[] topOffset = new int[size];
+            int[] topCount = new int[size];
+            int totalTops = order.stream().mapToInt(node -> node.topSize).sum();
+            int[] tops = new int[totalTops];
+            int cursor = 0;
+            for (int i = 0; i < size; i++) {
+                MutableNode node = order.get(i);
+                labels[i] = nodeLabels.get(i);
+                firstChild[i] = firstChildIndex.get(node);
+                childCount[i] = node.children.size();
+                topOffset[i] = cursor;
+                topCount[i] = node.topSize;
+                System.arraycopy(node.top, 0, tops, cursor, node.topSize);
+                cursor += node.topSize;
+            }
+            return new SuggestionTrie(suggestions, labels, firstChild, childCount, topOffset, topCount, tops);
+        }
+    }
+
+    private static final class MutableNode {
+        private final TreeMap<Character, MutableNode> children = new TreeMap<>();
+        private int[] top = new int[0];
+        private int topSize;
+
+        void offer(int ordinal, int perNode) {
+            if (topSize >= perNode || (topSize > 0 && top[topSize - 1] == ordinal)) {
+                return;
+            }
+            if (topSize == top.length) {
+                top = Arrays.copyOf(top, Math.min(perNode, Math.max(2, topSize * 2)));
+            }
+            top[topSize++] = ordinal;
+        }
+    }
+}
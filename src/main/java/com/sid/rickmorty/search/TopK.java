@@ -0,0 +1,59 @@
+package com.sid.rickmorty.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Bounded min-heap that keeps the best {@code k} hits ordered by score (descending) then id (ascending),
+ * so ranking costs {@code O(n log k)} instead of a full sort of every scored candidate.
+ */
+final class TopK {
+
+    static final Comparator<Hit> BEST_FIRST = Comparator.comparingDouble(Hit::score).reversed()
+            .thenComparing(hit -> hit.document().id());
+
+    private final int k;
+    private final PriorityQueue<Hit> heap;
+
+    TopK(int k) {
+        this.k = k;
+        this.heap = new PriorityQueue<>(Math.min(k, 1024) + 1, BEST_FIRST.reversed());
+    }
+
+    /**
+     * Score a new hit has to beat to get in. Callers visit candidates in ascending id order, so a tie with the
+     * current worst hit always loses and this can be used as a strict lower bound for pruning.
+     */
+    double floor() {
+        return heap.size() < k ? Double.NEGATIVE_INFINITY : heap.peek().score();
+    }
+
+    void offer(CharacterDocument document, double score) {
+        offer(new Hit(document, score));
+    }
+
+    void offer(Hit hit) {
+        if (heap.size() < k) {
+            heap.add(hit);
+        } else if (BEST_FIRST.compare(hit, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(hit);
+        }
+    }
+
+    TopK merge(TopK other) {
+        other.heap.forEach(this::offer);
+        return this;
+    }
+
+    List<Hit> toSortedList() {
+        List<Hit> hits = new ArrayList<>(heap);
+        hits.sort(BEST_FIRST);
+        return hits;
+    }
+
+    record Hit(CharacterDocument document, double score) {
+    }
+}
@@ -0,0 +1,175 @@
+package com.sid.rickmorty.search;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Character-trigram index over normalized names, used to find typo-tolerant candidates ("rik sanchz") without
+ * running the edit-distance matcher against the whole catalogue. Names are reduced to {@code [a-z0-9 ]}, padded with
+ * a space on each side, and every trigram is packed into an int so postings are a direct array lookup.
+ */
+final class TrigramIndex {
+
+    private static final int ALPHABET = 37;
+    private static final int GRAM_SPACE = ALPHABET * ALPHABET * ALPHABET;
+    private static final int[] NO_POSTINGS = new int[0];
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final int[][] postings;
+    private final int[] gramCounts;
+
+    private TrigramIndex(int[][] postings, int[] gramCounts) {
+        this.postings = postings;
+        this.gramCounts = gramCounts;
+    }
+
+    static TrigramIndex build(CharacterDocument[] documents) {
+        int[] sizes = new int[GRAM_SPACE];
+        int[] gramCounts = new int[documents.length];
+        int[][] docGrams = new int[documents.length][];
+        for (int doc = 0; doc < documents.length; doc++) {
+            int[] grams = distinctGrams(documents[doc].nameLower());
+            docGrams[doc] = grams;
+            gramCounts[doc] = grams.length;
+            for (int gram : grams) {
+                sizes[gram]++;
+            }
+        }
+        int[][] postings = new int[GRAM_SPACE][];
+        for (int gram = 0; gram < GRAM_SPACE; gram++) {
+            postings[gram] = sizes[gram] == 0 ? NO_POSTINGS : new int[sizes[gram]];
+        }
+        int[] fill = new int[GRAM_SPACE];
+        for (int doc = 0; doc < documents.length; doc++) {
+            for (int gram : docGrams[doc]) {
+                postings[gram][fill[gram]++] = doc;
+            }
+        }
+        return new TrigramIndex(postings, gramCounts);
+    }
+
+    /**
+     * Ordinals (ascending) of at most {@code maxCandidates} names whose Dice coefficient over trigrams with the
+     * query is at least {@code minSimilarity}; when more qualify, the most similar ones are kept.
+     */
+    int[] candidates(String query, double minSimilarity, int maxCandidates) {
+        int[] queryGrams = distinctGrams(query);
+        if (queryGrams.length == 0 || maxCandidates <= 0) {
+            return NO_POSTINGS;
+        }
+        Scratch scratch = SCRATCH.get();
+        int[] overlap = scratch.overlap(gramCounts.length);
+        int touchedCount = 0;
+        int[] touched = scratch.touched;
+        for (int gram : queryGrams) {
+            for (int doc : postings[gram]) {
+                if (overlap[doc]++ == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = scratch.touched = Arrays.copyOf(touched, touched.length * 2);
+                    }
+                    touched[touchedCount++] = doc;
+                }
+            }
+        }
+
+        // pack (similarity, ordinal) into longs so a single primitive sort ranks them without boxing
+        long[] ranked = new long[touchedCount];
+        int qualified = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int doc = touched[i];
+            double dice = 2.0 * overlap[doc] / (queryGrams.length + gramCounts[doc]);
+            overlap[doc] = 0;
+            if (dice >= minSimilarity) {
+                long key = (long) ((1.0 - dice) * Integer.MAX_VALUE);
+                ranked[qualified++] = (key << 32) | doc;
+            }
+        }
+        Arrays.sort(ranked, 0, qualified);
+        int kept = Math.min(qualified, maxCandidates);
+        int[] result = new int[kept];
+        for (int i = 0; i < kept; i++) {
+            result[i] = (int) ranked[i];
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    long estimatedBytes() {
+        long bytes = 16L + 4L * postings.length + 16L + 4L * gramCounts.length;
+        for (int[] list : postings) {
+            if (list != NO_POSTINGS) {
+                bytes += 16 + 4L * list.length;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Distinct trigrams of a {@code [a-z0-9]} token without the word-boundary padding names get, so every one of them
+     * also occurs in any longer token containing it. Empty for tokens shorter than three characters.
+     */
+    static int[] innerGrams(String token) {
+        return grams(token);
+    }
+
+    /**
+     * Number of distinct packed trigram values, i.e. the exclusive upper bound of {@link #innerGrams}.
+     */
+    static int gramSpace() {
+        return GRAM_SPACE;
+    }
+
+    private static int[] distinctGrams(String value) {
+        return grams(normalize(value));
+    }
+
+    private static int[] grams(String text) {
+        if (text.length() < 3) {
+            return NO_POSTINGS;
+        }
+        int[] grams = new int[text.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = (code(text.charAt(i)) * ALPHABET + code(text.charAt(i + 1))) * ALPHABET
+                    + code(text.charAt(i + 2));
+        }
+        Arrays.sort(grams);
+        int unique = 1;
+        for (int i = 1; i < grams.length; i++) {
+            if (grams[i] != grams[unique - 1]) {
+                grams[unique++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, unique);
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String collapsed = String.join(" ", value.toLowerCase(Locale.US).split("[^a-z0-9]+")).trim();
+        return collapsed.isEmpty() ? "" : " " + collapsed + " ";
+    }
+
+    private static int code(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 1;
+        }
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 27;
+        }
+        return 0;
+    }
+
+    private static final class Scratch {
+        private int[] overlap = new int[0];
+        private int[] touched = new int[64];
+
+        // counters are zeroed again as they are read, so the array can be reused across queries as-is
+        int[] overlap(int size) {
+            if (overlap.length < size) {
+                overlap = new int[size];
+            }
+            return overlap;
+        }
+    }
+}
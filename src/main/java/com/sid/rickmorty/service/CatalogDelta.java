@@ -0,0 +1,201 @@
+package com.sid.rickmorty.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Content fingerprints of the locations and characters already stored, and the stored resident links, loaded once
+ * at the start of an ingestion run. Upstream rows are classified against it, so a run writes only new or changed rows
+ * and only the links that were added or removed. It tallies the outcome for the {@link RefreshReport}.
+ * <p>
+ * Fingerprints live in {@code content_hashes}. Rows stored before that table existed are fingerprinted from their
+ * current content on load, so the first run after an upgrade does not rewrite them; those fingerprints are stored by
+ * {@link #writeBackfill(JdbcTemplate)}, which lets the load itself run on a read-only connection. Once every upstream
+ * row has been classified, the counts reflect what the tables should hold after the run's writes.
+ */
+final class CatalogDelta {
+
+    static final String LOCATION = "location";
+    static final String CHARACTER = "character";
+
+    enum Change { INSERTED, UPDATED, UNCHANGED }
+
+    record ResidentDiff(List<Integer> added, List<Integer> removed) {
+
+        boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    private final Map<Integer, Long> locationHashes;
+    private final Map<Integer, Long> characterHashes;
+    private final Map<Integer, Set<Integer>> residents;
+    private final List<Object[]> backfill;
+    private final Set<Integer> changedCharacters = new HashSet<>();
+    private final int[] locationCounts = new int[3];
+    private final int[] characterCounts = new int[3];
+    private int linksInserted;
+    private int linksDeleted;
+    private int linksUnchanged;
+
+    private CatalogDelta(Map<Integer, Long> locationHashes, Map<Integer, Long> characterHashes,
+                         Map<Integer, Set<Integer>> residents, List<Object[]> backfill) {
+        this.locationHashes = locationHashes;
+        this.characterHashes = characterHashes;
+        this.residents = residents;
+        this.backfill = backfill;
+    }
+
+    /**
+     * Loads the whole stored catalogue without writing anything.
+     */
+    static CatalogDelta load(JdbcTemplate jdbcTemplate) {
+        List<Object[]> backfill = new ArrayList<>();
+
+        Map<Integer, Long> locationHashes = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT l.id, l.name, l.type, l.dimension, h.hash
+                FROM locations l
+                LEFT JOIN content_hashes h ON h.kind = 'location' AND h.id = l.id""",
+                (RowCallbackHandler) rs -> {
+                    int id = rs.getInt(1);
+                    long hash = rs.getLong(5);
+                    if (rs.wasNull()) {
+                        hash = locationHash(rs.getString(2), rs.getString(3), rs.getString(4));
+                        backfill.add(new Object[]{LOCATION, id, hash});
+                    }
+                    locationHashes.put(id, hash);
+                });
+
+        Map<Integer, Long> characterHashes = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT c.id, c.name, c.status, c.species, c.gender, c.origin, c.location, c.image, h.hash
+                FROM characters c
+                LEFT JOIN content_hashes h ON h.kind = 'character' AND h.id = c.id""",
+                (RowCallbackHandler) rs -> {
+                    int id = rs.getInt(1);
+                    long hash = rs.getLong(9);
+                    if (rs.wasNull()) {
+                        hash = characterHash(rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5),
+                                rs.getString(6), rs.getString(7), rs.getString(8));
+                        backfill.add(new Object[]{CHARACTER, id, hash});
+                    }
+                    characterHashes.put(id, hash);
+                });
+
+        Map<Integer, Set<Integer>> residents = new HashMap<>();
+        jdbcTemplate.query("SELECT location_id, character_id FROM location_residents",
+                (RowCallbackHandler) rs -> residents.computeIfAbsent(rs.getInt(1), id -> new HashSet<>())
+                        .add(rs.getInt(2)));
+
+        return new CatalogDelta(locationHashes, characterHashes, residents, backfill);
+    }
+
+    /**
+     * Stores the fingerprints computed on load for rows that had none. Must run in a write transaction.
+     */
+    void writeBackfill(JdbcTemplate jdbcTemplate) {
+        if (!backfill.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT OR REPLACE INTO content_hashes(kind, id, hash) VALUES(?, ?, ?)", backfill);
+        }
+    }
+
+    boolean needsBackfill() {
+        return !backfill.isEmpty();
+    }
+
+    static long locationHash(Object name, Object type, Object dimension) {
+        return fingerprint(name, type, dimension);
+    }
+
+    static long characterHash(Object name, Object status, Object species, Object gender, Object origin,
+                              Object location, Object image) {
+        return fingerprint(name, status, species, gender, origin, location, image);
+    }
+
+    Change location(int id, long hash) {
+        Change change = classify(locationHashes.put(id, hash), hash);
+        locationCounts[change.ordinal()]++;
+        return change;
+    }
+
+    Change character(int id, long hash) {
+        Change change = classify(characterHashes.put(id, hash), hash);
+        characterCounts[change.ordinal()]++;
+        if (change != Change.UNCHANGED) {
+            changedCharacters.add(id);
+        }
+        return change;
+    }
+
+    /**
+     * Compares a location's upstream residents with the stored links, and records the upstream set as stored.
+     */
+    ResidentDiff residents(int locationId, Set<Integer> upstream) {
+        Set<Integer> stored = residents.getOrDefault(locationId, Collections.emptySet());
+        List<Integer> added = upstream.stream().filter(id -> !stored.contains(id)).toList();
+        List<Integer> removed = stored.stream().filter(id -> !upstream.contains(id)).sorted().toList();
+        residents.put(locationId, upstream);
+        linksInserted += added.size();
+        linksDeleted += removed.size();
+        linksUnchanged += upstream.size() - added.size();
+        return new ResidentDiff(added, removed);
+    }
+
+    int locationCount() {
+        return locationHashes.size();
+    }
+
+    int characterCount() {
+        return characterHashes.size();
+    }
+
+    // stored links once this run's changes are applied; locations the run did not see keep theirs
+    int residentCount() {
+        return residents.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * Characters inserted or updated so far.
+     */
+    Set<Integer> changedCharacters() {
+        return Set.copyOf(changedCharacters);
+    }
+
+    RefreshReport report() {
+        return new RefreshReport(
+                new RefreshReport.RowCounts(locationCounts[0], locationCounts[1], 0, locationCounts[2]),
+                new RefreshReport.RowCounts(characterCounts[0], characterCounts[1], 0, characterCounts[2]),
+                new RefreshReport.RowCounts(linksInserted, 0, linksDeleted, linksUnchanged));
+    }
+
+    private static Change classify(Long stored, long hash) {
+        if (stored == null) {
+            return Change.INSERTED;
+        }
+        return stored == hash ? Change.UNCHANGED : Change.UPDATED;
+    }
+
+    // 64-bit FNV-1a over each field's length (-1 for null) and characters, so ("ab", "c") and ("a", "bc") differ
+    private static long fingerprint(Object... fields) {
+        long hash = 0xcbf29ce484222325L;
+        for (Object field : fields) {
+            String value = field == null ? null : field.toString();
+            hash = (hash ^ (value == null ? -1 : value.length())) * 0x100000001b3L;
+            if (value != null) {
+                for (int i = 0; i < value.length(); i++) {
+                    hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+                }
+            }
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,12 @@
+package com.sid.rickmorty.service;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Published once an ingestion run has committed so in-memory read models can rebuild from the fresh data.
+ * {@code version} is the {@link CatalogVersion} the committed data corresponds to, and {@code characterIds} are the
+ * characters the run inserted or updated (unchanged rows are not written), for caches that invalidate per entry.
+ */
+public record CatalogRefreshedEvent(long version, Instant refreshedAt, Set<Integer> characterIds) {
+}
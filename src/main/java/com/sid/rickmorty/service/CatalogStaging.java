@@ -0,0 +1,218 @@
+package com.sid.rickmorty.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Blue/green generations of the catalogue tables ({@code locations}, {@code characters}, {@code location_residents}
+ * and {@code content_hashes}). A refresh copies the live tables to {@code *_next}, applies its changes there and
+ * validates the result. {@link #publish()} then renames live to {@code *_prev} and next to live in one transaction,
+ * so readers see either the whole old generation or the whole new one. The previous generation is kept until the
+ * next publish, which makes {@link #rollback()} another rename.
+ */
+@Component
+public class CatalogStaging {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogStaging.class);
+
+    static final Tables LIVE = new Tables("");
+    static final Tables NEXT = new Tables("_next");
+    static final Tables PREVIOUS = new Tables("_prev");
+    private static final Tables SWAP = new Tables("_swap");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactions;
+
+    public CatalogStaging(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactions = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * A stage that creates the {@code *_next} copy the first time a writer asks for its tables, so a run with nothing
+     * to change never copies anything. Must be used inside the caller's write transaction.
+     */
+    Stage stage() {
+        return new Stage();
+    }
+
+    /**
+     * Checks the staged tables against the row counts the run expects, failing the run (and so rolling the staged
+     * copy back) on any mismatch.
+     */
+    void validate(int locations, int characters, int residents) {
+        int stagedLocations = count(NEXT.locations());
+        int stagedCharacters = count(NEXT.characters());
+        int stagedResidents = count(NEXT.residents());
+        int stagedHashes = count(NEXT.hashes());
+        if (stagedLocations != locations || stagedCharacters != characters || stagedResidents != residents
+                || stagedHashes != locations + characters) {
+            throw new IllegalStateException(("Staged catalogue failed validation: expected %d locations, %d characters, "
+                    + "%d resident links, %d hashes; found %d, %d, %d, %d").formatted(locations, characters, residents,
+                    locations + characters, stagedLocations, stagedCharacters, stagedResidents, stagedHashes));
+        }
+    }
+
+    /**
+     * Swaps the validated {@code *_next} tables in and keeps the replaced ones as {@code *_prev}.
+     */
+    void publish() {
+        transactions.executeWithoutResult(status -> {
+            PREVIOUS.all().forEach(table -> jdbcTemplate.execute("DROP TABLE IF EXISTS " + table));
+            rename(LIVE, PREVIOUS);
+            rename(NEXT, LIVE);
+        });
+        log.info("Published staged catalogue; previous generation kept for rollback");
+    }
+
+    /**
+     * Swaps the previous generation back in, keeping the current one as the new previous, and returns the ids of
+     * the characters whose content differs between the two. Empty when there is no previous generation.
+     */
+    Optional<Set<Integer>> rollback() {
+        return transactions.execute(status -> {
+            if (!exists(PREVIOUS)) {
+                return Optional.<Set<Integer>>empty();
+            }
+            Set<Integer> changed = new HashSet<>();
+            String differing = """
+                    SELECT a.id FROM %s a
+                    WHERE a.kind = 'character'
+                      AND NOT EXISTS (SELECT 1 FROM %s b WHERE b.kind = a.kind AND b.id = a.id AND b.hash = a.hash)
+                    """;
+            changed.addAll(jdbcTemplate.queryForList(differing.formatted(LIVE.hashes(), PREVIOUS.hashes()), Integer.class));
+            changed.addAll(jdbcTemplate.queryForList(differing.formatted(PREVIOUS.hashes(), LIVE.hashes()), Integer.class));
+            rename(LIVE, SWAP);
+            rename(PREVIOUS, LIVE);
+            rename(SWAP, PREVIOUS);
+            log.info("Rolled catalogue back to the previous generation ({} characters differ)", changed.size());
+            return Optional.of(Set.copyOf(changed));
+        });
+    }
+
+    // Mirrors schema.sql; the resident uniqueness is an inline constraint so its index follows the table on rename
+    private void create(Tables tables) {
+        jdbcTemplate.execute("""
+                CREATE TABLE %s (
+                    id INTEGER PRIMARY KEY,
+                    name TEXT NOT NULL,
+                    type TEXT,
+                    dimension TEXT
+                )""".formatted(tables.locations()));
+        jdbcTemplate.execute("""
+                CREATE TABLE %s (
+                    id INTEGER PRIMARY KEY,
+                    name TEXT NOT NULL,
+                    status TEXT,
+                    species TEXT,
+                    gender TEXT,
+                    origin TEXT,
+                    location TEXT,
+                    image TEXT
+                )""".formatted(tables.characters()));
+        jdbcTemplate.execute("""
+                CREATE TABLE %s (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    location_id INTEGER NOT NULL,
+                    character_id INTEGER NOT NULL,
+                    UNIQUE (location_id, character_id)
+                )""".formatted(tables.residents()));
+        jdbcTemplate.execute("""
+                CREATE TABLE %s (
+                    kind TEXT NOT NULL,
+                    id INTEGER NOT NULL,
+                    hash INTEGER NOT NULL,
+                    PRIMARY KEY (kind, id)
+                ) WITHOUT ROWID""".formatted(tables.hashes()));
+    }
+
+    private void copy(Tables from, Tables to) {
+        String[][] columns = {
+                {from.locations(), to.locations(), "id, name, type, dimension"},
+                {from.characters(), to.characters(), "id, name, status, species, gender, origin, location, image"},
+                {from.residents(), to.residents(), "id, location_id, character_id"},
+                {from.hashes(), to.hashes(), "kind, id, hash"}};
+        for (String[] table : columns) {
+            jdbcTemplate.update("INSERT INTO %s(%s) SELECT %s FROM %s".formatted(table[1], table[2], table[2], table[0]));
+        }
+    }
+
+    private void rename(Tables from, Tables to) {
+        List<String> source = from.all();
+        List<String> target = to.all();
+        for (int i = 0; i < source.size(); i++) {
+            jdbcTemplate.execute("ALTER TABLE " + source.get(i) + " RENAME TO " + target.get(i));
+        }
+    }
+
+    private boolean exists(Tables tables) {
+        Integer found = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name IN (?, ?, ?, ?)", Integer.class,
+                tables.all().toArray());
+        return found != null && found == tables.all().size();
+    }
+
+    private int count(String table) {
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+        return rows == null ? 0 : rows;
+    }
+
+    /**
+     * Names of one generation's tables.
+     */
+    record Tables(String suffix) {
+
+        String locations() {
+            return "locations" + suffix;
+        }
+
+        String characters() {
+            return "characters" + suffix;
+        }
+
+        String residents() {
+            return "location_residents" + suffix;
+        }
+
+        String hashes() {
+            return "content_hashes" + suffix;
+        }
+
+        List<String> all() {
+            return List.of(locations(), characters(), residents(), hashes());
+        }
+    }
+
+    final class Stage {
+
+        private boolean staged;
+
+        private Stage() {
+        }
+
+        Tables tables() {
+            if (!staged) {
+                long started = System.nanoTime();
+                NEXT.all().forEach(table -> jdbcTemplate.execute("DROP TABLE IF EXISTS " + table));
+                create(NEXT);
+                copy(LIVE, NEXT);
+                staged = true;
+                log.info("Staged a copy of the live catalogue in {} ms", (System.nanoTime() - started) / 1_000_000);
+            }
+            return NEXT;
+        }
+
+        boolean staged() {
+            return staged;
+        }
+    }
+}
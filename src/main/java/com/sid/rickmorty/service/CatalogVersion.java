@@ -0,0 +1,31 @@
+package com.sid.rickmorty.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Monotonic data version of the ingested catalogue. Seeded from the boot clock so versions from different runs do not
+ * collide, and advanced by {@link LocationService} each time a refresh commits; caches tag entries with it.
+ */
+@Component
+public class CatalogVersion {
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * Moves to the next version, handing it to {@code prepare} first so whatever must be in place for that version is
+     * published before any reader can observe it.
+     */
+    synchronized long advance(LongConsumer prepare) {
+        long next = version.get() + 1;
+        prepare.accept(next);
+        version.set(next);
+        return next;
+    }
+}
@@ -0,0 +1,129 @@
+package com.sid.rickmorty.service;
+
+import com.sid.rickmorty.model.dto.CharacterDetailDto;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU read-through cache of {@link CharacterDetailDto} by character id. Concurrent misses for one id share a
+ * single in-flight load. Invalidating an id also detaches any load already running for it, so a read that raced a
+ * write can never store pre-write data. Only existing characters are cached; unknown ids go to the loader each time.
+ */
+@Component
+public class CharacterDetailCache {
+
+    private final int maxEntries;
+    private final Map<Integer, CharacterDetailDto> entries;
+    private final ConcurrentHashMap<Integer, CompletableFuture<Optional<CharacterDetailDto>>> loading = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public CharacterDetailCache(@Value("${rickmorty.characters.cache.max-entries:10000}") int maxEntries,
+                                MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CharacterDetailDto> eldest) {
+                boolean evict = size() > CharacterDetailCache.this.maxEntries;
+                if (evict) {
+                    evictions.increment();
+                }
+                return evict;
+            }
+        };
+        FunctionCounter.builder("characters.cache.hits", hits, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("characters.cache.misses", misses, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("characters.cache.coalesced", coalesced, LongAdder::sum)
+                .description("Misses that waited for a load already in flight instead of querying")
+                .register(meterRegistry);
+        FunctionCounter.builder("characters.cache.evictions", evictions, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("characters.cache.invalidations", invalidations, LongAdder::sum).register(meterRegistry);
+        Gauge.builder("characters.cache.size", this, CharacterDetailCache::size).register(meterRegistry);
+    }
+
+    /**
+     * Drops the ids a committed refresh wrote.
+     */
+    @EventListener
+    public void onCatalogRefreshed(CatalogRefreshedEvent event) {
+        event.characterIds().forEach(this::invalidate);
+    }
+
+    public Optional<CharacterDetailDto> get(int id, Supplier<Optional<CharacterDetailDto>> loader) {
+        if (maxEntries <= 0) {
+            return loader.get();
+        }
+        CharacterDetailDto cached;
+        synchronized (entries) {
+            cached = entries.get(id);
+        }
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+        misses.increment();
+
+        CompletableFuture<Optional<CharacterDetailDto>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<CharacterDetailDto>> inFlight = loading.putIfAbsent(id, mine);
+        if (inFlight != null) {
+            coalesced.increment();
+            return await(inFlight);
+        }
+        try {
+            Optional<CharacterDetailDto> loaded = loader.get();
+            synchronized (entries) {
+                // still registered means no invalidation happened while loading
+                if (loading.remove(id, mine) && loaded.isPresent()) {
+                    entries.put(id, loaded.get());
+                }
+            }
+            mine.complete(loaded);
+            return loaded;
+        } catch (RuntimeException | Error e) {
+            loading.remove(id, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public void invalidate(int id) {
+        synchronized (entries) {
+            entries.remove(id);
+            loading.remove(id);
+        }
+        invalidations.increment();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static Optional<CharacterDetailDto> await(CompletableFuture<Optional<CharacterDetailDto>> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
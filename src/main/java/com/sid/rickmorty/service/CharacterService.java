@@ -8,6 +8,8 @@ import com.sid.rickmorty.repository.CharacterNoteRepository;
 import com.sid.rickmorty.repository.CharacterRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
 import java.util.Optional;
@@ -17,13 +19,30 @@ public class CharacterService {
 
     private final CharacterRepository characterRepository;
     private final CharacterNoteRepository noteRepository;
+    private final CharacterDetailCache detailCache;
 
-    public CharacterService(CharacterRepository characterRepository, CharacterNoteRepository noteRepository) {
+    public CharacterService(CharacterRepository characterRepository,
+                            CharacterNoteRepository noteRepository,
+                            CharacterDetailCache detailCache) {
         this.characterRepository = characterRepository;
         this.noteRepository = noteRepository;
+        this.detailCache = detailCache;
     }
 
     public Optional<CharacterDetailDto> getCharacter(int id) {
+        return detailCache.get(id, () -> loadCharacter(id));
+    }
+
+    @Transactional
+    public CharacterNoteDto addNote(int characterId, NoteRequest request) {
+        CharacterNoteEntity entity = CharacterNoteEntity.of(characterId, request.note(), request.author(), Instant.now().toString());
+        CharacterNoteDto saved = toDto(noteRepository.save(entity));
+        invalidateAfterCommit(characterId);
+        return saved;
+    }
+
+    // both finders run in read-only transactions, so a miss is served by the reader pool
+    private Optional<CharacterDetailDto> loadCharacter(int id) {
         return characterRepository.findById(id).map(character -> new CharacterDetailDto(
                 character.id(),
                 character.name(),
@@ -39,10 +58,18 @@ public class CharacterService {
         ));
     }
 
-    @Transactional
-    public CharacterNoteDto addNote(int characterId, NoteRequest request) {
-        CharacterNoteEntity entity = CharacterNoteEntity.of(characterId, request.note(), request.author(), Instant.now().toString());
-        return toDto(noteRepository.save(entity));
+    // dropping the entry before commit would let a concurrent read cache the pre-note state again
+    private void invalidateAfterCommit(int characterId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            detailCache.invalidate(characterId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                detailCache.invalidate(characterId);
+            }
+        });
     }
 
     private CharacterNoteDto toDto(CharacterNoteEntity entity) {
@@ -0,0 +1,181 @@
+package com.sid.rickmorty.service;
+
+import com.sid.rickmorty.model.dto.IngestionJobDto;
+import com.sid.rickmorty.model.dto.IngestionJobDto.Status;
+import com.sid.rickmorty.model.dto.IngestionJobDto.Trigger;
+import com.sid.rickmorty.model.dto.RefreshReportDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+
+/**
+ * One tracked run of {@link LocationService#refreshFromSource(RefreshProgress)}. Progress counters are written by the
+ * job thread only and read by snapshots from any thread; status changes are synchronized so a cancel cannot race the
+ * job starting or finishing.
+ */
+final class IngestionJob implements RefreshProgress {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionJob.class);
+
+    private final String id = UUID.randomUUID().toString();
+    private final Trigger trigger;
+    private final Instant submittedAt = Instant.now();
+    private Status status = Status.QUEUED;
+    private volatile boolean cancelRequested;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long startedNanos;
+    private long finishedNanos;
+    private RefreshReport report;
+    private String error;
+
+    private volatile int pagesDone;
+    private volatile int pagesTotal = -1;
+    private volatile int locationsDone;
+    private volatile int locationsTotal = -1;
+    private volatile int residentsSeen;
+    private volatile int charactersTotal = -1;
+    private volatile int charactersFetched;
+    private volatile int charactersWritten;
+
+    IngestionJob(Trigger trigger) {
+        this.trigger = trigger;
+    }
+
+    String id() {
+        return id;
+    }
+
+    synchronized boolean active() {
+        return status.active();
+    }
+
+    void run(LocationService locationService) {
+        synchronized (this) {
+            if (status != Status.QUEUED) {
+                return;
+            }
+            status = Status.RUNNING;
+            startedAt = Instant.now();
+            startedNanos = System.nanoTime();
+        }
+        log.info("Refresh job {} ({}) started", id, trigger);
+        // stays FAILED unless the refresh returns or throws something handled below, so an Error cannot leave
+        // the job RUNNING forever
+        Status outcome = Status.FAILED;
+        RefreshReport result = null;
+        String failure = "refresh aborted";
+        try {
+            // manual jobs are already serialized by the job service and may wait out a rollback; the schedule and
+            // startup must never queue a second refresh behind one that is running
+            result = trigger == Trigger.MANUAL
+                    ? locationService.refreshFromSource(this)
+                    : locationService.refreshIfIdle(this);
+            outcome = result.skipped() ? Status.SKIPPED : Status.SUCCEEDED;
+            failure = null;
+        } catch (CancellationException e) {
+            outcome = Status.CANCELLED;
+            failure = null;
+        } catch (RuntimeException e) {
+            // cancelling abandons in-flight requests, which may surface as their own errors
+            outcome = cancelRequested ? Status.CANCELLED : Status.FAILED;
+            failure = outcome == Status.FAILED ? String.valueOf(e.getMessage()) : null;
+            if (outcome == Status.FAILED) {
+                log.warn("Refresh job {} failed", id, e);
+            }
+        } catch (Error e) {
+            failure = e.toString();
+            throw e;
+        } finally {
+            synchronized (this) {
+                status = outcome;
+                report = result;
+                error = failure;
+                finishedAt = Instant.now();
+                finishedNanos = System.nanoTime();
+            }
+            log.info("Refresh job {} {} after {} ms", id, outcome.name().toLowerCase(),
+                    (finishedNanos - startedNanos) / 1_000_000);
+        }
+    }
+
+    /**
+     * Asks the job to stop. A queued job is cancelled at once; a running one stops at its next page or batch.
+     * Returns false when the job had already finished.
+     */
+    synchronized boolean cancel() {
+        if (!status.active()) {
+            return false;
+        }
+        if (status == Status.QUEUED) {
+            status = Status.CANCELLED;
+            finishedAt = Instant.now();
+        }
+        cancelRequested = true;
+        return true;
+    }
+
+    synchronized IngestionJobDto snapshot() {
+        int projectedCharacters = charactersTotal;
+        if (projectedCharacters < 0 && locationsTotal > 0 && locationsDone > 0) {
+            projectedCharacters = (int) ((long) residentsSeen * locationsTotal / locationsDone);
+        }
+        int itemsDone = locationsDone + charactersFetched;
+        double seconds = startedAt == null ? 0
+                : ((status.active() ? System.nanoTime() : finishedNanos) - startedNanos) / 1e9;
+        double perSecond = seconds > 0 ? itemsDone / seconds : 0;
+        Long eta = null;
+        if (status == Status.RUNNING && perSecond > 0 && locationsTotal >= 0 && projectedCharacters >= 0) {
+            eta = (long) Math.ceil(Math.max(locationsTotal + projectedCharacters - itemsDone, 0) / perSecond);
+        }
+        return new IngestionJobDto(id, trigger, status, cancelRequested, submittedAt, startedAt, finishedAt,
+                pagesDone, known(pagesTotal), locationsDone, known(locationsTotal), charactersFetched,
+                known(projectedCharacters), charactersWritten, Math.round(perSecond * 10) / 10.0, eta, toDto(report),
+                error);
+    }
+
+    @Override
+    public void locationsPlanned(int pages, int locations) {
+        pagesTotal = pages;
+        locationsTotal = locations;
+    }
+
+    @Override
+    public void locationPageDone(int pages, int locations, int distinctResidents) {
+        pagesDone = pages;
+        locationsDone = locations;
+        residentsSeen = distinctResidents;
+    }
+
+    @Override
+    public void charactersPlanned(int characters) {
+        charactersTotal = characters;
+    }
+
+    @Override
+    public void charactersDone(int fetched, int written) {
+        charactersFetched = fetched;
+        charactersWritten = written;
+    }
+
+    @Override
+    public boolean cancelled() {
+        return cancelRequested;
+    }
+
+    private static RefreshReportDto toDto(RefreshReport report) {
+        return report == null ? null : new RefreshReportDto(toDto(report.locations()), toDto(report.characters()),
+                toDto(report.residents()), report.skipped());
+    }
+
+    private static RefreshReportDto.RowCounts toDto(RefreshReport.RowCounts counts) {
+        return new RefreshReportDto.RowCounts(counts.inserted(), counts.updated(), counts.deleted(), counts.unchanged());
+    }
+
+    private static Integer known(int value) {
+        return value < 0 ? null : value;
+    }
+}
@@ -0,0 +1,123 @@
+package com.sid.rickmorty.service;
+
+import com.sid.rickmorty.model.dto.IngestionJobDto;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs catalogue refreshes as tracked background jobs on a single dedicated thread, so whoever triggers a refresh
+ * gets a job id back immediately instead of waiting for the ingestion. At most one job is queued or running at a
+ * time; submitting while one is returns that job instead. The last {@code rickmorty.ingestion.jobs.history} jobs are
+ * kept for lookup.
+ */
+@Service
+public class IngestionJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionJobService.class);
+
+    private final LocationService locationService;
+    private final int history;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ingestion-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, IngestionJob> jobs = new LinkedHashMap<>();
+    private IngestionJob active;
+
+    public IngestionJobService(LocationService locationService,
+                               @Value("${rickmorty.ingestion.jobs.history:20}") int history) {
+        if (history <= 0) {
+            throw new IllegalArgumentException("rickmorty.ingestion.jobs.history must be positive");
+        }
+        this.locationService = locationService;
+        this.history = history;
+    }
+
+    /**
+     * A job and whether the submit or cancel that returned it took effect.
+     */
+    public record JobRequest(IngestionJobDto job, boolean accepted) {
+    }
+
+    /**
+     * Starts a refresh job, or returns the one already queued or running (not accepted).
+     */
+    public synchronized JobRequest submit(IngestionJobDto.Trigger trigger) {
+        if (active != null && active.active()) {
+            return new JobRequest(active.snapshot(), false);
+        }
+        IngestionJob job = new IngestionJob(trigger);
+        jobs.put(job.id(), job);
+        evict();
+        active = job;
+        executor.execute(() -> job.run(locationService));
+        return new JobRequest(job.snapshot(), true);
+    }
+
+    public synchronized Optional<IngestionJobDto> find(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(IngestionJob::snapshot);
+    }
+
+    /**
+     * Newest first.
+     */
+    public synchronized List<IngestionJobDto> recent() {
+        List<IngestionJobDto> snapshots = new ArrayList<>(jobs.size());
+        jobs.values().forEach(job -> snapshots.add(job.snapshot()));
+        Collections.reverse(snapshots);
+        return snapshots;
+    }
+
+    /**
+     * Asks the job to stop; empty when there is no such job. Not accepted when the job had already finished.
+     */
+    public synchronized Optional<JobRequest> cancel(String id) {
+        IngestionJob job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        boolean cancelled = job.cancel();
+        if (cancelled) {
+            log.info("Cancellation requested for refresh job {}", id);
+        }
+        return Optional.of(new JobRequest(job.snapshot(), cancelled));
+    }
+
+    // finished jobs beyond the history size go first; the active job is never dropped
+    private void evict() {
+        Iterator<IngestionJob> oldest = jobs.values().iterator();
+        while (jobs.size() > history && oldest.hasNext()) {
+            if (!oldest.next().active()) {
+                oldest.remove();
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        synchronized (this) {
+            if (active != null) {
+                active.cancel();
+            }
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Refresh job still running at shutdown");
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.sid.rickmorty.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sid.rickmorty.model.dto.LocationDto;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The full, unfiltered {@code /api/locations} body serialized once per catalogue version, as plain and gzip bytes.
+ * Each encoding has its own strong ETag derived from the {@link CatalogVersion}. A conditional request can therefore
+ * be answered from the version alone, without touching the database or the serializer.
+ */
+@Component
+public class LocationResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(LocationResponseCache.class);
+
+    private final LocationService locationService;
+    private final CatalogVersion catalogVersion;
+    private final ObjectMapper objectMapper;
+    private final LongAdder builds = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private volatile Body body;
+
+    public LocationResponseCache(LocationService locationService,
+                                 CatalogVersion catalogVersion,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry) {
+        this.locationService = locationService;
+        this.catalogVersion = catalogVersion;
+        this.objectMapper = objectMapper;
+        FunctionCounter.builder("locations.response.builds", builds, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("locations.response.not-modified", notModified, LongAdder::sum).register(meterRegistry);
+    }
+
+    @EventListener
+    public void onCatalogRefreshed(CatalogRefreshedEvent event) {
+        current();
+    }
+
+    /**
+     * The body for the current catalogue version, serializing it first if the version has moved since the last build.
+     */
+    public Body current() {
+        long version = catalogVersion.current();
+        Body cached = body;
+        if (cached != null && cached.version() >= version) {
+            return cached;
+        }
+        synchronized (this) {
+            cached = body;
+            if (cached != null && cached.version() >= version) {
+                return cached;
+            }
+            body = build(version);
+            return body;
+        }
+    }
+
+    /**
+     * True when {@code ifNoneMatch} names {@code etag} (or is {@code *}). The caller passes the ETag of the encoding it
+     * negotiated, so a tag stored for the other encoding never earns a 304 carrying an ETag the client does not hold.
+     * Weak validators are compared weakly, as RFC 9110 requires for If-None-Match.
+     */
+    public boolean notModified(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                notModified.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Body build(long version) {
+        long started = System.nanoTime();
+        List<LocationDto> locations = locationService.listLocations(null, null, null, null);
+        byte[] json;
+        byte[] gzip;
+        try {
+            json = objectMapper.writeValueAsBytes(locations);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(json);
+            }
+            gzip = compressed.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize locations response", e);
+        }
+        builds.increment();
+        log.info("Locations response cached for version {}: {} locations, {} bytes ({} gzip) in {} ms",
+                version, locations.size(), json.length, gzip.length, (System.nanoTime() - started) / 1_000_000);
+        String tag = Long.toHexString(version);
+        return new Body(version, json, gzip, "\"locations-" + tag + "\"", "\"locations-" + tag + "-gzip\"");
+    }
+
+    public record Body(long version, byte[] json, byte[] gzip, String etag, String gzipEtag) {
+    }
+}
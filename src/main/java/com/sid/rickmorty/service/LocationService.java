@@ -1,24 +1,46 @@
 package com.sid.rickmorty.service;
 
+import com.sid.rickmorty.client.ApiCharacter;
+import com.sid.rickmorty.client.ApiLocation;
+import com.sid.rickmorty.client.ApiPage;
 import com.sid.rickmorty.client.RickAndMortyClient;
 import com.sid.rickmorty.model.dto.LocationDto;
 import com.sid.rickmorty.model.dto.ResidentSummaryDto;
-import com.sid.rickmorty.repository.CharacterRepository;
-import com.sid.rickmorty.repository.LocationRepository;
-import com.sid.rickmorty.repository.LocationResidentRepository;
+import com.sid.rickmorty.store.CharacterColumns;
+import com.sid.rickmorty.store.CharacterStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class LocationService {
@@ -26,130 +48,483 @@ public class LocationService {
     private static final Logger log = LoggerFactory.getLogger(LocationService.class);
 
     private final RickAndMortyClient client;
-    private final LocationRepository locationRepository;
-    private final CharacterRepository characterRepository;
-    private final LocationResidentRepository residentRepository;
     private final JdbcTemplate jdbcTemplate;
+    private final CharacterStore characterStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogVersion catalogVersion;
+    private final CatalogStaging catalogStaging;
+    private final TransactionTemplate transactions;
+    private final TransactionTemplate readOnly;
+    private final MeterRegistry meterRegistry;
+    private final int maxPageSize;
+    private final int writeBatchSize;
+    private final int ingestionConcurrency;
+    private final int characterBatchSize;
+    private final Timer locationWriteTimer;
+    private final Timer characterWriteTimer;
     private final ReentrantLock refreshLock = new ReentrantLock();
 
     public LocationService(RickAndMortyClient client,
-                           LocationRepository locationRepository,
-                           CharacterRepository characterRepository,
-                           LocationResidentRepository residentRepository,
-                           JdbcTemplate jdbcTemplate) {
+                           JdbcTemplate jdbcTemplate,
+                           CharacterStore characterStore,
+                           ApplicationEventPublisher eventPublisher,
+                           CatalogVersion catalogVersion,
+                           CatalogStaging catalogStaging,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${rickmorty.locations.max-page-size:500}") int maxPageSize,
+                           @Value("${rickmorty.ingestion.write-batch-size:500}") int writeBatchSize,
+                           @Value("${rickmorty.ingestion.concurrency:16}") int ingestionConcurrency,
+                           @Value("${rickmorty.ingestion.character-batch-size:200}") int characterBatchSize) {
+        if (writeBatchSize <= 0) {
+            throw new IllegalArgumentException("rickmorty.ingestion.write-batch-size must be positive");
+        }
+        if (ingestionConcurrency <= 0) {
+            throw new IllegalArgumentException("rickmorty.ingestion.concurrency must be positive");
+        }
+        if (characterBatchSize <= 0) {
+            throw new IllegalArgumentException("rickmorty.ingestion.character-batch-size must be positive");
+        }
         this.client = client;
-        this.locationRepository = locationRepository;
-        this.characterRepository = characterRepository;
-        this.residentRepository = residentRepository;
         this.jdbcTemplate = jdbcTemplate;
+        this.characterStore = characterStore;
+        this.eventPublisher = eventPublisher;
+        this.catalogVersion = catalogVersion;
+        this.catalogStaging = catalogStaging;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+        this.maxPageSize = maxPageSize;
+        this.writeBatchSize = writeBatchSize;
+        this.ingestionConcurrency = ingestionConcurrency;
+        this.characterBatchSize = characterBatchSize;
+        this.locationWriteTimer = Timer.builder("ingestion.page.write")
+                .description("Time to write the changed locations and resident links of one upstream page")
+                .tag("rows", "locations")
+                .register(meterRegistry);
+        this.characterWriteTimer = Timer.builder("ingestion.page.write")
+                .description("Time to write one JDBC batch of changed characters")
+                .tag("rows", "characters")
+                .register(meterRegistry);
     }
 
-    public List<LocationDto> listLocations() {
-        List<LocationDto> response = new ArrayList<>();
-        locationRepository.findAll().forEach(location -> {
-            List<ResidentSummaryDto> residents = residentRepository.findCharacterIdsByLocation(location.id())
-                    .stream()
-                    .map(characterRepository::findById)
-                    .filter(Optional::isPresent)
-                    .map(Optional::get)
-                    .map(character -> new ResidentSummaryDto(
-                            character.id(),
-                            character.name(),
-                            character.status(),
-                            character.species(),
-                            character.image()))
-                    .toList();
-            response.add(new LocationDto(location.id(), location.name(), location.type(), location.dimension(), residents));
-        });
+    /**
+     * Locations ordered by id, optionally filtered by exact (case-insensitive) dimension and type, with their
+     * residents. Locations and resident ids come from a single join, so the cost no longer grows with one query per
+     * location and per resident; resident details are resolved from the in-memory {@link CharacterStore}.
+     * A {@code null} size returns every matching location.
+     */
+    @Transactional(readOnly = true)
+    public List<LocationDto> listLocations(Integer page, Integer size, String dimension, String type) {
+        int pageIndex = page == null ? 0 : page;
+        if (pageIndex < 0) {
+            throw new IllegalArgumentException("page must not be negative");
+        }
+        if (size != null && size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        int limit = size == null ? -1 : Math.min(size, maxPageSize);
+        long offset = limit < 0 ? 0 : (long) pageIndex * limit;
+        if (limit < 0 && pageIndex > 0) {
+            return List.of();
+        }
+
+        StringBuilder where = new StringBuilder();
+        List<Object> args = new ArrayList<>();
+        if (dimension != null && !dimension.isBlank()) {
+            where.append(where.isEmpty() ? " WHERE " : " AND ").append("dimension = ? COLLATE NOCASE");
+            args.add(dimension.trim());
+        }
+        if (type != null && !type.isBlank()) {
+            where.append(where.isEmpty() ? " WHERE " : " AND ").append("type = ? COLLATE NOCASE");
+            args.add(type.trim());
+        }
+        args.add(limit);
+        args.add(offset);
+
+        // residents come back in character id order, as the per-location index lookups returned them before
+        String sql = """
+                SELECT l.id, l.name, l.type, l.dimension, lr.character_id
+                FROM (SELECT id, name, type, dimension FROM locations%s ORDER BY id LIMIT ? OFFSET ?) l
+                LEFT JOIN location_residents lr ON lr.location_id = l.id
+                ORDER BY l.id, lr.character_id
+                """.formatted(where);
+        CharacterColumns characters = characterStore.columns();
+
+        Map<Integer, LocationRow> rows = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            int locationId = rs.getInt("id");
+            LocationRow row = rows.get(locationId);
+            if (row == null) {
+                row = new LocationRow(locationId, rs.getString("name"), rs.getString("type"),
+                        rs.getString("dimension"), new ArrayList<>());
+                rows.put(locationId, row);
+            }
+            int characterId = rs.getInt("character_id");
+            // links to characters the upstream never returned have no row to show, as with the former inner lookup
+            int ordinal = rs.wasNull() ? -1 : characters.ordinalOf(characterId);
+            if (ordinal >= 0) {
+                row.residents().add(characters.summary(ordinal));
+            }
+        }, args.toArray());
+
+        List<LocationDto> response = new ArrayList<>(rows.size());
+        rows.values().forEach(row -> response.add(
+                new LocationDto(row.id(), row.name(), row.type(), row.dimension(), row.residents())));
         return response;
     }
 
-    @Transactional
-    public void refreshFromSource() {
+    /**
+     * Re-ingests the catalogue in two passes. First every location page is fetched (page 1 reports the page count;
+     * the rest are fetched at most {@code rickmorty.ingestion.concurrency} at a time) and its locations and resident
+     * links are written. Then the distinct resident ids gathered across all pages are fetched exactly once, through
+     * whichever of {@code /character/{ids}} batches or the paged {@code /character} listing needs fewer requests.
+     * Every upstream row is compared against the stored {@link CatalogDelta} (read through the reader pool) as it
+     * arrives, and only the new or changed rows and the added or removed resident links are kept. The single writer
+     * connection is not touched until every page and batch is in: those changes then go to a staged copy of the
+     * catalogue ({@link CatalogStaging}), built and validated in one short write transaction and swapped in with a
+     * second. Note writes therefore never wait on the network. Readers keep seeing the previous generation until the
+     * swap, and a run that changed nothing leaves the tables and the catalogue version as they were. Skips when a refresh or rollback is already
+     * running, as {@link #refreshIfIdle(RefreshProgress)} does.
+     */
+    public RefreshReport refreshFromSource() {
+        return refreshIfIdle(RefreshProgress.NONE);
+    }
+
+    /**
+     * As {@link #refreshFromSource()}, reporting to {@code progress} as pages and character batches are written. When
+     * a refresh or rollback already holds the catalogue the run does nothing and returns a
+     * {@link RefreshReport#skipped()} report, so a scheduled or startup trigger never queues a second full refresh
+     * behind a running one.
+     *
+     * @throws CancellationException when {@code progress} asked to stop before the staged copy was published
+     */
+    public RefreshReport refreshIfIdle(RefreshProgress progress) {
         if (!refreshLock.tryLock()) {
-            log.info("refresh already in progress; skipping");
-            return;
+            log.info("Refresh already in progress; skipping");
+            return RefreshReport.busy();
         }
-        int page = 1;
-        boolean hasNext = true;
         try {
-            while (hasNext) {
-                Mono<Map<String, Object>> responseMono = client.fetchLocationsPage(page);
-                Map<String, Object> payload = responseMono.blockOptional().orElse(Map.of());
-                List<Map<String, Object>> results = (List<Map<String, Object>>) payload.getOrDefault("results", List.of());
-                persistLocations(results);
-                Map<String, Object> info = (Map<String, Object>) payload.getOrDefault("info", Map.of());
-                hasNext = info.getOrDefault("next", null) != null;
-                page++;
+            return refresh(progress);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * As {@link #refreshIfIdle(RefreshProgress)}, but waits for any refresh or rollback already holding the catalogue.
+     * Only for callers that serialize refreshes themselves, as {@link IngestionJobService} does, so the wait is never
+     * longer than a rollback. Cancelling the run stops the in-flight requests before anything is written, or rolls
+     * back the staging transaction if it is already open, so the live catalogue is left exactly as it was.
+     *
+     * @throws CancellationException when {@code progress} asked to stop before the staged copy was published
+     */
+    public RefreshReport refreshFromSource(RefreshProgress progress) {
+        refreshLock.lock();
+        try {
+            return refresh(progress);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private RefreshReport refresh(RefreshProgress progress) {
+        long started = System.nanoTime();
+        checkCancelled(progress);
+        ApiPage<ApiLocation> first = client.fetchLocationsPage(1).blockOptional().orElse(ApiPage.empty());
+        CatalogDelta delta = readOnly.execute(status -> CatalogDelta.load(jdbcTemplate));
+        PendingWrites pending = fetchChanges(first, delta, progress, started);
+        RefreshReport report = delta.report();
+        if (!report.changed()) {
+            if (delta.needsBackfill()) {
+                transactions.executeWithoutResult(status -> delta.writeBackfill(jdbcTemplate));
             }
+            log.info("Upstream unchanged; catalogue version stays at {}", catalogVersion.current());
+            return report;
+        }
+        transactions.executeWithoutResult(status -> stageChanges(pending, delta, progress));
+        catalogStaging.publish();
+        publishAfterCommit(delta.changedCharacters());
+        return report;
+    }
+
+    /**
+     * Swaps the previous catalogue generation back in. Returns false when there is none, i.e. before the first
+     * refresh that changed anything, or when a refresh is running; a rollback never waits for one to finish.
+     */
+    public boolean rollback() {
+        if (!refreshLock.tryLock()) {
+            log.info("Refresh in progress; not rolling back");
+            return false;
+        }
+        try {
+            Optional<Set<Integer>> changed = catalogStaging.rollback();
+            changed.ifPresent(this::publishAfterCommit);
+            return changed.isPresent();
         } finally {
             refreshLock.unlock();
         }
     }
 
-    private void persistLocations(List<Map<String, Object>> rawLocations) {
-        rawLocations.forEach(rawLocation -> {
-            Integer locationId = (Integer) rawLocation.get("id");
-            if (locationId == null) {
-                log.warn("Skipping location with null ID: {}", rawLocation);
+    /**
+     * Fetches every location page and resident character and diffs each record against {@code delta} as soon as it is
+     * decoded, holding no database connection. Only what changed is kept, so a steady-state run buffers nothing.
+     */
+    private PendingWrites fetchChanges(ApiPage<ApiLocation> first, CatalogDelta delta, RefreshProgress progress,
+                                       long started) {
+        PendingWrites pending = new PendingWrites(new ArrayList<>(), new ArrayList<>());
+        Set<Integer> residentIds = new TreeSet<>();
+        AtomicInteger pages = new AtomicInteger();
+        AtomicInteger locations = new AtomicInteger();
+        ApiPage.Info info = first.info();
+        progress.locationsPlanned(info.pages() == null ? -1 : info.pages(), info.count() == null ? -1 : info.count());
+        LocationWrites[] page = {new LocationWrites()};
+        drain(locationEvents(first), event -> {
+            checkCancelled(progress);
+            if (event.location() == null) {
+                if (!page[0].isEmpty()) {
+                    pending.locations().add(page[0]);
+                    page[0] = new LocationWrites();
+                }
+                progress.locationPageDone(pages.incrementAndGet(), locations.get(), residentIds.size());
                 return;
             }
-            upsertLocation(locationId,
-                    (String) rawLocation.get("name"),
-                    (String) rawLocation.get("type"),
-                    (String) rawLocation.get("dimension"));
-            // remove stale associations so refreshed data mirrors source
-            residentRepository.deleteByLocationId(locationId);
-            List<String> residentUrls = (List<String>) rawLocation.getOrDefault("residents", List.of());
-            List<Integer> residentIds = residentUrls.stream()
-                    .filter(url -> url != null && !url.isBlank())
-                    .map(url -> {
-                        try {
-                            int lastSlash = url.lastIndexOf('/');
-                            if (lastSlash < 0 || lastSlash == url.length() - 1) {
-                                log.warn("Invalid resident URL format: {}", url);
-                                return null;
-                            }
-                            String idStr = url.substring(lastSlash + 1);
-                            return Integer.valueOf(idStr);
-                        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
-                            log.warn("Failed to parse resident ID from URL: {}", url, e);
-                            return null;
-                        }
-                    })
-                    .filter(id -> id != null)
-                    .toList();
-            if (!residentIds.isEmpty()) {
-                ingestResidents(locationId, residentIds);
+            diffLocation(event.location(), delta, page[0]);
+            residentIds.addAll(event.location().residentIds());
+            locations.incrementAndGet();
+        });
+        progress.charactersPlanned(residentIds.size());
+        AtomicInteger fetched = new AtomicInteger();
+        AtomicInteger changed = new AtomicInteger();
+        List<List<Object[]>> characterBatches = pending.characters();
+        drain(fetchCharacters(residentIds), character -> {
+            checkCancelled(progress);
+            Object[] row = diffCharacter(character, delta);
+            if (row != null) {
+                if (characterBatches.isEmpty() || characterBatches.getLast().size() == writeBatchSize) {
+                    characterBatches.add(new ArrayList<>());
+                }
+                characterBatches.getLast().add(row);
+                changed.incrementAndGet();
             }
+            progress.charactersDone(fetched.incrementAndGet(), changed.get());
+        });
+        RefreshReport report = delta.report();
+        recordRows(report);
+        log.info("Fetched {} location pages ({} distinct residents) in {} ms: {}", pages.get(), residentIds.size(),
+                (System.nanoTime() - started) / 1_000_000, report);
+        return pending;
+    }
+
+    /**
+     * Applies the buffered changes to a staged copy and validates it, inside the caller's write transaction.
+     */
+    private void stageChanges(PendingWrites pending, CatalogDelta delta, RefreshProgress progress) {
+        long started = System.nanoTime();
+        delta.writeBackfill(jdbcTemplate);
+        CatalogStaging.Stage stage = catalogStaging.stage();
+        pending.locations().forEach(writes -> writeLocations(writes, stage));
+        pending.characters().forEach(writes -> writeCharacters(writes, stage));
+        catalogStaging.validate(delta.locationCount(), delta.characterCount(), delta.residentCount());
+        // last chance to stop while everything staged can still be rolled back with the transaction
+        checkCancelled(progress);
+        log.info("Staged {} location pages and {} character batches of changes in {} ms", pending.locations().size(),
+                pending.characters().size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // Closing the stream cancels the upstream Flux, so a run that fails or is cancelled part-way also abandons the
+    // requests still in flight rather than leaving them to complete in the background
+    private static <T> void drain(Flux<T> source, Consumer<T> consumer) {
+        try (Stream<T> stream = source.toStream(1)) {
+            stream.forEach(consumer);
+        }
+    }
+
+    private static void checkCancelled(RefreshProgress progress) {
+        if (progress.cancelled()) {
+            throw new CancellationException("Refresh cancelled");
+        }
+    }
+
+    // Every location in page order, each page followed by PAGE_END. Pages after the first stream their locations as
+    // they are decoded; only the first, and pages followed by next link, are needed whole for their page info
+    private Flux<LocationEvent> locationEvents(ApiPage<ApiLocation> first) {
+        Integer pages = first.info().pages();
+        Flux<LocationEvent> remaining = pages != null
+                ? Flux.range(2, Math.max(pages, 1) - 1).flatMapSequential(page -> client.streamLocationsPage(page)
+                        .map(LocationEvent::new)
+                        .concatWith(Mono.just(LocationEvent.PAGE_END)), ingestionConcurrency)
+                : followNextLinks(first).concatMap(LocationService::events);
+        return Flux.concat(events(first), remaining);
+    }
+
+    private static Flux<LocationEvent> events(ApiPage<ApiLocation> page) {
+        return Flux.fromIterable(page.results()).map(LocationEvent::new).concatWith(Mono.just(LocationEvent.PAGE_END));
+    }
+
+    // Without a page count there is nothing to fan out from, so pages are followed one after another
+    private Flux<ApiPage<ApiLocation>> followNextLinks(ApiPage<ApiLocation> first) {
+        AtomicInteger page = new AtomicInteger(1);
+        return Mono.just(first)
+                .expand(payload -> payload.info().next() != null
+                        ? client.fetchLocationsPage(page.incrementAndGet())
+                        : Mono.empty())
+                .skip(1);
+    }
+
+    /**
+     * Fetches each of {@code ids} once. A single batch is fetched directly. Otherwise page 1 of the paged listing is
+     * fetched first: it reports how many pages there are, and its characters count towards {@code ids} either way.
+     * The rest are then fetched through whichever of the remaining pages or {@code /character/{ids}} batches is fewer
+     * requests. Listing pages also carry characters no location references; those are dropped, and any id the
+     * listing did not cover falls back to batches.
+     */
+    private Flux<ApiCharacter> fetchCharacters(Set<Integer> ids) {
+        if (ids.size() <= characterBatchSize) {
+            return fetchBatches(ids);
+        }
+        return client.fetchCharactersPage(1).flatMapMany(probe -> {
+            Set<Integer> remaining = new TreeSet<>(ids);
+            List<ApiCharacter> fromProbe = probe.results().stream().filter(character -> remaining.remove(character.id()))
+                    .toList();
+            Integer pages = probe.info().pages();
+            int pageRequests = pages != null ? Math.max(pages - 1, 0) : Integer.MAX_VALUE;
+            int batchRequests = Math.ceilDiv(remaining.size(), characterBatchSize);
+            log.info("Fetching {} characters with {} {} requests (paged listing would take {}, batches {})",
+                    remaining.size(), Math.min(pageRequests, batchRequests),
+                    pageRequests < batchRequests ? "listing page" : "batch", pageRequests, batchRequests);
+            // listing pages carry characters no location references; only the ones still wanted are kept
+            Flux<ApiCharacter> rest = pageRequests < batchRequests
+                    ? Flux.range(2, pageRequests)
+                            .flatMapSequential(client::streamCharactersPage, ingestionConcurrency)
+                            .filter(character -> remaining.remove(character.id()))
+                            .concatWith(Flux.defer(() -> fetchBatches(remaining)))
+                    : fetchBatches(remaining);
+            return Flux.concat(Flux.fromIterable(fromProbe), rest);
         });
     }
 
-    private void ingestResidents(Integer locationId, List<Integer> residentIds) {
-        List<List<Integer>> batches = chunk(residentIds, 20);
-        batches.forEach(batch -> {
-            List<Map<String, Object>> characters = client.fetchCharactersBatch(batch).blockOptional().orElse(List.of());
-            characters.forEach(this::upsertCharacter);
-            batch.forEach(characterId -> upsertLocationResident(locationId, characterId));
+    private Flux<ApiCharacter> fetchBatches(Collection<Integer> ids) {
+        List<Integer> sorted = List.copyOf(ids);
+        return Flux.range(0, Math.ceilDiv(sorted.size(), characterBatchSize))
+                .map(batch -> sorted.subList(batch * characterBatchSize,
+                        Math.min(sorted.size(), (batch + 1) * characterBatchSize)))
+                .flatMapSequential(client::streamCharactersBatch, ingestionConcurrency);
+    }
+
+    // The version only moves once the rows are visible to other connections and the character store has swapped to
+    // them, so caches never pin pre-commit reads or pre-reload residents to it
+    private void publishAfterCommit(Set<Integer> characterIds) {
+        Runnable publish = () -> eventPublisher.publishEvent(new CatalogRefreshedEvent(
+                catalogVersion.advance(characterStore::reload), Instant.now(), Set.copyOf(characterIds)));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish.run();
+            }
         });
     }
 
-    private void upsertLocation(Integer id, String name, String type, String dimension) {
-        jdbcTemplate.update("""
-                INSERT INTO locations(id, name, type, dimension)
+    /**
+     * Records the location's row if it is new or changed, and the resident links that were added or removed, in
+     * {@code writes}.
+     */
+    private static void diffLocation(ApiLocation location, CatalogDelta delta, LocationWrites writes) {
+        int locationId = location.id();
+        long hash = CatalogDelta.locationHash(location.name(), location.type(), location.dimension());
+        if (delta.location(locationId, hash) != CatalogDelta.Change.UNCHANGED) {
+            writes.changed().add(new Object[]{locationId, location.name(), location.type(), location.dimension(), hash});
+        }
+        CatalogDelta.ResidentDiff diff = delta.residents(locationId, new LinkedHashSet<>(location.residentIds()));
+        diff.added().forEach(characterId -> writes.added().add(new int[]{locationId, characterId}));
+        diff.removed().forEach(characterId -> writes.removed().add(new int[]{locationId, characterId}));
+    }
+
+    /**
+     * The character as a row ready to upsert, or null when it is unchanged.
+     */
+    private static Object[] diffCharacter(ApiCharacter character, CatalogDelta delta) {
+        long hash = CatalogDelta.characterHash(character.name(), character.status(), character.species(),
+                character.gender(), character.origin(), character.location(), character.image());
+        if (delta.character(character.id(), hash) == CatalogDelta.Change.UNCHANGED) {
+            return null;
+        }
+        return new Object[]{character.id(), character.name(), character.status(), character.species(),
+                character.gender(), character.origin(), character.location(), character.image(), hash};
+    }
+
+    /**
+     * Writes one page's location changes, one JDBC batch per statement, each a single reused prepared statement.
+     */
+    private void writeLocations(LocationWrites writes, CatalogStaging.Stage stage) {
+        long started = System.nanoTime();
+        writeLocationRows(stage.tables(), writes.changed(), writes.added(), writes.removed());
+        locationWriteTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        log.debug("Wrote {} locations, +{} -{} resident links in {} ms", writes.changed().size(),
+                writes.added().size(), writes.removed().size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Upserts up to {@code rickmorty.ingestion.write-batch-size} changed characters as a single JDBC batch.
+     */
+    private void writeCharacters(List<Object[]> characters, CatalogStaging.Stage stage) {
+        long started = System.nanoTime();
+        writeCharacterRows(stage.tables(), characters);
+        characterWriteTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    private void recordRows(RefreshReport report) {
+        countRows("locations", report.locations());
+        countRows("characters", report.characters());
+        countRows("residents", report.residents());
+    }
+
+    private void countRows(String table, RefreshReport.RowCounts counts) {
+        meterRegistry.counter("ingestion.rows", "table", table, "outcome", "inserted").increment(counts.inserted());
+        meterRegistry.counter("ingestion.rows", "table", table, "outcome", "updated").increment(counts.updated());
+        meterRegistry.counter("ingestion.rows", "table", table, "outcome", "deleted").increment(counts.deleted());
+        meterRegistry.counter("ingestion.rows", "table", table, "outcome", "unchanged").increment(counts.unchanged());
+    }
+
+    private void writeLocationRows(CatalogStaging.Tables tables, List<Object[]> locations, List<int[]> added,
+                                   List<int[]> removed) {
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO %s(id, name, type, dimension)
                 VALUES(?, ?, ?, ?)
                 ON CONFLICT(id) DO UPDATE SET
                     name=excluded.name,
                     type=excluded.type,
                     dimension=excluded.dimension
-                """, id, name, type, dimension);
+                """.formatted(tables.locations()), locations, writeBatchSize, (ps, location) -> {
+            ps.setObject(1, location[0]);
+            ps.setObject(2, location[1]);
+            ps.setObject(3, location[2]);
+            ps.setObject(4, location[3]);
+        });
+        writeHashes(tables, CatalogDelta.LOCATION, locations, 4);
+        jdbcTemplate.batchUpdate("DELETE FROM %s WHERE location_id = ? AND character_id = ?".formatted(tables.residents()),
+                removed, writeBatchSize, (ps, link) -> {
+                    ps.setInt(1, link[0]);
+                    ps.setInt(2, link[1]);
+                });
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO %s(location_id, character_id)
+                VALUES(?, ?)
+                ON CONFLICT(location_id, character_id) DO NOTHING
+                """.formatted(tables.residents()), added, writeBatchSize, (ps, link) -> {
+            ps.setInt(1, link[0]);
+            ps.setInt(2, link[1]);
+        });
     }
 
-    private void upsertCharacter(Map<String, Object> rawCharacter) {
-        Map<String, Object> origin = (Map<String, Object>) rawCharacter.getOrDefault("origin", Map.of());
-        Map<String, Object> location = (Map<String, Object>) rawCharacter.getOrDefault("location", Map.of());
-        jdbcTemplate.update("""
-                INSERT INTO characters(id, name, status, species, gender, origin, location, image)
+    private void writeCharacterRows(CatalogStaging.Tables tables, List<Object[]> characters) {
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO %s(id, name, status, species, gender, origin, location, image)
                 VALUES(?, ?, ?, ?, ?, ?, ?, ?)
                 ON CONFLICT(id) DO UPDATE SET
                     name=excluded.name,
@@ -159,33 +534,49 @@ public class LocationService {
                     origin=excluded.origin,
                     location=excluded.location,
                     image=excluded.image
-                """,
-                rawCharacter.get("id"),
-                rawCharacter.get("name"),
-                rawCharacter.get("status"),
-                rawCharacter.get("species"),
-                rawCharacter.get("gender"),
-                origin.getOrDefault("name", ""),
-                location.getOrDefault("name", ""),
-                rawCharacter.get("image"));
-    }
-
-    private void upsertLocationResident(Integer locationId, Integer characterId) {
-        jdbcTemplate.update("""
-                INSERT INTO location_residents(location_id, character_id)
-                VALUES(?, ?)
-                ON CONFLICT(location_id, character_id) DO NOTHING
-                """, locationId, characterId);
-    }
-
-    private static List<List<Integer>> chunk(List<Integer> source, int size) {
-        return source.stream()
-                .collect(Collectors.collectingAndThen(Collectors.toList(), list -> {
-                    List<List<Integer>> chunks = new ArrayList<>();
-                    for (int i = 0; i < list.size(); i += size) {
-                        chunks.add(list.subList(i, Math.min(list.size(), i + size)));
-                    }
-                    return chunks;
-                }));
+                """.formatted(tables.characters()), characters, writeBatchSize, (ps, character) -> {
+            for (int column = 0; column < 8; column++) {
+                ps.setObject(column + 1, character[column]);
+            }
+        });
+        writeHashes(tables, CatalogDelta.CHARACTER, characters, 8);
+    }
+
+    // rows carry their id at index 0 and their content hash at hashIndex
+    private void writeHashes(CatalogStaging.Tables tables, String kind, List<Object[]> rows, int hashIndex) {
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO %s(kind, id, hash)
+                VALUES(?, ?, ?)
+                ON CONFLICT(kind, id) DO UPDATE SET hash=excluded.hash
+                """.formatted(tables.hashes()), rows, writeBatchSize, (ps, row) -> {
+            ps.setString(1, kind);
+            ps.setObject(2, row[0]);
+            ps.setLong(3, (Long) row[hashIndex]);
+        });
+    }
+
+    // one upstream location, or the end of the page it came from (no location), so pages can still be counted
+    private record LocationEvent(ApiLocation location) {
+
+        static final LocationEvent PAGE_END = new LocationEvent(null);
+    }
+
+    private record LocationWrites(List<Object[]> changed, List<int[]> added, List<int[]> removed) {
+
+        LocationWrites() {
+            this(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        }
+
+        boolean isEmpty() {
+            return changed.isEmpty() && added.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    // changes found while fetching, per location page and per write batch of characters, waiting for the write
+    // transaction
+    private record PendingWrites(List<LocationWrites> locations, List<List<Object[]>> characters) {
+    }
+
+    private record LocationRow(int id, String name, String type, String dimension, List<ResidentSummaryDto> residents) {
     }
 }
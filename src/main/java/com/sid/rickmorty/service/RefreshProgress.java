@@ -0,0 +1,34 @@
+package com.sid.rickmorty.service;
+
+/**
+ * Callbacks from a running {@link LocationService#refreshFromSource(RefreshProgress)}, all on the refreshing thread.
+ * Counts are cumulative for the run. {@link #cancelled()} is polled between upstream pages and character batches; once
+ * it returns true the run stops, rolls back what it staged and throws {@link java.util.concurrent.CancellationException}.
+ */
+public interface RefreshProgress {
+
+    RefreshProgress NONE = new RefreshProgress() {
+    };
+
+    /**
+     * Reported once page 1 of the location listing is in; either value is -1 when the upstream did not say.
+     */
+    default void locationsPlanned(int pages, int locations) {
+    }
+
+    default void locationPageDone(int pages, int locations, int distinctResidents) {
+    }
+
+    /**
+     * Reported once every location page is in, before the first character is fetched.
+     */
+    default void charactersPlanned(int characters) {
+    }
+
+    default void charactersDone(int fetched, int written) {
+    }
+
+    default boolean cancelled() {
+        return false;
+    }
+}
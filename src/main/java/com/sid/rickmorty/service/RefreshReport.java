@@ -0,0 +1,43 @@
+package com.sid.rickmorty.service;
+
+/**
+ * What one ingestion run changed, per table. Locations and characters are only ever inserted or updated; resident
+ * links are inserted or deleted. A {@link #skipped()} report belongs to a run that found another refresh or rollback
+ * holding the catalogue and did nothing.
+ */
+public record RefreshReport(RowCounts locations, RowCounts characters, RowCounts residents, boolean skipped) {
+
+    private static final RowCounts NONE = new RowCounts(0, 0, 0, 0);
+
+    public RefreshReport(RowCounts locations, RowCounts characters, RowCounts residents) {
+        this(locations, characters, residents, false);
+    }
+
+    static RefreshReport busy() {
+        return new RefreshReport(NONE, NONE, NONE, true);
+    }
+
+    public boolean changed() {
+        return locations.changed() + characters.changed() + residents.changed() > 0;
+    }
+
+    @Override
+    public String toString() {
+        if (skipped) {
+            return "skipped: another refresh or rollback holds the catalogue";
+        }
+        return "locations " + locations + ", characters " + characters + ", residents " + residents;
+    }
+
+    public record RowCounts(int inserted, int updated, int deleted, int unchanged) {
+
+        public int changed() {
+            return inserted + updated + deleted;
+        }
+
+        @Override
+        public String toString() {
+            return "+" + inserted + " ~" + updated + " -" + deleted + " =" + unchanged;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.sid.rickmorty.store;
+
+import com.sid.rickmorty.model.dto.ResidentSummaryDto;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable column-oriented copy of the {@code characters} table, ordered by id. Each row is an ordinal into a set of
+ * parallel arrays:
+ * <ul>
+ *     <li>a sorted {@code int[]} of ids (id lookups are a binary search);</li>
+ *     <li>names packed back to back into one {@code char[]} arena, addressed by offsets;</li>
+ *     <li>status, species, gender, origin and location dictionary-encoded as {@code int[]} codes into a per-column
+ *     table of distinct values;</li>
+ *     <li>image URLs split at the last {@code /}: the shared directory is dictionary-encoded and only the file name
+ *     goes into a second arena.</li>
+ * </ul>
+ * A row costs a few dozen bytes instead of a record with eight {@code String}s, and a scan over a column touches one
+ * contiguous array.
+ */
+public final class CharacterColumns {
+
+    private static final CharacterColumns EMPTY = builder(0).build();
+
+    private final int[] ids;
+    private final char[] nameArena;
+    private final int[] nameOffsets;
+    private final DictionaryColumn status;
+    private final DictionaryColumn species;
+    private final DictionaryColumn gender;
+    private final DictionaryColumn origin;
+    private final DictionaryColumn location;
+    private final DictionaryColumn imageBase;
+    private final char[] imageArena;
+    private final int[] imageOffsets;
+
+    private CharacterColumns(int[] ids, char[] nameArena, int[] nameOffsets, DictionaryColumn status,
+                             DictionaryColumn species, DictionaryColumn gender, DictionaryColumn origin,
+                             DictionaryColumn location, DictionaryColumn imageBase, char[] imageArena,
+                             int[] imageOffsets) {
+        this.ids = ids;
+        this.nameArena = nameArena;
+        this.nameOffsets = nameOffsets;
+        this.status = status;
+        this.species = species;
+        this.gender = gender;
+        this.origin = origin;
+        this.location = location;
+        this.imageBase = imageBase;
+        this.imageArena = imageArena;
+        this.imageOffsets = imageOffsets;
+    }
+
+    public static CharacterColumns empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder(int expectedRows) {
+        return new Builder(expectedRows);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int id(int ordinal) {
+        return ids[ordinal];
+    }
+
+    /**
+     * Ordinal of {@code id}, or {@code -1} when the character is not in the store.
+     */
+    public int ordinalOf(int id) {
+        int ordinal = Arrays.binarySearch(ids, id);
+        return ordinal < 0 ? -1 : ordinal;
+    }
+
+    public String name(int ordinal) {
+        return new String(nameArena, nameOffsets[ordinal], nameOffsets[ordinal + 1] - nameOffsets[ordinal]);
+    }
+
+    public DictionaryColumn status() {
+        return status;
+    }
+
+    public DictionaryColumn species() {
+        return species;
+    }
+
+    public DictionaryColumn gender() {
+        return gender;
+    }
+
+    public DictionaryColumn origin() {
+        return origin;
+    }
+
+    public DictionaryColumn location() {
+        return location;
+    }
+
+    public String image(int ordinal) {
+        String base = imageBase.value(ordinal);
+        if (base == null) {
+            return null;
+        }
+        return base + new String(imageArena, imageOffsets[ordinal], imageOffsets[ordinal + 1] - imageOffsets[ordinal]);
+    }
+
+    public ResidentSummaryDto summary(int ordinal) {
+        return new ResidentSummaryDto(ids[ordinal], name(ordinal), status.value(ordinal), species.value(ordinal),
+                image(ordinal));
+    }
+
+    // Array headers plus payloads; dictionary strings are counted as compact Latin-1 strings
+    public long estimatedBytes() {
+        return 16L + 4L * ids.length
+                + 16L + 2L * nameArena.length + 16L + 4L * nameOffsets.length
+                + status.estimatedBytes() + species.estimatedBytes() + gender.estimatedBytes()
+                + origin.estimatedBytes() + location.estimatedBytes() + imageBase.estimatedBytes()
+                + 16L + 2L * imageArena.length + 16L + 4L * imageOffsets.length;
+    }
+
+    /**
+     * One dictionary-encoded column: {@code codes[ordinal]} indexes {@code values}, and {@code -1} stands for null.
+     * Values are in first-seen order.
+     */
+    public static final class DictionaryColumn {
+
+        private final String[] values;
+        private final int[] codes;
+
+        private DictionaryColumn(String[] values, int[] codes) {
+            this.values = values;
+            this.codes = codes;
+        }
+
+        public String value(int ordinal) {
+            int code = codes[ordinal];
+            return code < 0 ? null : values[code];
+        }
+
+        public int code(int ordinal) {
+            return codes[ordinal];
+        }
+
+        public String valueOf(int code) {
+            return code < 0 ? null : values[code];
+        }
+
+        public int cardinality() {
+            return values.length;
+        }
+
+        long estimatedBytes() {
+            long bytes = 16L + 4L * codes.length + 16L + 4L * values.length;
+            for (String value : values) {
+                bytes += 24 + 16 + value.length();
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Accumulates rows in ascending id order; {@link #build()} trims every array to size.
+     */
+    public static final class Builder {
+
+        private int[] ids;
+        private int size;
+        private final CharArena names;
+        private int[] nameOffsets;
+        private final DictionaryBuilder status;
+        private final DictionaryBuilder species;
+        private final DictionaryBuilder gender;
+        private final DictionaryBuilder origin;
+        private final DictionaryBuilder location;
+        private final DictionaryBuilder imageBase;
+        private final CharArena images;
+        private int[] imageOffsets;
+
+        private Builder(int expectedRows) {
+            int capacity = Math.max(expectedRows, 16);
+            ids = new int[capacity];
+            names = new CharArena(capacity * 16);
+            nameOffsets = new int[capacity + 1];
+            images = new CharArena(capacity * 8);
+            imageOffsets = new int[capacity + 1];
+            status = new DictionaryBuilder(capacity);
+            species = new DictionaryBuilder(capacity);
+            gender = new DictionaryBuilder(capacity);
+            origin = new DictionaryBuilder(capacity);
+            location = new DictionaryBuilder(capacity);
+            imageBase = new DictionaryBuilder(capacity);
+        }
+
+        public Builder add(int id, String name, String status, String species, String gender, String origin,
+                           String location, String image) {
+            if (size > 0 && id <= ids[size - 1]) {
+                throw new IllegalArgumentException("ids must be added in ascending order: " + id + " after " + ids[size - 1]);
+            }
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+                imageOffsets = Arrays.copyOf(imageOffsets, capacity + 1);
+            }
+            ids[size] = id;
+            nameOffsets[size + 1] = names.append(name == null ? "" : name);
+            this.status.add(status);
+            this.species.add(species);
+            this.gender.add(gender);
+            this.origin.add(origin);
+            this.location.add(location);
+            int split = image == null ? 0 : image.lastIndexOf('/') + 1;
+            imageBase.add(image == null ? null : image.substring(0, split));
+            imageOffsets[size + 1] = images.append(image == null ? "" : image.substring(split));
+            size++;
+            return this;
+        }
+
+        public CharacterColumns build() {
+            return new CharacterColumns(
+                    Arrays.copyOf(ids, size),
+                    names.toArray(),
+                    Arrays.copyOf(nameOffsets, size + 1),
+                    status.build(),
+                    species.build(),
+                    gender.build(),
+                    origin.build(),
+                    location.build(),
+                    imageBase.build(),
+                    images.toArray(),
+                    Arrays.copyOf(imageOffsets, size + 1));
+        }
+    }
+
+    private static final class CharArena {
+
+        private char[] chars;
+        private int length;
+
+        CharArena(int capacity) {
+            chars = new char[capacity];
+        }
+
+        // returns the end offset of the appended value
+        int append(String value) {
+            if (length + value.length() > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(length + value.length(), chars.length * 2));
+            }
+            value.getChars(0, value.length(), chars, length);
+            length += value.length();
+            return length;
+        }
+
+        char[] toArray() {
+            return Arrays.copyOf(chars, length);
+        }
+    }
+
+    private static final class DictionaryBuilder {
+
+        private final Map<String, Integer> codeOf = new HashMap<>();
+        private String[] values = new String[16];
+        private int[] codes;
+        private int size;
+
+        DictionaryBuilder(int capacity) {
+            codes = new int[capacity];
+        }
+
+        void add(String value) {
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, size * 2);
+            }
+            if (value == null) {
+                codes[size++] = -1;
+                return;
+            }
+            Integer code = codeOf.get(value);
+            if (code == null) {
+                code = codeOf.size();
+                codeOf.put(value, code);
+                if (code == values.length) {
+                    values = Arrays.copyOf(values, code * 2);
+                }
+                values[code] = value;
+            }
+            codes[size++] = code;
+        }
+
+        DictionaryColumn build() {
+            return new DictionaryColumn(Arrays.copyOf(values, codeOf.size()), Arrays.copyOf(codes, size));
+        }
+    }
+}
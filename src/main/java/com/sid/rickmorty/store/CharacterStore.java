@@ -0,0 +1,99 @@
+package com.sid.rickmorty.store;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link CharacterColumns} for the catalogue. It is reloaded after every committed refresh, before
+ * the catalogue version advances, so search and suggestion rebuilds and location responses for that version all derive
+ * from the same columns.
+ * Publication is a single reference swap, so readers never see a partially loaded store. Versions are handed in by the
+ * caller that advances them, so the store depends on nothing above it.
+ */
+@Component
+public class CharacterStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CharacterStore.class);
+
+    // a lazy first load happens before any refresh has handed in a version, so every real reload supersedes it
+    private static final long UNVERSIONED = Long.MIN_VALUE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnly;
+    private final AtomicReference<Versioned> current = new AtomicReference<>();
+
+    public CharacterStore(JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        Gauge.builder("characters.store.size", this, store -> store.peek().size()).register(meterRegistry);
+        Gauge.builder("characters.store.memory", this, store -> store.peek().estimatedBytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The current columns, loading them on first use.
+     */
+    public CharacterColumns columns() {
+        Versioned published = current.get();
+        return published != null ? published.columns() : reload(UNVERSIONED);
+    }
+
+    public CharacterColumns reload(long version) {
+        long started = System.nanoTime();
+        CharacterColumns loaded = readOnly.execute(status -> load());
+        CharacterColumns published = publish(loaded, version);
+        log.info("Character store {} loaded: {} characters in {} ms (~{} KiB){}",
+                version == UNVERSIONED ? "(initial)" : "v" + version, loaded.size(),
+                (System.nanoTime() - started) / 1_000_000, loaded.estimatedBytes() / 1024,
+                published == loaded ? "" : "; superseded, not published");
+        return published;
+    }
+
+    /**
+     * Publishes columns built by the caller (for example from a fixture) unless a newer version is already in place,
+     * and returns whichever columns are current afterwards.
+     */
+    public CharacterColumns publish(CharacterColumns columns, long version) {
+        Versioned candidate = new Versioned(version, columns);
+        return current.accumulateAndGet(candidate,
+                (existing, offered) -> existing == null || offered.version() >= existing.version() ? offered : existing)
+                .columns();
+    }
+
+    private CharacterColumns load() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM characters", Integer.class);
+        CharacterColumns.Builder builder = CharacterColumns.builder(count == null ? 0 : count);
+        jdbcTemplate.query("SELECT id, name, status, species, gender, origin, location, image FROM characters ORDER BY id",
+                (RowCallbackHandler) rs -> builder.add(
+                        rs.getInt(1),
+                        rs.getString(2),
+                        rs.getString(3),
+                        rs.getString(4),
+                        rs.getString(5),
+                        rs.getString(6),
+                        rs.getString(7),
+                        rs.getString(8)));
+        return builder.build();
+    }
+
+    private CharacterColumns peek() {
+        Versioned published = current.get();
+        return published == null ? CharacterColumns.empty() : published.columns();
+    }
+
+    private record Versioned(long version, CharacterColumns columns) {
+    }
+}
@@ -19,10 +19,16 @@ CREATE TABLE IF NOT EXISTS characters (
 CREATE TABLE IF NOT EXISTS location_residents (
     id INTEGER PRIMARY KEY AUTOINCREMENT,
     location_id INTEGER NOT NULL,
-    character_id INTEGER NOT NULL
+    character_id INTEGER NOT NULL,
+    UNIQUE (location_id, character_id)
 );
 
-CREATE UNIQUE INDEX IF NOT EXISTS idx_location_character ON location_residents(location_id, character_id);
+CREATE TABLE IF NOT EXISTS content_hashes (
+    kind TEXT NOT NULL,
+    id INTEGER NOT NULL,
+    hash INTEGER NOT NULL,
+    PRIMARY KEY (kind, id)
+) WITHOUT ROWID;
 
 CREATE TABLE IF NOT EXISTS character_notes (
     id INTEGER PRIMARY KEY AUTOINCREMENT,
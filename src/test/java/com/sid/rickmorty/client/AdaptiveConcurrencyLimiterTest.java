@@ -0,0 +1,311 @@
+package com.sid.rickmorty.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final ExchangeStrategies STRATEGIES = ExchangeStrategies.withDefaults();
+    // high enough that sub-millisecond jitter between stubbed answers never reads as congestion
+    private static final double LATENCY_TOLERANCE = 1_000_000;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FakeUpstream upstream = new FakeUpstream();
+    private final List<String> bodies = new ArrayList<>();
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @AfterEach
+    void everySlotIsReturned() {
+        upstream.answerAll(HttpStatus.OK);
+        assertThat(limiter.inFlight()).isZero();
+        assertThat(limiter.queued()).isZero();
+        assertThat(meterRegistry.get("upstream.limiter.in-flight").gauge().value()).isZero();
+        assertThat(meterRegistry.get("upstream.limiter.queued").gauge().value()).isZero();
+    }
+
+    @Test
+    void requestsBeyondTheLimitWaitInArrivalOrder() {
+        limiter = limiter(2, 1, 4);
+        send(4);
+
+        assertThat(upstream.sent).isEqualTo(2);
+        assertThat(limiter.inFlight()).isEqualTo(2);
+        assertThat(limiter.queued()).isEqualTo(2);
+
+        upstream.answer(HttpStatus.OK);
+        assertThat(upstream.sent).isEqualTo(3);
+        assertThat(limiter.queued()).isEqualTo(1);
+        upstream.answerAll(HttpStatus.OK);
+        assertThat(bodies).containsExactly("0", "1", "2", "3");
+    }
+
+    @Test
+    void theLimitGrowsOnSuccessUpToTheMaximum() {
+        limiter = limiter(2, 1, 4);
+        send(40);
+        double previous = limiter.limit();
+        while (upstream.pending() > 0) {
+            upstream.answer(HttpStatus.OK);
+            assertThat(limiter.limit()).isGreaterThanOrEqualTo(previous).isLessThanOrEqualTo(4);
+            previous = limiter.limit();
+        }
+
+        assertThat(limiter.limit()).isEqualTo(4);
+        assertThat(upstream.peakInFlight).isEqualTo(4);
+        assertThat(bodies).hasSize(40);
+    }
+
+    @Test
+    void aLimitThatIsNotInUseDoesNotGrow() {
+        limiter = limiter(4, 1, 8);
+        for (int i = 0; i < 20; i++) {
+            send(1);
+            upstream.answer(HttpStatus.OK);
+        }
+
+        assertThat(limiter.limit()).isEqualTo(4);
+    }
+
+    @Test
+    void aThrottleHalvesTheLimitOncePerBurst() {
+        limiter = limiter(8, 1, 8);
+        send(8);
+
+        upstream.answer(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(limiter.limit()).isEqualTo(4);
+        // sent before the cut, so the rest of the burst does not cut again
+        upstream.answer(HttpStatus.SERVICE_UNAVAILABLE);
+        upstream.answer(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(limiter.limit()).isEqualTo(4);
+
+        upstream.answerAll(HttpStatus.OK);
+        double regrown = limiter.limit();
+        send(1);
+        upstream.answer(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(limiter.limit()).isEqualTo(regrown / 2);
+        assertThat(counter("upstream.limiter.throttled")).isEqualTo(4);
+        assertThat(decreases("throttled")).isEqualTo(2);
+        assertThat(decreases("error")).isZero();
+    }
+
+    @Test
+    void serverErrorsAndTimeoutsHalveTheLimit() {
+        limiter = limiter(8, 1, 8);
+        send(1);
+        upstream.answer(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertThat(limiter.limit()).isEqualTo(4);
+
+        send(1);
+        upstream.fail(new TimeoutException("response timeout"));
+        assertThat(limiter.limit()).isEqualTo(2);
+        assertThat(decreases("error")).isEqualTo(2);
+        assertThat(counter("upstream.limiter.throttled")).isZero();
+    }
+
+    @Test
+    void aClientErrorIsAPromptAnswerAndDoesNotCut() {
+        limiter = limiter(4, 1, 8);
+        send(1);
+        upstream.answer(HttpStatus.NOT_FOUND);
+
+        assertThat(limiter.limit()).isEqualTo(4);
+        assertThat(decreases("error")).isZero();
+    }
+
+    @Test
+    void theLimitNeverFallsBelowTheMinimum() {
+        limiter = limiter(4, 3, 8);
+        for (int i = 0; i < 3; i++) {
+            send(1);
+            upstream.answer(HttpStatus.TOO_MANY_REQUESTS);
+        }
+
+        assertThat(limiter.limit()).isEqualTo(3);
+    }
+
+    @Test
+    void aCancelledQueuedRequestGivesUpItsPlace() {
+        limiter = limiter(1, 1, 1);
+        send(1);
+        Disposable queued = send(1).getFirst();
+        send(1);
+        assertThat(limiter.queued()).isEqualTo(2);
+
+        queued.dispose();
+        assertThat(limiter.queued()).isEqualTo(1);
+        upstream.answerAll(HttpStatus.OK);
+
+        // the cancelled request was never sent
+        assertThat(upstream.sent).isEqualTo(2);
+        assertThat(bodies).containsExactly("0", "1");
+    }
+
+    @Test
+    void aCancelledOrFailedRequestInFlightReleasesItsSlot() {
+        limiter = limiter(1, 1, 1);
+        Disposable inFlight = send(1).getFirst();
+        send(2);
+
+        inFlight.dispose();
+        assertThat(limiter.inFlight()).isEqualTo(1);
+        assertThat(limiter.queued()).isEqualTo(1);
+        assertThat(upstream.sent).isEqualTo(2);
+
+        upstream.fail(new IllegalStateException("connection reset"));
+        assertThat(upstream.sent).isEqualTo(3);
+        assertThat(limiter.queued()).isZero();
+        upstream.answer(HttpStatus.OK);
+        assertThat(limiter.inFlight()).isZero();
+        // a cancelled request says nothing about upstream, so only the failure counts as a cut
+        assertThat(decreases("error")).isEqualTo(1);
+    }
+
+    @Test
+    void retryAfterHoldsBackNewRequestsUntilItPasses() throws InterruptedException {
+        limiter = new AdaptiveConcurrencyLimiter(4, 1, 8, LATENCY_TOLERANCE, Duration.ofMillis(200), meterRegistry);
+        send(1);
+        upstream.answer(ClientResponse.create(HttpStatus.TOO_MANY_REQUESTS, STRATEGIES)
+                .header(HttpHeaders.RETRY_AFTER, "3600")
+                .body("{}"));
+        send(2);
+        assertThat(upstream.sent).isEqualTo(1);
+        assertThat(limiter.queued()).isEqualTo(2);
+
+        // capped at max-retry-after
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (upstream.sent < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(upstream.sent).isEqualTo(3);
+        assertThat(counter("upstream.limiter.pauses")).isEqualTo(1);
+    }
+
+    @Test
+    void retryAfterIsReadAsSecondsOrAnHttpDate() {
+        limiter = limiter(1, 1, 1);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "120");
+        assertThat(AdaptiveConcurrencyLimiter.retryAfter(headers)).isEqualTo(Duration.ofSeconds(120));
+        headers.set(HttpHeaders.RETRY_AFTER, "Wed, 21 Oct 2015 07:28:00 GMT");
+        assertThat(AdaptiveConcurrencyLimiter.retryAfter(headers)).isEqualTo(Duration.ZERO);
+        headers.set(HttpHeaders.RETRY_AFTER, "soon");
+        assertThat(AdaptiveConcurrencyLimiter.retryAfter(headers)).isNull();
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int initial, int min, int max) {
+        return new AdaptiveConcurrencyLimiter(initial, min, max, LATENCY_TOLERANCE, Duration.ofSeconds(30),
+                meterRegistry);
+    }
+
+    // subscribes count requests as a WebClient would, reading each body to the end
+    private List<Disposable> send(int count) {
+        List<Disposable> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("https://upstream/location"))
+                    .build();
+            requests.add(limiter.filter(request, upstream)
+                    .flatMap(response -> response.bodyToMono(String.class))
+                    .onErrorResume(error -> Mono.empty())
+                    .subscribe(body -> {
+                        if (!body.equals("{}")) {
+                            bodies.add(body);
+                        }
+                    }));
+        }
+        return requests;
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).functionCounter().count();
+    }
+
+    private double decreases(String cause) {
+        return meterRegistry.get("upstream.limiter.decreases").tag("cause", cause).functionCounter().count();
+    }
+
+    /**
+     * Holds every exchange until the test answers it, oldest first. A 200 answer's body is its request's number.
+     */
+    private static final class FakeUpstream implements ExchangeFunction {
+
+        private final Queue<Exchange> pending = new ArrayDeque<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile int sent;
+        private int peakInFlight;
+
+        @Override
+        public Mono<ClientResponse> exchange(ClientRequest request) {
+            Exchange exchange;
+            synchronized (this) {
+                exchange = new Exchange(sent++, Sinks.one());
+                pending.add(exchange);
+                peakInFlight = Math.max(peakInFlight, inFlight.incrementAndGet());
+            }
+            return exchange.response().asMono().doOnCancel(() -> abandoned(exchange));
+        }
+
+        synchronized int pending() {
+            return pending.size();
+        }
+
+        void answer(HttpStatus status) {
+            Exchange next = next();
+            next.response().tryEmitValue(ClientResponse.create(status, STRATEGIES)
+                    .body(status == HttpStatus.OK ? Integer.toString(next.number()) : "{}")
+                    .build());
+        }
+
+        void answer(ClientResponse.Builder response) {
+            next().response().tryEmitValue(response.build());
+        }
+
+        void fail(Throwable error) {
+            next().response().tryEmitError(error);
+        }
+
+        void answerAll(HttpStatus status) {
+            while (pending() > 0) {
+                answer(status);
+            }
+        }
+
+        private synchronized Exchange next() {
+            Exchange next = pending.poll();
+            assertThat(next).as("no request is waiting for an answer").isNotNull();
+            inFlight.decrementAndGet();
+            return next;
+        }
+
+        private synchronized void abandoned(Exchange exchange) {
+            if (pending.remove(exchange)) {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        private record Exchange(int number, Sinks.One<ClientResponse> response) {
+        }
+    }
+}
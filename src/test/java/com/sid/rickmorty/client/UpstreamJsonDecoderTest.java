@@ -0,0 +1,204 @@
+package com.sid.rickmorty.client;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UpstreamJsonDecoderTest {
+
+    private static final String LOCATION_PAGE = """
+            {"info": {"count": 3, "pages": 1, "next": null, "prev": null},
+             "results": [
+               {"id": 1, "name": "Earth (C-137)", "type": "Planet", "dimension": "Dimension C-137",
+                "residents": ["https://rickandmortyapi.com/api/character/38", "https://rickandmortyapi.com/api/character/45"],
+                "url": "https://rickandmortyapi.com/api/location/1", "created": "2017-11-10T12:42:04.162Z"},
+               {"id": 2, "name": "Abadango", "type": "Cluster", "dimension": "Dimensión C-500A",
+                "residents": ["https://rickandmortyapi.com/api/character/6"], "nested": {"deep": [1, {"id": "x"}]}},
+               {"id": 3, "name": "Citadel of Ricks", "type": "Space station", "dimension": null, "residents": []}
+             ]}
+            """;
+
+    private static final String CHARACTER_BATCH = """
+            [{"id": 1, "name": "Rick Sanchez", "status": "Alive", "species": "Human", "gender": "Male",
+              "origin": {"name": "Earth (C-137)", "url": ""}, "location": {"name": "Citadel of Ricks", "url": ""},
+              "image": "https://rickandmortyapi.com/api/character/avatar/1.jpeg", "episode": ["a", "b"]},
+             {"id": 2, "name": "Morty Smith", "status": "Alive", "species": "Human", "gender": "Male",
+              "origin": {"name": "unknown", "url": ""}, "location": null, "image": null}]
+            """;
+
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    @Test
+    void decodesALocationPageAndItsInfo() {
+        ApiPage<ApiLocation> page = decodeLocations(chunks(LOCATION_PAGE, Integer.MAX_VALUE));
+
+        assertThat(page.info()).isEqualTo(new ApiPage.Info(3, 1, null));
+        assertThat(page.results()).containsExactly(
+                new ApiLocation(1, "Earth (C-137)", "Planet", "Dimension C-137", List.of(38, 45)),
+                new ApiLocation(2, "Abadango", "Cluster", "Dimensión C-500A", List.of(6)),
+                new ApiLocation(3, "Citadel of Ricks", "Space station", null, List.of()));
+        assertThat(rejected).hasValue(0);
+    }
+
+    @Test
+    void decodesCharacterBatchesAndSingleRecords() {
+        List<ApiCharacter> batch = decodeCharacters(chunks(CHARACTER_BATCH, Integer.MAX_VALUE));
+        assertThat(batch).containsExactly(
+                new ApiCharacter(1, "Rick Sanchez", "Alive", "Human", "Male", "Earth (C-137)", "Citadel of Ricks",
+                        "https://rickandmortyapi.com/api/character/avatar/1.jpeg"),
+                new ApiCharacter(2, "Morty Smith", "Alive", "Human", "Male", "unknown", "", null));
+
+        List<ApiCharacter> single = decodeCharacters(chunks("""
+                {"id": 7, "name": "Abradolf Lincler", "origin": {"name": "Earth (Replacement Dimension)"}}""",
+                Integer.MAX_VALUE));
+        assertThat(single).containsExactly(
+                new ApiCharacter(7, "Abradolf Lincler", null, null, null, "Earth (Replacement Dimension)", "", null));
+    }
+
+    @Test
+    void everySplitOfTheBodyDecodesTheSameRecords() {
+        ApiPage<ApiLocation> whole = decodeLocations(chunks(LOCATION_PAGE, Integer.MAX_VALUE));
+        List<ApiCharacter> wholeBatch = decodeCharacters(chunks(CHARACTER_BATCH, Integer.MAX_VALUE));
+
+        // one byte at a time splits every token, including multi-byte characters and resident URLs
+        assertThat(decodeLocations(chunks(LOCATION_PAGE, 1))).isEqualTo(whole);
+        assertThat(decodeCharacters(chunks(CHARACTER_BATCH, 1))).isEqualTo(wholeBatch);
+        Random random = new Random(7);
+        for (int trial = 0; trial < 50; trial++) {
+            assertThat(decodeLocations(randomChunks(LOCATION_PAGE, random))).isEqualTo(whole);
+            assertThat(decodeCharacters(randomChunks(CHARACTER_BATCH, random))).isEqualTo(wholeBatch);
+        }
+        assertThat(rejected).hasValue(0);
+    }
+
+    @Test
+    void recordsAreEmittedBeforeTheBodyEnds() {
+        byte[] body = LOCATION_PAGE.getBytes(StandardCharsets.UTF_8);
+        int firstRecordEnd = LOCATION_PAGE.indexOf("\"created\"");
+        firstRecordEnd = LOCATION_PAGE.indexOf('}', firstRecordEnd) + 1;
+        Sinks.Many<DataBuffer> network = Sinks.many().unicast().onBackpressureBuffer();
+        List<ApiLocation> emitted = new CopyOnWriteArrayList<>();
+        AtomicReference<ApiPage.Info> info = new AtomicReference<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Disposable subscription = UpstreamJsonDecoder.records(network.asFlux(), UpstreamJsonDecoder.Shape.PAGE,
+                        "location", UpstreamJsonDecoder::location, rejected::incrementAndGet, info::set)
+                .subscribe(emitted::add, failure::set);
+
+        network.tryEmitNext(wrap(Arrays.copyOfRange(body, 0, firstRecordEnd)));
+        assertThat(info.get()).isEqualTo(new ApiPage.Info(3, 1, null));
+        assertThat(emitted).extracting(ApiLocation::id).containsExactly(1);
+
+        network.tryEmitNext(wrap(Arrays.copyOfRange(body, firstRecordEnd, body.length)));
+        network.tryEmitComplete();
+        assertThat(failure.get()).isNull();
+        assertThat(emitted).extracting(ApiLocation::id).containsExactly(1, 2, 3);
+        subscription.dispose();
+    }
+
+    @Test
+    void malformedRecordsAreDroppedAndCountedWhileTheRestDecodes() {
+        String body = """
+                [{"id": 1, "name": "Rick Sanchez"},
+                 {"name": "No id"},
+                 {"id": "3", "name": "String id"},
+                 {"id": 4, "name": 42},
+                 {"id": 5},
+                 {"id": 6, "name": "Object origin expected", "origin": "Earth"},
+                 {"id": 7, "name": "Null name", "status": null, "nested": {"name": 1}},
+                 {"id": 8, "name": null},
+                 {"id": 9, "name": "Morty Smith", "status": ["Alive"]},
+                 {"id": 10, "name": "Summer Smith"}]
+                """;
+        for (int chunkBytes : new int[]{Integer.MAX_VALUE, 1, 5}) {
+            rejected.set(0);
+            assertThat(decodeCharacters(chunks(body, chunkBytes))).extracting(ApiCharacter::id)
+                    .containsExactly(1, 7, 10);
+            assertThat(rejected).hasValue(7);
+        }
+    }
+
+    @Test
+    void malformedLocationsAreDroppedAndCounted() {
+        String body = """
+                {"info": {"count": 3, "pages": "one"},
+                 "results": [{"id": 1, "name": "Earth", "residents": "none"},
+                             {"id": 2, "name": "Abadango", "residents": [7, "https://x/character/8"]},
+                             {"id": 3, "name": "Citadel", "residents": ["https://x/character/9", null, "bad-url"]}]}
+                """;
+        ApiPage<ApiLocation> page = decodeLocations(chunks(body, 3));
+
+        // an unreadable info object is ignored rather than failing the page
+        assertThat(page.info()).isEqualTo(ApiPage.Info.NONE);
+        assertThat(page.results()).containsExactly(new ApiLocation(3, "Citadel", null, null, List.of(9)));
+        assertThat(rejected).hasValue(2);
+    }
+
+    @Test
+    void invalidOrTruncatedJsonFailsTheBody() {
+        assertThatThrownBy(() -> decodeCharacters(chunks("[{\"id\": 1, \"name\": \"Rick\"}, {\"id\": 2,,}]", 4)))
+                .isInstanceOf(DecodingException.class)
+                .hasMessageContaining("Invalid JSON");
+        assertThatThrownBy(() -> decodeCharacters(chunks("[{\"id\": 1, \"name\": \"Rick\"}, {\"id\": 2", 4)))
+                .isInstanceOf(DecodingException.class)
+                .hasMessageContaining("upstream character response");
+    }
+
+    @Test
+    void anEmptyBodyIsAnEmptyPage() {
+        ApiPage<ApiLocation> page = decodeLocations(Flux.empty());
+
+        assertThat(page.info()).isEqualTo(ApiPage.Info.NONE);
+        assertThat(page.results()).isEmpty();
+    }
+
+    private ApiPage<ApiLocation> decodeLocations(Flux<DataBuffer> body) {
+        return UpstreamJsonDecoder.decode(body, UpstreamJsonDecoder.Shape.PAGE, "location",
+                UpstreamJsonDecoder::location, rejected::incrementAndGet).block();
+    }
+
+    private List<ApiCharacter> decodeCharacters(Flux<DataBuffer> body) {
+        return UpstreamJsonDecoder.records(body, UpstreamJsonDecoder.Shape.RECORDS, "character",
+                UpstreamJsonDecoder::character, rejected::incrementAndGet, info -> { }).collectList().block();
+    }
+
+    private static Flux<DataBuffer> chunks(String json, int chunkBytes) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> chunks = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += Math.min(chunkBytes, bytes.length - offset)) {
+            chunks.add(wrap(Arrays.copyOfRange(bytes, offset, offset + Math.min(chunkBytes, bytes.length - offset))));
+        }
+        return Flux.fromIterable(chunks);
+    }
+
+    private static Flux<DataBuffer> randomChunks(String json, Random random) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> chunks = new ArrayList<>();
+        int offset = 0;
+        while (offset < bytes.length) {
+            int length = Math.min(bytes.length - offset, 1 + random.nextInt(40));
+            chunks.add(wrap(Arrays.copyOfRange(bytes, offset, offset + length)));
+            offset += length;
+        }
+        return Flux.fromIterable(chunks);
+    }
+
+    private static DataBuffer wrap(byte[] bytes) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(bytes);
+    }
+}
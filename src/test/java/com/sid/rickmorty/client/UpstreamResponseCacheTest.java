@@ -0,0 +1,315 @@
+package com.sid.rickmorty.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpstreamResponseCacheTest {
+
+    private static final String BASE_URL = "https://rickandmortyapi.com/api";
+    private static final URI PAGE_ONE = URI.create(BASE_URL + "/location?page=1");
+    private static final String LAST_MODIFIED = "Tue, 14 Oct 2026 10:00:00 GMT";
+    private static final ExchangeStrategies STRATEGIES = ExchangeStrategies.withDefaults();
+
+    @TempDir
+    Path directory;
+
+    private static final String SCHEDULE_HOOK = UpstreamResponseCacheTest.class.getName();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StubExchange upstream = new StubExchange();
+    private final AtomicInteger backgroundTasks = new AtomicInteger();
+
+    // cache files are written off the caller's thread, so each test counts those tasks and waits for them before the
+    // temporary directory is deleted
+    @BeforeEach
+    void countBackgroundTasks() {
+        Schedulers.onScheduleHook(SCHEDULE_HOOK, task -> {
+            backgroundTasks.incrementAndGet();
+            return () -> {
+                try {
+                    task.run();
+                } finally {
+                    backgroundTasks.decrementAndGet();
+                }
+            };
+        });
+    }
+
+    @AfterEach
+    void awaitBackgroundTasks() {
+        try {
+            await(() -> backgroundTasks.get() == 0);
+        } finally {
+            Schedulers.resetOnScheduleHook(SCHEDULE_HOOK);
+        }
+    }
+
+    @Test
+    void aStoredBodyIsRevalidatedWithItsValidatorsAndReusedOn304() {
+        UpstreamResponseCache cache = cache(Duration.ZERO);
+        upstream.respond(ok("{\"page\": 1}").header(HttpHeaders.ETAG, "\"v1\"")
+                .header(HttpHeaders.LAST_MODIFIED, LAST_MODIFIED));
+        assertThat(get(cache)).isEqualTo("{\"page\": 1}");
+        awaitEntries(1);
+
+        upstream.respond(ClientResponse.create(HttpStatus.NOT_MODIFIED, STRATEGIES));
+        ClientResponse replayed = cache.filter(request(), upstream).block();
+
+        assertThat(replayed.statusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(replayed.headers().contentType()).hasValueSatisfying(type ->
+                assertThat(type.toString()).isEqualTo("application/json"));
+        assertThat(replayed.bodyToMono(String.class).block()).isEqualTo("{\"page\": 1}");
+        assertThat(upstream.requests).hasSize(2);
+        assertThat(upstream.requests.get(0).headers().getIfNoneMatch()).isEmpty();
+        HttpHeaders conditional = upstream.requests.get(1).headers();
+        assertThat(conditional.getIfNoneMatch()).containsExactly("\"v1\"");
+        assertThat(conditional.getFirst(HttpHeaders.IF_MODIFIED_SINCE)).isEqualTo(LAST_MODIFIED);
+        assertThat(counter("upstream.cache.misses")).isEqualTo(1);
+        assertThat(counter("upstream.cache.not-modified")).isEqualTo(1);
+        assertThat(counter("upstream.cache.bytes.reused")).isEqualTo("{\"page\": 1}".length());
+    }
+
+    @Test
+    void validatorsAreReplayedAfterARestart() {
+        upstream.respond(ok("{\"page\": 1}").header(HttpHeaders.LAST_MODIFIED, LAST_MODIFIED));
+        get(cache(Duration.ZERO));
+        awaitEntries(1);
+
+        UpstreamResponseCache restarted = new UpstreamResponseCache(directory, BASE_URL, Duration.ZERO, 10,
+                STRATEGIES, new SimpleMeterRegistry());
+        upstream.respond(ClientResponse.create(HttpStatus.NOT_MODIFIED, STRATEGIES));
+
+        assertThat(get(restarted)).isEqualTo("{\"page\": 1}");
+        HttpHeaders conditional = upstream.requests.get(1).headers();
+        assertThat(conditional.getIfNoneMatch()).isEmpty();
+        assertThat(conditional.getFirst(HttpHeaders.IF_MODIFIED_SINCE)).isEqualTo(LAST_MODIFIED);
+    }
+
+    @Test
+    void aChangedBodyReplacesTheEntryAndItsValidators() {
+        UpstreamResponseCache cache = cache(Duration.ZERO);
+        upstream.respond(ok("{\"page\": 1}").header(HttpHeaders.ETAG, "\"v1\""));
+        get(cache);
+        awaitEntries(1);
+        upstream.respond(ok("{\"page\": 2}").header(HttpHeaders.ETAG, "\"v2\""));
+        assertThat(get(cache)).isEqualTo("{\"page\": 2}");
+        await(() -> upstreamSends("\"v2\"", cache));
+
+        upstream.respond(ClientResponse.create(HttpStatus.NOT_MODIFIED, STRATEGIES));
+        assertThat(get(cache)).isEqualTo("{\"page\": 2}");
+    }
+
+    @Test
+    void aFreshEntryIsReusedWithoutAskingUpstream() {
+        UpstreamResponseCache cache = cache(Duration.ofMinutes(5));
+        upstream.respond(ok("{\"page\": 1}"));
+        get(cache);
+        awaitEntries(1);
+
+        assertThat(get(cache)).isEqualTo("{\"page\": 1}");
+        assertThat(upstream.requests).hasSize(1);
+        assertThat(counter("upstream.cache.fresh")).isEqualTo(1);
+    }
+
+    @Test
+    void responsesWithoutValidatorsOrMarkedNoStoreAreNotKept() throws IOException {
+        UpstreamResponseCache cache = cache(Duration.ZERO);
+        upstream.respond(ok("{\"page\": 1}"));
+        get(cache);
+        upstream.respond(ok("{\"page\": 1}").header(HttpHeaders.ETAG, "\"v1\"")
+                .header(HttpHeaders.CACHE_CONTROL, "no-store"));
+        get(cache);
+        upstream.respond(ok("{\"page\": 1}"));
+        get(cache);
+
+        assertThat(upstream.requests).extracting(request -> request.headers().getIfNoneMatch()).allMatch(List::isEmpty);
+        assertThat(gauge()).isZero();
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void aCorruptStoredBodyIsDroppedAndDownloadedAgain() throws IOException {
+        UpstreamResponseCache cache = cache(Duration.ZERO);
+        upstream.respond(ok("{\"page\": 1}").header(HttpHeaders.ETAG, "\"v1\""));
+        get(cache);
+        awaitEntries(1);
+        Files.write(stored(".gz"), "not gzip".getBytes(StandardCharsets.UTF_8));
+
+        upstream.respond(ClientResponse.create(HttpStatus.NOT_MODIFIED, STRATEGIES));
+        upstream.respond(ok("{\"page\": \"again\"}").header(HttpHeaders.ETAG, "\"v2\""));
+
+        assertThat(get(cache)).isEqualTo("{\"page\": \"again\"}");
+        assertThat(upstream.requests).hasSize(3);
+        assertThat(upstream.requests.get(2).headers().getIfNoneMatch()).isEmpty();
+        awaitEntries(1);
+        await(() -> upstreamSends("\"v2\"", cache));
+    }
+
+    @Test
+    void unreadableEntriesOnDiskAreIgnoredAtStartup() throws IOException {
+        Files.writeString(directory.resolve("a.properties"), "key=/location?page=1\nstored-at=yesterday\n");
+        Files.write(directory.resolve("a.gz"), new byte[]{1, 2, 3});
+        Files.writeString(directory.resolve("b.properties"), "key=/location?page=1\netag=\"v1\"\n");
+        Files.writeString(directory.resolve("c.gz.part"), "half a body");
+
+        UpstreamResponseCache cache = cache(Duration.ZERO);
+        upstream.respond(ok("{\"page\": 1}"));
+
+        assertThat(gauge()).isZero();
+        assertThat(get(cache)).isEqualTo("{\"page\": 1}");
+        assertThat(upstream.requests.get(0).headers().getIfNoneMatch()).isEmpty();
+        assertThat(directory.resolve("c.gz.part")).doesNotExist();
+    }
+
+    @Test
+    void concurrentDownloadsOfOneKeyLeaveOneCompleteEntry() throws IOException {
+        UpstreamResponseCache cache = cache(Duration.ZERO);
+        List<String> bodies = IntStream.range(0, 16).mapToObj(i -> "{\"version\": " + i + "}").toList();
+        bodies.forEach(body -> upstream.respond(ok(body).header(HttpHeaders.ETAG, "\"" + body.hashCode() + "\"")));
+
+        Flux.range(0, bodies.size())
+                .flatMap(i -> cache.filter(request(), upstream)
+                        .flatMap(response -> response.bodyToMono(String.class))
+                        .subscribeOn(Schedulers.boundedElastic()), bodies.size())
+                .blockLast();
+        awaitEntries(1);
+        await(() -> {
+            try (Stream<Path> files = Files.list(directory)) {
+                return files.noneMatch(file -> file.toString().endsWith(".part"));
+            } catch (IOException e) {
+                return false;
+            }
+        });
+
+        upstream.respond(ClientResponse.create(HttpStatus.NOT_MODIFIED, STRATEGIES));
+        String replayed = get(cache);
+        assertThat(bodies).contains(replayed);
+        assertThat(upstream.requests.getLast().headers().getIfNoneMatch())
+                .containsExactly("\"" + replayed.hashCode() + "\"");
+    }
+
+    private UpstreamResponseCache cache(Duration ttl) {
+        return new UpstreamResponseCache(directory, BASE_URL, ttl, 10, STRATEGIES, meterRegistry);
+    }
+
+    private String get(UpstreamResponseCache cache) {
+        return cache.filter(request(), upstream).flatMap(response -> response.bodyToMono(String.class)).block();
+    }
+
+    private static ClientRequest request() {
+        return ClientRequest.create(HttpMethod.GET, PAGE_ONE).build();
+    }
+
+    private static ClientResponse.Builder ok(String body) {
+        return ClientResponse.create(HttpStatus.OK, STRATEGIES)
+                .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                .body(body);
+    }
+
+    // whether the next conditional request carries etag; answered from the cache, so nothing is downloaded
+    private boolean upstreamSends(String etag, UpstreamResponseCache cache) {
+        upstream.respond(ClientResponse.create(HttpStatus.NOT_MODIFIED, STRATEGIES));
+        get(cache);
+        return upstream.requests.getLast().headers().getIfNoneMatch().equals(List.of(etag));
+    }
+
+    private Path stored(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(suffix)).findFirst().orElseThrow();
+        }
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).functionCounter().count();
+    }
+
+    private double gauge() {
+        return meterRegistry.get("upstream.cache.entries").gauge().value();
+    }
+
+    // entries are written off the caller's thread once the body has been read
+    private void awaitEntries(int expected) {
+        await(() -> gauge() == expected && Files.exists(directory) && storedFiles() == 2 * expected);
+    }
+
+    private long storedFiles() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> !file.toString().endsWith(".part")).count();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 5s").isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    /**
+     * Answers each exchange with the next queued response and records the requests it was sent.
+     */
+    private static final class StubExchange implements ExchangeFunction {
+
+        private final List<ClientRequest> requests = new CopyOnWriteArrayList<>();
+        private final Queue<ClientResponse.Builder> responses = new ArrayDeque<>();
+
+        void respond(ClientResponse.Builder response) {
+            synchronized (responses) {
+                responses.add(response);
+            }
+        }
+
+        @Override
+        public Mono<ClientResponse> exchange(ClientRequest request) {
+            return Mono.fromCallable(() -> {
+                requests.add(request);
+                synchronized (responses) {
+                    ClientResponse.Builder next = responses.poll();
+                    assertThat(next).as("unexpected upstream request %s", request.url()).isNotNull();
+                    return next.build();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.sid.rickmorty.client.fixture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FixtureRecorderTest {
+
+    private static final String BASE_URL = "https://rickandmortyapi.com/api";
+    private static final ExchangeStrategies STRATEGIES = ExchangeStrategies.withDefaults();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void aSuccessfulBodyIsRecordedUnderItsPathAndQueryAndPassedOn() throws IOException {
+        WebClient client = client(ClientResponse.create(HttpStatus.OK, STRATEGIES).body("{\"page\": 2}"));
+
+        assertThat(get(client, "/location?page=2")).isEqualTo("{\"page\": 2}");
+
+        String file = FixtureRecorder.fileName("/location?page=2");
+        assertThat(index()).containsExactly("/location?page=2\t" + file);
+        assertThat(recorded(file)).isEqualTo("{\"page\": 2}");
+        try (var files = Files.list(directory)) {
+            assertThat(files.map(path -> path.getFileName().toString())).noneMatch(name -> name.endsWith(".part"));
+        }
+    }
+
+    @Test
+    void anErrorResponseIsNotRecorded() throws IOException {
+        WebClient client = client(ClientResponse.create(HttpStatus.NOT_FOUND, STRATEGIES)
+                .body("{\"error\":\"There is nothing here\"}"));
+
+        HttpStatusCode status = client.get().uri("/location?page=99")
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode()))
+                .block();
+
+        assertThat(status).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(Files.exists(directory.resolve(FixtureRecorder.INDEX))).isFalse();
+    }
+
+    @Test
+    void recordingARequestAgainReplacesItsBody() throws IOException {
+        WebClient first = client(ClientResponse.create(HttpStatus.OK, STRATEGIES).body("{\"v\": 1}"));
+        get(first, "/character/1,2");
+        WebClient second = client(ClientResponse.create(HttpStatus.OK, STRATEGIES).body("{\"v\": 2}"));
+        get(second, "/character/1,2");
+
+        String file = FixtureRecorder.fileName("/character/1,2");
+        // the index keeps both lines and a replay takes the last, which names the same file
+        assertThat(index()).containsExactly("/character/1,2\t" + file, "/character/1,2\t" + file);
+        assertThat(recorded(file)).isEqualTo("{\"v\": 2}");
+    }
+
+    @Test
+    void keysAreRelativeToTheApiBase() {
+        FixtureRecorder recorder = new FixtureRecorder(directory, BASE_URL + "/");
+
+        assertThat(recorder.key(URI.create(BASE_URL + "/location?page=3"))).isEqualTo("/location?page=3");
+        assertThat(recorder.key(URI.create(BASE_URL + "/character/7"))).isEqualTo("/character/7");
+        assertThat(new FixtureRecorder(directory, "http://127.0.0.1:8080").key(URI.create("http://127.0.0.1:8080/location")))
+                .isEqualTo("/location");
+    }
+
+    private WebClient client(ClientResponse.Builder response) {
+        return WebClient.builder()
+                .baseUrl(BASE_URL)
+                .exchangeFunction(request -> Mono.fromSupplier(response::build))
+                .filter(new FixtureRecorder(directory, BASE_URL))
+                .build();
+    }
+
+    private static String get(WebClient client, String path) {
+        return client.get().uri(URI.create(BASE_URL + path)).retrieve().bodyToMono(String.class).block();
+    }
+
+    private List<String> index() throws IOException {
+        return Files.readAllLines(directory.resolve(FixtureRecorder.INDEX), StandardCharsets.UTF_8);
+    }
+
+    private String recorded(String file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(directory.resolve(file)))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
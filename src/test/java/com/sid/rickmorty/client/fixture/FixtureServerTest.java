@@ -0,0 +1,213 @@
+package com.sid.rickmorty.client.fixture;
+
+import com.sid.rickmorty.client.ApiCharacter;
+import com.sid.rickmorty.client.ApiLocation;
+import com.sid.rickmorty.client.ApiPage;
+import com.sid.rickmorty.client.RickAndMortyClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FixtureServerTest {
+
+    private static final String BASE_URL = "https://rickandmortyapi.com/api";
+    private static final ExchangeStrategies STRATEGIES = ExchangeStrategies.withDefaults();
+    private static final Path RECORDED_CATALOGUE = Path.of("src/jmh/fixtures/rickmorty");
+
+    private static final String LOCATIONS = """
+            {"info":{"count":2,"pages":1,"next":null,"prev":null},"results":[
+            {"id":1,"name":"Earth (C-137)","type":"Planet","dimension":"Dimension C-137",
+             "residents":["%1$s/character/1","%1$s/character/2"],"url":"%1$s/location/1"},
+            {"id":3,"name":"Citadel of Ricks","type":"Space station","dimension":"unknown",
+             "residents":["%1$s/character/2"],"url":"%1$s/location/3"}]}""".formatted(BASE_URL);
+    private static final String CHARACTERS = """
+            [{"id":1,"name":"Rick Sanchez","status":"Alive","species":"Human","gender":"Male",
+              "origin":{"name":"Earth (C-137)","url":"%1$s/location/1"},
+              "location":{"name":"Citadel of Ricks","url":"%1$s/location/3"},
+              "image":"%1$s/character/avatar/1.jpeg","url":"%1$s/character/1"},
+             {"id":2,"name":"Morty Smith","status":"Alive","species":"Human","gender":"Male",
+              "origin":{"name":"unknown","url":""},
+              "location":{"name":"Citadel of Ricks","url":"%1$s/location/3"},
+              "image":"%1$s/character/avatar/2.jpeg","url":"%1$s/character/2"}]""".formatted(BASE_URL);
+
+    @TempDir
+    Path directory;
+
+    private final List<FixtureServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void stopServers() {
+        servers.forEach(FixtureServer::close);
+    }
+
+    @Test
+    void recordedResponsesAreReplayedToTheClient() throws IOException {
+        RickAndMortyClient upstream = record();
+        ApiPage<ApiLocation> recordedPage = upstream.fetchLocationsPage(1).block();
+        List<ApiCharacter> recordedCharacters = upstream.fetchCharactersBatch(List.of(1, 2)).block();
+
+        RickAndMortyClient replay = client(start(1, 0));
+
+        ApiPage<ApiLocation> page = replay.fetchLocationsPage(1).block();
+        assertThat(page.results()).isEqualTo(recordedPage.results());
+        assertThat(page.info()).isEqualTo(new ApiPage.Info(2, 1, null));
+        assertThat(replay.fetchCharactersBatch(List.of(1, 2)).block()).isEqualTo(recordedCharacters);
+        assertThat(replay.fetchCharacter(2).block()).isEqualTo(recordedCharacters.get(1));
+    }
+
+    @Test
+    void requestsOutsideTheRecordingAreNotFound() throws IOException {
+        record();
+        WebClient replay = WebClient.create(start(1, 0).baseUrl());
+
+        assertThat(exchange(replay, "/location?page=2", null).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(exchange(replay, "/character/3", null).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        // like the real API, unknown ids in a batch are skipped
+        assertThat(exchange(replay, "/character/2,3", null).getBody()).contains("Morty Smith").doesNotContain("\"id\":3");
+    }
+
+    @Test
+    void aScaledCatalogueRepeatsTheRecordingUnderShiftedIds() throws IOException {
+        record();
+        FixtureServer server = start(3, 0);
+        RickAndMortyClient replay = client(server);
+
+        assertThat(server.locationCount()).isEqualTo(6);
+        assertThat(server.characterCount()).isEqualTo(6);
+        ApiPage<ApiLocation> page = replay.fetchLocationsPage(1).block();
+        // ids shift by the highest recorded id, and residents point into their own copy
+        assertThat(page.results()).extracting(ApiLocation::id).containsExactly(1, 3, 4, 6, 7, 9);
+        assertThat(page.results()).extracting(ApiLocation::residentIds)
+                .containsExactly(List.of(1, 2), List.of(2), List.of(3, 4), List.of(4), List.of(5, 6), List.of(6));
+        assertThat(replay.fetchCharactersBatch(List.of(5, 6)).block())
+                .extracting(ApiCharacter::name).containsExactly("Rick Sanchez", "Morty Smith");
+    }
+
+    @Test
+    void aMatchingIfNoneMatchIsAnsweredWithAnEmpty304() throws IOException {
+        record();
+        WebClient replay = WebClient.create(start(1, 0).baseUrl());
+
+        ResponseEntity<String> first = exchange(replay, "/location?page=1", null);
+        String etag = first.getHeaders().getETag();
+        assertThat(etag).isNotBlank();
+
+        ResponseEntity<String> revalidated = exchange(replay, "/location?page=1", etag);
+        assertThat(revalidated.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(revalidated.getBody()).isNull();
+        assertThat(exchange(replay, "/location?page=1", "\"stale\"").getBody()).isEqualTo(first.getBody());
+    }
+
+    @Test
+    void requestsBeyondTheCapacityAreTurnedAwayWithRetryAfter() throws IOException {
+        record();
+        FixtureServer server = start(1, 1, Duration.ofMillis(300));
+        WebClient replay = WebClient.create(server.baseUrl());
+
+        List<ResponseEntity<String>> answers = Flux.range(1, 2)
+                .flatMap(i -> Mono.fromCallable(() -> exchange(replay, "/character/" + i, null))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .collectList()
+                .block();
+
+        assertThat(answers).extracting(ResponseEntity::getStatusCode)
+                .containsExactlyInAnyOrder(HttpStatus.OK, HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(answers).filteredOn(answer -> answer.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS)
+                .singleElement()
+                .satisfies(answer -> assertThat(answer.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1"));
+        assertThat(server.turnedAway()).isEqualTo(1);
+    }
+
+    @Test
+    void theCommittedFixturesReplayAWholeCatalogueOffline() throws IOException {
+        FixtureServer server = track(FixtureServer.start(RECORDED_CATALOGUE, 0, Duration.ZERO, 1));
+        RickAndMortyClient replay = client(server);
+
+        List<ApiLocation> locations = new ArrayList<>();
+        ApiPage<ApiLocation> page = replay.fetchLocationsPage(1).block();
+        locations.addAll(page.results());
+        for (int next = 2; next <= page.info().pages(); next++) {
+            locations.addAll(replay.fetchLocationsPage(next).block().results());
+        }
+        assertThat(page.info().count()).isEqualTo(server.locationCount());
+        assertThat(locations).hasSize(server.locationCount());
+
+        TreeSet<Integer> residents = new TreeSet<>();
+        locations.forEach(location -> residents.addAll(location.residentIds()));
+        List<Integer> ids = List.copyOf(residents);
+        List<ApiCharacter> characters = Flux.range(0, Math.ceilDiv(ids.size(), 100))
+                .concatMap(batch -> replay.streamCharactersBatch(
+                        ids.subList(batch * 100, Math.min(ids.size(), (batch + 1) * 100))))
+                .collectList()
+                .block();
+        assertThat(characters).extracting(ApiCharacter::id).containsExactlyElementsOf(ids);
+        assertThat(characters).allSatisfy(character -> assertThat(character.name()).isNotBlank());
+    }
+
+    // records the two fixture requests through the filter the application uses, and returns the recording client
+    private RickAndMortyClient record() {
+        Map<String, String> bodies = Map.of("/api/location", LOCATIONS, "/api/character/1,2", CHARACTERS);
+        WebClient recording = WebClient.builder()
+                .baseUrl(BASE_URL)
+                .exchangeFunction(request -> Mono.fromSupplier(() ->
+                        ClientResponse.create(HttpStatus.OK, STRATEGIES)
+                                .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                                .body(bodies.get(request.url().getPath()))
+                                .build()))
+                .filter(new FixtureRecorder(directory, BASE_URL))
+                .build();
+        RickAndMortyClient client = new RickAndMortyClient(recording, new SimpleMeterRegistry());
+        client.fetchLocationsPage(1).block();
+        client.fetchCharactersBatch(List.of(1, 2)).block();
+        return client;
+    }
+
+    private FixtureServer start(int scale, int capacity) throws IOException {
+        return start(scale, capacity, Duration.ZERO);
+    }
+
+    private FixtureServer start(int scale, int capacity, Duration latency) throws IOException {
+        return track(FixtureServer.start(directory, 0, latency, scale, capacity));
+    }
+
+    private FixtureServer track(FixtureServer server) {
+        servers.add(server);
+        return server;
+    }
+
+    private static RickAndMortyClient client(FixtureServer server) {
+        return new RickAndMortyClient(WebClient.create(server.baseUrl()), new SimpleMeterRegistry());
+    }
+
+    private static ResponseEntity<String> exchange(WebClient client, String path, String ifNoneMatch) {
+        return client.get()
+                .uri(path)
+                .headers(headers -> {
+                    if (ifNoneMatch != null) {
+                        headers.setIfNoneMatch(ifNoneMatch);
+                    }
+                })
+                .exchangeToMono(response -> response.toEntity(String.class))
+                .block();
+    }
+}
@@ -0,0 +1,144 @@
+package com.sid.rickmorty.controller;
+
+import com.sid.rickmorty.service.LocationResponseCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Conditional and encoded requests for the pre-serialized {@code /api/locations} body: a 304 is only ever answered
+ * for the ETag of the encoding the request negotiated, and always carries that ETag.
+ */
+@SpringBootTest(properties = {
+        "rickmorty.ingestion.enabled=false",
+        "rickmorty.upstream.cache.dir=",
+        "logging.level.com.sid.rickmorty=WARN"
+})
+@AutoConfigureMockMvc
+class LocationControllerTest {
+
+    private static final Path DATABASE = temporaryDatabase();
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    LocationResponseCache responseCache;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + DATABASE);
+    }
+
+    @BeforeEach
+    void oneLocation() {
+        jdbcTemplate.update("INSERT OR REPLACE INTO locations(id, name, type, dimension) VALUES(1, 'Earth (C-137)', "
+                + "'Planet', 'Dimension C-137')");
+    }
+
+    @Test
+    void plainRequestGetsTheJsonBodyWithThePlainEtag() throws Exception {
+        LocationResponseCache.Body body = responseCache.current();
+        MvcResult result = mockMvc.perform(get("/api/locations"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, body.etag()))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn();
+        assertThat(result.getResponse().getContentAsString()).contains("Earth (C-137)");
+    }
+
+    @Test
+    void gzipRequestGetsTheCompressedBodyWithTheGzipEtag() throws Exception {
+        LocationResponseCache.Body body = responseCache.current();
+        MvcResult result = mockMvc.perform(get("/api/locations").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, body.gzipEtag()))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            assertThat(in.readAllBytes()).isEqualTo(body.json());
+        }
+    }
+
+    @Test
+    void matchingTagForTheNegotiatedEncodingIsNotModified() throws Exception {
+        LocationResponseCache.Body body = responseCache.current();
+        mockMvc.perform(get("/api/locations").header(HttpHeaders.IF_NONE_MATCH, body.etag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, body.etag()));
+        mockMvc.perform(get("/api/locations")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"stale\", " + body.gzipEtag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, body.gzipEtag()));
+    }
+
+    @Test
+    void weakTagIsComparedWeakly() throws Exception {
+        LocationResponseCache.Body body = responseCache.current();
+        mockMvc.perform(get("/api/locations").header(HttpHeaders.IF_NONE_MATCH, "W/" + body.etag()))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void tagForTheOtherEncodingGetsTheFullBody() throws Exception {
+        LocationResponseCache.Body body = responseCache.current();
+        // cached gzip, now asking for identity
+        mockMvc.perform(get("/api/locations")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "identity")
+                        .header(HttpHeaders.IF_NONE_MATCH, body.gzipEtag()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, body.etag()))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+        // cached identity, now asking for gzip
+        mockMvc.perform(get("/api/locations")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, body.etag()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, body.gzipEtag()))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+    }
+
+    @Test
+    void gzipRefusedWithZeroQualityFallsBackToPlain() throws Exception {
+        LocationResponseCache.Body body = responseCache.current();
+        mockMvc.perform(get("/api/locations").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, body.etag()))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    private static Path temporaryDatabase() {
+        try {
+            Path directory = Files.createTempDirectory("rickmorty-test");
+            directory.toFile().deleteOnExit();
+            return directory.resolve("catalogue.db");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.sid.rickmorty.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FuzzyMatcherTest {
+
+    private static final String[][] EDGE_CASES = {
+            {"", ""}, {"", "rick"}, {"rick", ""}, {" ", "rick"}, {"rick", "   "},
+            {"rick", "rick"}, {"rick", "kcir"}, {"a", "b"}, {"a", "a"}, {"ab", "ba"},
+            {"rick sanchez", "rik sanchz"}, {"morty smith", "smith morty"}, {"abc", "xyzxyzxyz"},
+            {"birdperson", "bird person"}, {"mr. poopybutthole", "mr poopy butthole"},
+            {"squanchy", "squanchy squanchy squanchy squanchy squanchy"},
+            {"a".repeat(40), "a".repeat(39) + "b"}, {"ab".repeat(30), "ba".repeat(30)},
+            {"zeta-alpha-7", "zeta alpha 7"}, {"évil morty", "evil morty"}
+    };
+
+    @Test
+    void similarityMatchesFullMatrixOnEdgeCases() {
+        for (String[] pair : EDGE_CASES) {
+            assertThat(FuzzyMatcher.similarityScore(pair[0], pair[1]))
+                    .as("%s / %s", pair[0], pair[1])
+                    .isEqualTo(referenceScore(pair[0], pair[1]));
+        }
+    }
+
+    @Test
+    void similarityMatchesFullMatrixOnRandomPairs() {
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            String a = randomString(random, 14);
+            String b = random.nextInt(4) == 0 ? mutate(random, a) : randomString(random, 14);
+            assertThat(FuzzyMatcher.similarityScore(a, b)).as("%s / %s", a, b).isEqualTo(referenceScore(a, b));
+        }
+    }
+
+    @Test
+    void boundedDistanceIsExactUpToTheBoundAndOverflowsBeyondIt() {
+        Random random = new Random(11);
+        for (int i = 0; i < 5_000; i++) {
+            String a = randomString(random, 12);
+            String b = random.nextBoolean() ? mutate(random, a) : randomString(random, 12);
+            int exact = referenceDistance(a, b);
+            for (int bound = -1; bound <= Math.max(a.length(), b.length()) + 1; bound++) {
+                assertThat(FuzzyMatcher.distance(a, b, bound))
+                        .as("%s / %s within %d", a, b, bound)
+                        .isEqualTo(bound < 0 ? 0 : Math.min(exact, bound + 1));
+            }
+        }
+    }
+
+    @Test
+    void mustExceedOnlyPrunesScoresThatCannotWin() {
+        Random random = new Random(13);
+        for (int i = 0; i < 20_000; i++) {
+            String a = randomString(random, 14);
+            String b = random.nextBoolean() ? mutate(random, a) : randomString(random, 14);
+            double expected = referenceScore(a, b);
+            double mustExceed = switch (random.nextInt(4)) {
+                case 0 -> expected;
+                case 1 -> Math.nextDown(expected);
+                case 2 -> Math.nextUp(expected);
+                default -> random.nextDouble() * 100;
+            };
+            assertPruned(a, b, mustExceed, expected);
+        }
+    }
+
+    // a threshold a hair below an attainable score puts maxLen * (1 - mustExceed / 100) just under the distance that
+    // reaches it, so flooring alone would drop that edit from the band
+    @Test
+    void boundFlooringKeepsScoresJustAboveTheThreshold() {
+        for (int length = 1; length <= 24; length++) {
+            String a = "x".repeat(length);
+            for (int distance = 0; distance < length; distance++) {
+                String b = "y".repeat(distance) + "x".repeat(length - distance);
+                double expected = referenceScore(a, b);
+                assertThat(FuzzyMatcher.similarityScore(a, b, Math.nextDown(expected)))
+                        .as("length %d, distance %d", length, distance)
+                        .isEqualTo(expected);
+                assertPruned(a, b, expected, expected);
+            }
+        }
+    }
+
+    @Test
+    void thresholdsAboveEveryScoreShortCircuit() {
+        assertThat(FuzzyMatcher.similarityScore("rick", "rick", 100)).isZero();
+        assertThat(FuzzyMatcher.similarityScore("rick", "rick", 100.5)).isZero();
+        assertThat(FuzzyMatcher.similarityScore("rick", "morty", 99)).isZero();
+        assertThat(FuzzyMatcher.similarityScore("rick", "rick", -1)).isEqualTo(100);
+    }
+
+    private static void assertPruned(String a, String b, double mustExceed, double expected) {
+        double pruned = FuzzyMatcher.similarityScore(a, b, mustExceed);
+        if (expected > mustExceed) {
+            assertThat(pruned).as("%s / %s above %s", a, b, mustExceed).isEqualTo(expected);
+        } else {
+            assertThat(pruned).as("%s / %s above %s", a, b, mustExceed).isLessThanOrEqualTo(mustExceed);
+        }
+    }
+
+    // The full-matrix scorer FuzzyMatcher replaced, kept verbatim as the reference
+    private static double referenceScore(String nameLower, String normalizedQuery) {
+        if (nameLower.isBlank() || normalizedQuery.isBlank()) {
+            return 0;
+        }
+        int distance = referenceDistance(nameLower, normalizedQuery);
+        int maxLen = Math.max(nameLower.length(), normalizedQuery.length());
+        double similarity = maxLen == 0 ? 0 : 1.0 - ((double) distance / maxLen);
+        return Math.max(0, similarity) * 100;
+    }
+
+    private static int referenceDistance(String a, String b) {
+        int[][] dp = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            dp[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            dp[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                dp[i][j] = Math.min(
+                        Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1),
+                        dp[i - 1][j - 1] + cost
+                );
+            }
+        }
+        return dp[a.length()][b.length()];
+    }
+
+    // a small alphabet so random pairs share characters and land on every distance, not just the maximum
+    private static String randomString(Random random, int maxLength) {
+        char[] chars = new char[random.nextInt(maxLength + 1)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = "abcd ".charAt(random.nextInt(5));
+        }
+        return new String(chars);
+    }
+
+    private static String mutate(Random random, String value) {
+        StringBuilder mutated = new StringBuilder(value);
+        for (int edits = random.nextInt(4); edits > 0; edits--) {
+            int at = mutated.isEmpty() ? 0 : random.nextInt(mutated.length());
+            switch (random.nextInt(3)) {
+                case 0 -> mutated.insert(at, "abcd".charAt(random.nextInt(4)));
+                case 1 -> {
+                    if (!mutated.isEmpty()) {
+                        mutated.deleteCharAt(at);
+                    }
+                }
+                default -> {
+                    if (!mutated.isEmpty()) {
+                        mutated.setCharAt(at, "abcd".charAt(random.nextInt(4)));
+                    }
+                }
+            }
+        }
+        return mutated.toString();
+    }
+}
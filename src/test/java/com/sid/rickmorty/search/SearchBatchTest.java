@@ -0,0 +1,53 @@
+package com.sid.rickmorty.search;
+
+import com.sid.rickmorty.model.dto.BatchSearchResultDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SearchBatchTest {
+
+    private final SearchService service =
+            TestCatalogue.service(TestCatalogue.columns(5_000, 17), ScoringMode.SEQUENTIAL, Integer.MAX_VALUE, 0);
+
+    @Test
+    void eachQueryResolvesLikeASingleSearch() {
+        List<String> queries = new ArrayList<>(TestCatalogue.QUERIES);
+        Collections.shuffle(queries, new Random(1));
+        for (Integer limit : new Integer[]{null, 3, 100}) {
+            List<BatchSearchResultDto> results = service.searchBatch(queries, limit);
+            assertThat(results).extracting(BatchSearchResultDto::query).isEqualTo(queries);
+            for (BatchSearchResultDto result : results) {
+                assertThat(result.results()).as("%s, limit %s", result.query(), limit)
+                        .isEqualTo(service.search(result.query(), limit));
+            }
+        }
+    }
+
+    @Test
+    void duplicatesAndBlankQueriesKeepTheirSlots() {
+        List<String> queries = Arrays.asList("rick sanchez", "", "  RICK SANCHEZ ", null, "smith", "rick sanchez");
+        List<BatchSearchResultDto> results = service.searchBatch(queries, 10);
+        assertThat(results).extracting(BatchSearchResultDto::query).isEqualTo(queries);
+        assertThat(results.get(0).results()).isNotEmpty().isEqualTo(service.search("rick sanchez", 10));
+        assertThat(results.get(2).results()).isEqualTo(results.get(0).results());
+        assertThat(results.get(5).results()).isEqualTo(results.get(0).results());
+        assertThat(results.get(1).results()).isEmpty();
+        assertThat(results.get(3).results()).isEmpty();
+        assertThat(results.get(4).results()).isEqualTo(service.search("smith", 10));
+    }
+
+    @Test
+    void rejectsBatchesOverTheConfiguredMaximum() {
+        assertThat(service.searchBatch(Collections.nCopies(50, "rick"), 1)).hasSize(50);
+        assertThatThrownBy(() -> service.searchBatch(Collections.nCopies(51, "rick"), 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
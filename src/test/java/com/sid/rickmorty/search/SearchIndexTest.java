@@ -0,0 +1,55 @@
+package com.sid.rickmorty.search;
+
+import com.sid.rickmorty.store.CharacterColumns;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchIndexTest {
+
+    private SearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        CharacterColumns columns = CharacterColumns.builder(4)
+                .add(1, "Rick Sanchez", "Alive", "Human", "Male", "Earth (C-137)", "Citadel of Ricks", null)
+                .add(2, "Morty Smith", "Alive", "Human", "Male", "unknown", "Earth", null)
+                .add(3, "Summer Smith", "Alive", "Human", "Female", "Earth (Replacement Dimension)", "Earth", null)
+                .add(4, "Birdperson", "Dead", "Alien", "Male", "Bird World", "Planet Squanch", null)
+                .build();
+        index = SearchSnapshot.build(columns, 1).index();
+    }
+
+    @Test
+    void prefixOfAnyTokenIsACandidate() {
+        assertThat(index.candidates(new String[]{"san"})).containsExactly(0);
+        assertThat(index.candidates(new String[]{"smi"})).containsExactly(1, 2);
+        assertThat(index.candidates(new String[]{"hu"})).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void termsOfThreeOrMoreCharactersMatchMidWord() {
+        assertThat(index.candidates(new String[]{"anchez"})).containsExactly(0);
+        assertThat(index.candidates(new String[]{"person"})).containsExactly(3);
+        assertThat(index.candidates(new String[]{"uman"})).containsExactly(0, 1, 2);
+        assertThat(index.candidates(new String[]{"ummer"})).containsExactly(2);
+    }
+
+    @Test
+    void shortTermsOnlyMatchAsPrefix() {
+        assertThat(index.candidates(new String[]{"ez"})).isEmpty();
+        assertThat(index.candidates(new String[]{"mi"})).isEmpty();
+    }
+
+    @Test
+    void termsWithoutAContainingTokenAreNotCandidates() {
+        assertThat(index.candidates(new String[]{"anchezz"})).isEmpty();
+        assertThat(index.candidates(new String[]{"chezsan"})).isEmpty();
+    }
+
+    @Test
+    void candidatesFromSeveralTermsAreMergedInOrdinalOrder() {
+        assertThat(index.candidates(new String[]{"irdper", "anchez", "rick"})).containsExactly(0, 3);
+    }
+}
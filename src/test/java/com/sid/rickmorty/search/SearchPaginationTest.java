@@ -0,0 +1,106 @@
+package com.sid.rickmorty.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sid.rickmorty.controller.SearchController;
+import com.sid.rickmorty.model.dto.ResidentSummaryDto;
+import com.sid.rickmorty.model.dto.SearchPageDto;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SearchPaginationTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final SearchService service =
+            TestCatalogue.service(TestCatalogue.columns(2_000, 9), ScoringMode.SEQUENTIAL, Integer.MAX_VALUE, 0);
+    private final SearchController controller = new SearchController(service, null, mapper);
+
+    @Test
+    void pagesWalkTheFullRankingWithoutGapsOrRepeats() {
+        for (String query : TestCatalogue.QUERIES) {
+            List<ResidentSummaryDto> streamed = new ArrayList<>();
+            service.stream(query).forEachRemaining(streamed::add);
+            for (int pageSize : new int[]{1, 7, 100}) {
+                assertThat(walk(query, pageSize)).as("%s, pages of %d", query, pageSize).isEqualTo(streamed);
+            }
+            assertThat(service.search(query, 100)).isEqualTo(streamed.subList(0, Math.min(100, streamed.size())));
+        }
+    }
+
+    @Test
+    void ndjsonStreamIsByteIdenticalToThePagesSerializedLineByLine() throws IOException {
+        ObjectWriter lineWriter = mapper.writerFor(ResidentSummaryDto.class);
+        for (String query : TestCatalogue.QUERIES) {
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            for (ResidentSummaryDto item : walk(query, 13)) {
+                expected.write(lineWriter.writeValueAsBytes(item));
+                expected.write('\n');
+            }
+            assertThat(ndjson(query, null)).as(query).isEqualTo(expected.toByteArray());
+
+            ByteArrayOutputStream firstPage = new ByteArrayOutputStream();
+            for (ResidentSummaryDto item : service.search(query, 5)) {
+                firstPage.write(lineWriter.writeValueAsBytes(item));
+                firstPage.write('\n');
+            }
+            assertThat(ndjson(query, 5)).as("%s, limit 5", query).isEqualTo(firstPage.toByteArray());
+        }
+    }
+
+    @Test
+    void cursorRoundTripsItsExactPosition() {
+        for (double score : new double[]{0.0, -0.0, 1.0 / 3, 142.85714285714286, Double.MIN_VALUE, 1e300}) {
+            for (int id : new int[]{0, 1, 826, Integer.MAX_VALUE}) {
+                SearchCursor cursor = new SearchCursor(score, id);
+                SearchCursor decoded = SearchCursor.decode(cursor.encode());
+                assertThat(Double.doubleToRawLongBits(decoded.score())).isEqualTo(Double.doubleToRawLongBits(score));
+                assertThat(decoded.id()).isEqualTo(id);
+                assertThat(cursor.encode()).matches("[A-Za-z0-9_-]+");
+            }
+        }
+    }
+
+    @Test
+    void cursorOrdersByScoreThenId() {
+        SearchCursor cursor = new SearchCursor(50, 10);
+        assertThat(cursor.precedes(49.9, 1)).isTrue();
+        assertThat(cursor.precedes(50, 11)).isTrue();
+        assertThat(cursor.precedes(50, 10)).isFalse();
+        assertThat(cursor.precedes(50, 9)).isFalse();
+        assertThat(cursor.precedes(50.1, 99)).isFalse();
+    }
+
+    @Test
+    void malformedCursorsAreRejectedAsBadInput() {
+        for (String token : new String[]{"!!", "bm9wZQ", "eHl6OjE", "MTpub3RhbmlkZW50"}) {
+            assertThatThrownBy(() -> service.searchPage("rick", token, 10))
+                    .as(token)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private List<ResidentSummaryDto> walk(String query, int pageSize) {
+        List<ResidentSummaryDto> walked = new ArrayList<>();
+        String cursor = null;
+        do {
+            SearchPageDto page = service.searchPage(query, cursor, pageSize);
+            assertThat(page.items()).hasSizeLessThanOrEqualTo(pageSize);
+            walked.addAll(page.items());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return walked;
+    }
+
+    private byte[] ndjson(String query, Integer limit) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        controller.stream(query, limit).getBody().writeTo(out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,62 @@
+package com.sid.rickmorty.search;
+
+import com.sid.rickmorty.model.dto.ResidentSummaryDto;
+import com.sid.rickmorty.store.CharacterColumns;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchRankingTest {
+
+    private final CharacterColumns columns = TestCatalogue.columns(6_000, 3);
+
+    @Test
+    void topKIsThePrefixOfTheFullRanking() {
+        SearchService service = TestCatalogue.service(columns, ScoringMode.SEQUENTIAL, Integer.MAX_VALUE, 0);
+        for (String query : TestCatalogue.QUERIES) {
+            List<Integer> full = ids(service.stream(query));
+            for (int k : new int[]{1, 7, 20, 100}) {
+                assertThat(ids(service.search(query, k)))
+                        .as("%s, k=%d", query, k)
+                        .isEqualTo(full.subList(0, Math.min(k, full.size())));
+            }
+        }
+    }
+
+    @Test
+    void parallelScoringRanksLikeSequential() {
+        SearchService sequential = TestCatalogue.service(columns, ScoringMode.SEQUENTIAL, Integer.MAX_VALUE, 0);
+        SearchService parallel = TestCatalogue.service(columns, ScoringMode.PARALLEL, 1, 0);
+        for (String query : TestCatalogue.QUERIES) {
+            for (int k : new int[]{1, 20, 100}) {
+                assertThat(parallel.search(query, k)).as("%s, k=%d", query, k).isEqualTo(sequential.search(query, k));
+            }
+        }
+    }
+
+    @Test
+    void parallelScoringPagesLikeSequential() {
+        SearchService sequential = TestCatalogue.service(columns, ScoringMode.SEQUENTIAL, Integer.MAX_VALUE, 0);
+        SearchService parallel = TestCatalogue.service(columns, ScoringMode.PARALLEL, 1, 0);
+        String cursor = null;
+        do {
+            var expected = sequential.searchPage("human", cursor, 50);
+            assertThat(parallel.searchPage("human", cursor, 50)).isEqualTo(expected);
+            cursor = expected.nextCursor();
+        } while (cursor != null);
+    }
+
+    private static List<Integer> ids(List<ResidentSummaryDto> results) {
+        return results.stream().map(ResidentSummaryDto::id).toList();
+    }
+
+    private static List<Integer> ids(Iterator<ResidentSummaryDto> results) {
+        List<Integer> ids = new ArrayList<>();
+        results.forEachRemaining(result -> ids.add(result.id()));
+        return ids;
+    }
+}
@@ -0,0 +1,98 @@
+package com.sid.rickmorty.search;
+
+import com.sid.rickmorty.model.dto.ResidentSummaryDto;
+import com.sid.rickmorty.service.CatalogVersion;
+import com.sid.rickmorty.store.CharacterColumns;
+import com.sid.rickmorty.store.CharacterStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchResultCacheTest {
+
+    private static final List<ResidentSummaryDto> RICK =
+            List.of(new ResidentSummaryDto(1, "Rick Sanchez", "Alive", "Human", null));
+    private static final List<ResidentSummaryDto> MORTY =
+            List.of(new ResidentSummaryDto(2, "Morty Smith", "Alive", "Human", null));
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void servesTheSameVersionFromCache() {
+        SearchResultCache cache = new SearchResultCache(8, registry);
+        assertThat(cache.get("rick", 1, () -> load(RICK))).isEqualTo(RICK);
+        assertThat(cache.get("rick", 1, () -> load(MORTY))).isSameAs(RICK);
+        assertThat(loads).hasValue(1);
+        assertThat(registry.get("search.cache.hits").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("search.cache.misses").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void aNewVersionIsAMissAndReplacesTheEntry() {
+        SearchResultCache cache = new SearchResultCache(8, registry);
+        cache.get("rick", 1, () -> load(RICK));
+        assertThat(cache.get("rick", 2, () -> load(MORTY))).isEqualTo(MORTY);
+        assertThat(cache.get("rick", 2, () -> load(RICK))).isSameAs(MORTY);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void aLateResultForAnOlderVersionDoesNotOverwriteANewerOne() {
+        SearchResultCache cache = new SearchResultCache(8, registry);
+        cache.get("rick", 2, () -> load(MORTY));
+        assertThat(cache.get("rick", 1, () -> load(RICK))).isEqualTo(RICK);
+        assertThat(cache.get("rick", 2, () -> load(RICK))).isSameAs(MORTY);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        SearchResultCache cache = new SearchResultCache(2, registry);
+        cache.get("a", 1, () -> load(RICK));
+        cache.get("b", 1, () -> load(RICK));
+        cache.get("a", 1, () -> load(RICK));
+        cache.get("c", 1, () -> load(RICK));
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(registry.get("search.cache.evictions").functionCounter().count()).isEqualTo(1);
+        loads.set(0);
+        cache.get("a", 1, () -> load(RICK));
+        cache.get("b", 1, () -> load(RICK));
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void zeroEntriesDisablesCaching() {
+        SearchResultCache cache = new SearchResultCache(0, registry);
+        cache.get("rick", 1, () -> load(RICK));
+        cache.get("rick", 1, () -> load(RICK));
+        assertThat(loads).hasValue(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void searchNeverServesResultsFromBeforeARefresh() {
+        CatalogVersion catalogVersion = new CatalogVersion();
+        CharacterStore store = new CharacterStore(null, null, registry);
+        long version = catalogVersion.current();
+        store.publish(CharacterColumns.builder(1).add(1, "Rick Sanchez", "Alive", "Human", "Male", null, null, null)
+                .build(), version);
+        SearchService service = new SearchService(store, catalogVersion, new SearchResultCache(8, registry), registry,
+                20, 100, ScoringMode.SEQUENTIAL, 4096, 0.3, 256, 50);
+        assertThat(service.search("rick")).extracting(ResidentSummaryDto::name).containsExactly("Rick Sanchez");
+        assertThat(service.search("rick")).extracting(ResidentSummaryDto::name).containsExactly("Rick Sanchez");
+
+        store.publish(CharacterColumns.builder(1).add(1, "Rick Prime", "Alive", "Human", "Male", null, null, null)
+                .build(), version + 1);
+        service.rebuildSnapshot(version + 1);
+        assertThat(service.search("rick")).extracting(ResidentSummaryDto::name).containsExactly("Rick Prime");
+    }
+
+    private List<ResidentSummaryDto> load(List<ResidentSummaryDto> results) {
+        loads.incrementAndGet();
+        return results;
+    }
+}
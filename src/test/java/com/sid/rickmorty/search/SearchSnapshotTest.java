@@ -0,0 +1,137 @@
+package com.sid.rickmorty.search;
+
+import com.sid.rickmorty.model.dto.ResidentSummaryDto;
+import com.sid.rickmorty.store.CharacterColumns;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchSnapshotTest {
+
+    private final CharacterColumns columns = TestCatalogue.columns(3_000, 5);
+
+    @Test
+    void documentsHoldTheLowerCasedColumns() {
+        SearchSnapshot snapshot = SearchSnapshot.build(columns, 1);
+        assertThat(snapshot.size()).isEqualTo(columns.size());
+        for (int ordinal = 0; ordinal < columns.size(); ordinal++) {
+            CharacterDocument document = snapshot.document(ordinal);
+            assertThat(document.id()).isEqualTo(columns.id(ordinal));
+            assertThat(document.nameLower()).isEqualTo(lower(columns.name(ordinal)));
+            assertThat(document.speciesLower()).isEqualTo(lower(columns.species().value(ordinal)));
+            assertThat(document.statusLower()).isEqualTo(lower(columns.status().value(ordinal)));
+            assertThat(document.originLower()).isEqualTo(lower(columns.origin().value(ordinal)));
+            assertThat(document.corpusTokens()).isEqualTo(tokenize(corpus(ordinal)));
+            assertThat(document.summary()).isEqualTo(columns.summary(ordinal));
+        }
+    }
+
+    @Test
+    void rankingMatchesScoringRecomputedFromTheRawFields() {
+        SearchService service = TestCatalogue.service(columns, ScoringMode.SEQUENTIAL, Integer.MAX_VALUE, 0);
+        SearchIndex index = service.rebuildSnapshot(Long.MAX_VALUE).index();
+        for (String query : TestCatalogue.QUERIES) {
+            String normalized = query.toLowerCase(Locale.US).trim();
+            int[] candidates = SearchIndex.union(index.candidates(normalized.split("\\s+")),
+                    index.fuzzyCandidates(normalized, 0.3, 256));
+            List<Integer> expected = Arrays.stream(candidates).boxed()
+                    .filter(ordinal -> referenceScore(ordinal, normalized) > 0)
+                    .sorted(Comparator.comparingDouble((Integer ordinal) -> referenceScore(ordinal, normalized))
+                            .reversed()
+                            .thenComparing(columns::id))
+                    .limit(20)
+                    .map(columns::id)
+                    .toList();
+            assertThat(service.search(query)).extracting(ResidentSummaryDto::id).as(query).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void anOlderSnapshotNeverReplacesANewerOne() {
+        SearchService service = TestCatalogue.service(columns, ScoringMode.SEQUENTIAL, Integer.MAX_VALUE, 0);
+        SearchSnapshot newer = service.rebuildSnapshot(Long.MAX_VALUE - 1);
+        assertThat(service.rebuildSnapshot(Long.MAX_VALUE - 2)).isSameAs(newer);
+        assertThat(service.rebuildSnapshot(Long.MAX_VALUE).version()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    // The per-query scoring the snapshot replaced: every field lower-cased and the corpus tokenized on each call
+    private double referenceScore(int ordinal, String normalizedQuery) {
+        String nameLower = lower(columns.name(ordinal));
+        String speciesLower = lower(columns.species().value(ordinal));
+        String statusLower = lower(columns.status().value(ordinal));
+        String[] queryTerms = normalizedQuery.split("\\s+");
+
+        double lexical = 0;
+        if (nameLower.equals(normalizedQuery)) {
+            lexical += 100;
+        } else if (nameLower.startsWith(normalizedQuery)) {
+            lexical += 50;
+        } else if (nameLower.contains(normalizedQuery)) {
+            lexical += 30;
+        }
+        for (String term : queryTerms) {
+            if (term.isBlank()) {
+                continue;
+            }
+            if (nameLower.contains(term)) {
+                lexical += 20;
+            }
+            if (speciesLower.contains(term)) {
+                lexical += 15;
+            }
+            if (statusLower.contains(term)) {
+                lexical += 10;
+            }
+        }
+
+        Set<String> queryTokens = tokenize(normalizedQuery);
+        Set<String> corpusTokens = tokenize(corpus(ordinal));
+        double tokenOverlap = 0;
+        if (!queryTokens.isEmpty() && !corpusTokens.isEmpty()) {
+            long intersection = queryTokens.stream().filter(corpusTokens::contains).count();
+            tokenOverlap = (double) intersection / (queryTokens.size() + corpusTokens.size() - intersection);
+        }
+        return lexical + (tokenOverlap * 40) + (fullMatrixSimilarity(nameLower, normalizedQuery) * 30);
+    }
+
+    private String corpus(int ordinal) {
+        return (lower(columns.name(ordinal)) + " " + lower(columns.species().value(ordinal)) + " "
+                + lower(columns.status().value(ordinal)) + " " + lower(columns.origin().value(ordinal))).trim();
+    }
+
+    private static double fullMatrixSimilarity(String a, String b) {
+        if (a.isBlank() || b.isBlank()) {
+            return 0;
+        }
+        int[][] dp = new int[a.length() + 1][b.length() + 1];
+        IntStream.rangeClosed(0, a.length()).forEach(i -> dp[i][0] = i);
+        IntStream.rangeClosed(0, b.length()).forEach(j -> dp[0][j] = j);
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                dp[i][j] = Math.min(Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1), dp[i - 1][j - 1] + cost);
+            }
+        }
+        int maxLen = Math.max(a.length(), b.length());
+        return Math.max(0, 1.0 - ((double) dp[a.length()][b.length()] / maxLen)) * 100;
+    }
+
+    private static Set<String> tokenize(String text) {
+        return Arrays.stream(text.split("[^a-z0-9]+"))
+                .map(String::trim)
+                .filter(token -> token.length() > 1)
+                .collect(Collectors.toSet());
+    }
+
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.US);
+    }
+}
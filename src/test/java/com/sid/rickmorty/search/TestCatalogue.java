@@ -0,0 +1,56 @@
+package com.sid.rickmorty.search;
+
+import com.sid.rickmorty.service.CatalogVersion;
+import com.sid.rickmorty.store.CharacterColumns;
+import com.sid.rickmorty.store.CharacterStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Small synthetic catalogues for search tests. Names repeat on purpose so rankings are full of exact score ties.
+ */
+final class TestCatalogue {
+
+    static final List<String> QUERIES = List.of(
+            "rick sanchez", "rik sanchz", "Morty", "smith", "SUMMER  smith ", "human", "alive", "dead alien",
+            "anchez", "bird", "zzz", "a", "squanch", "evil morty", "earth");
+
+    private static final String[] FIRST = {"Rick", "Morty", "Summer", "Beth", "Jerry", "Bird", "Squanchy", "Evil",
+            "Mr.", "Unity", "Krombopulos", "Abradolf"};
+    private static final String[] LAST = {"Sanchez", "Smith", "Person", "Poopybutthole", "Lincler", "Michael",
+            "Morty", ""};
+    private static final String[] STATUS = {"Alive", "Dead", "unknown", null};
+    private static final String[] SPECIES = {"Human", "Alien", "Humanoid", "Robot", "Cronenberg", null};
+    private static final String[] PLACES = {"Earth (C-137)", "Citadel of Ricks", "Bird World", "unknown", null};
+
+    private TestCatalogue() {
+    }
+
+    static CharacterColumns columns(int size, long seed) {
+        Random random = new Random(seed);
+        CharacterColumns.Builder builder = CharacterColumns.builder(size);
+        for (int id = 1; id <= size; id++) {
+            String name = (pick(FIRST, random) + " " + pick(LAST, random)).trim();
+            builder.add(id, name, pick(STATUS, random), pick(SPECIES, random), "Male", pick(PLACES, random),
+                    pick(PLACES, random), "https://example.test/avatar/" + id + ".jpeg");
+        }
+        return builder.build();
+    }
+
+    static SearchService service(CharacterColumns columns, ScoringMode scoringMode, int parallelThreshold,
+                                 int cacheEntries) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CatalogVersion catalogVersion = new CatalogVersion();
+        // only ever handed columns, so the store needs neither a JdbcTemplate nor a transaction manager
+        CharacterStore store = new CharacterStore(null, null, registry);
+        store.publish(columns, catalogVersion.current());
+        return new SearchService(store, catalogVersion, new SearchResultCache(cacheEntries, registry), registry,
+                20, 100, scoringMode, parallelThreshold, 0.3, 256, 50);
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,95 @@
+package com.sid.rickmorty.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogDeltaTest extends IngestionTestSupport {
+
+    @Test
+    void firstRefreshInsertsEverything() {
+        upstream.catalogue(30, 50);
+
+        RefreshReport report = locationService.refreshFromSource(RefreshProgress.NONE);
+
+        assertThat(report.locations()).isEqualTo(new RefreshReport.RowCounts(30, 0, 0, 0));
+        assertThat(report.characters().inserted()).isEqualTo(count("characters"));
+        assertThat(report.residents().inserted()).isEqualTo(count("location_residents"));
+        assertThat(count("content_hashes")).isEqualTo(30 + count("characters"));
+    }
+
+    @Test
+    void unchangedUpstreamWritesNothingAndKeepsTheVersion() {
+        upstream.catalogue(30, 50);
+        locationService.refreshFromSource();
+        List<?> before = snapshot();
+        long version = catalogVersion.current();
+
+        RefreshReport report = locationService.refreshFromSource(RefreshProgress.NONE);
+
+        assertThat(report.changed()).isFalse();
+        assertThat(report.locations()).isEqualTo(new RefreshReport.RowCounts(0, 0, 0, 30));
+        assertThat(report.residents().unchanged()).isEqualTo(count("location_residents"));
+        assertThat(catalogVersion.current()).isEqualTo(version);
+        assertThat(exists(CatalogStaging.NEXT.locations())).isFalse();
+        assertThat(snapshot()).isEqualTo(before);
+    }
+
+    @Test
+    void onlyChangedRowsAndLinksAreWritten() {
+        upstream.character(1, "Rick Sanchez", "Alive");
+        upstream.character(2, "Morty Smith", "Alive");
+        upstream.character(3, "Summer Smith", "Alive");
+        upstream.location(1, "Earth (C-137)", List.of(1, 2));
+        upstream.location(2, "Citadel of Ricks", List.of(1));
+        locationService.refreshFromSource();
+
+        upstream.character(2, "Morty Smith", "Dead");
+        upstream.location(1, "Earth (C-137)", List.of(1, 3));
+        RefreshReport report = locationService.refreshFromSource(RefreshProgress.NONE);
+
+        assertThat(report.locations()).isEqualTo(new RefreshReport.RowCounts(0, 0, 0, 2));
+        assertThat(report.characters()).isEqualTo(new RefreshReport.RowCounts(1, 0, 0, 1));
+        assertThat(report.residents()).isEqualTo(new RefreshReport.RowCounts(1, 0, 1, 2));
+        assertThat(jdbcTemplate.queryForList("SELECT character_id FROM location_residents WHERE location_id = 1 "
+                + "ORDER BY character_id", Integer.class)).containsExactly(1, 3);
+        // Morty is no longer anyone's resident, so he is not fetched and keeps his stored row
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM characters WHERE id = 2", String.class))
+                .isEqualTo("Alive");
+
+        upstream.location(2, "Citadel of Ricks", List.of(1, 2));
+        report = locationService.refreshFromSource(RefreshProgress.NONE);
+
+        assertThat(report.characters()).isEqualTo(new RefreshReport.RowCounts(0, 1, 0, 2));
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM characters WHERE id = 2", String.class))
+                .isEqualTo("Dead");
+    }
+
+    @Test
+    void renamedLocationIsAnUpdate() {
+        upstream.catalogue(5, 10);
+        locationService.refreshFromSource();
+
+        upstream.location(3, "Location 3 (destroyed)", upstream.locations.get(3).residentIds());
+        RefreshReport report = locationService.refreshFromSource(RefreshProgress.NONE);
+
+        assertThat(report.locations()).isEqualTo(new RefreshReport.RowCounts(0, 1, 0, 4));
+        assertThat(report.characters().changed()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT name FROM locations WHERE id = 3", String.class))
+                .isEqualTo("Location 3 (destroyed)");
+    }
+
+    @Test
+    void rowsStoredWithoutAHashAreFingerprintedInsteadOfRewritten() {
+        upstream.catalogue(5, 10);
+        locationService.refreshFromSource();
+        jdbcTemplate.update("DELETE FROM content_hashes");
+
+        RefreshReport report = locationService.refreshFromSource(RefreshProgress.NONE);
+
+        assertThat(report.changed()).isFalse();
+        assertThat(count("content_hashes")).isEqualTo(5 + count("characters"));
+    }
+}
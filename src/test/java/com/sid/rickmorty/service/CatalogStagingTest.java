@@ -0,0 +1,136 @@
+package com.sid.rickmorty.service;
+
+import com.sid.rickmorty.model.dto.CharacterNoteDto;
+import com.sid.rickmorty.model.dto.NoteRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CatalogStagingTest extends IngestionTestSupport {
+
+    @Autowired
+    CharacterService characterService;
+
+    @Test
+    void publishSwapsTheStagedTablesInAndKeepsThePreviousGeneration() {
+        upstream.catalogue(30, 50);
+        locationService.refreshFromSource();
+        int residents = count("location_residents");
+
+        upstream.location(31, "Location 31", List.of(1, 2, 3));
+        upstream.character(1, "Character 1 (replacement)", "Dead");
+        locationService.refreshFromSource();
+
+        assertThat(exists(CatalogStaging.NEXT.locations())).isFalse();
+        assertThat(count("locations")).isEqualTo(31);
+        assertThat(count(CatalogStaging.PREVIOUS.locations())).isEqualTo(30);
+        assertThat(count(CatalogStaging.PREVIOUS.residents())).isEqualTo(residents);
+    }
+
+    @Test
+    void rollbackRestoresThePreviousGenerationAndCanBeUndone() {
+        upstream.catalogue(30, 50);
+        locationService.refreshFromSource();
+        List<Map<String, Object>> first = snapshot();
+
+        upstream.location(31, "Location 31", List.of(1, 2, 3));
+        upstream.character(1, "Character 1 (replacement)", "Dead");
+        locationService.refreshFromSource();
+        List<Map<String, Object>> second = snapshot();
+        long version = catalogVersion.current();
+
+        assertThat(locationService.rollback()).isTrue();
+        assertThat(snapshot()).isEqualTo(first);
+        assertThat(catalogVersion.current()).isGreaterThan(version);
+
+        assertThat(locationService.rollback()).isTrue();
+        assertThat(snapshot()).isEqualTo(second);
+    }
+
+    @Test
+    void rollbackWithoutAPreviousGenerationDoesNothing() {
+        long version = catalogVersion.current();
+        assertThat(locationService.rollback()).isFalse();
+        assertThat(catalogVersion.current()).isEqualTo(version);
+    }
+
+    @Test
+    void aFailedRefreshLeavesTheLiveCatalogueAndNothingStaged() {
+        upstream.catalogue(30, 50);
+        locationService.refreshFromSource();
+        List<Map<String, Object>> before = snapshot();
+        long version = catalogVersion.current();
+        // the first publish keeps the empty generation it replaced as the previous one
+        int previousLocations = count(CatalogStaging.PREVIOUS.locations());
+
+        upstream.catalogue(60, 50);
+        upstream.character(7, "Character 7 (replacement)", "Dead");
+        upstream.failLocationPage = 3;
+        assertThatThrownBy(() -> locationService.refreshFromSource()).hasMessageContaining("locations page 3");
+
+        assertThat(snapshot()).isEqualTo(before);
+        assertThat(catalogVersion.current()).isEqualTo(version);
+        assertThat(exists(CatalogStaging.NEXT.locations())).isFalse();
+        assertThat(count(CatalogStaging.PREVIOUS.locations())).isEqualTo(previousLocations);
+    }
+
+    @Test
+    void aCancelledRefreshRollsBackWhatItStaged() {
+        upstream.catalogue(30, 50);
+        locationService.refreshFromSource();
+        List<Map<String, Object>> before = snapshot();
+
+        upstream.catalogue(60, 50);
+        RefreshProgress cancelAfterFirstPage = new RefreshProgress() {
+            private int pages;
+
+            @Override
+            public void locationPageDone(int pages, int locations, int distinctResidents) {
+                this.pages = pages;
+            }
+
+            @Override
+            public boolean cancelled() {
+                return pages >= 2;
+            }
+        };
+        assertThatThrownBy(() -> locationService.refreshFromSource(cancelAfterFirstPage))
+                .isInstanceOf(CancellationException.class);
+
+        assertThat(snapshot()).isEqualTo(before);
+        assertThat(exists(CatalogStaging.NEXT.locations())).isFalse();
+    }
+
+    @Test
+    void noteWritesDoNotWaitForARefreshThatIsStillFetching() throws Exception {
+        upstream.catalogue(30, 50);
+        locationService.refreshFromSource();
+        upstream.catalogue(60, 50);
+        StubUpstream.Hold hold = upstream.hold(2);
+        CompletableFuture<RefreshReport> running =
+                CompletableFuture.supplyAsync(() -> locationService.refreshFromSource(RefreshProgress.NONE));
+        try {
+            hold.awaitReached();
+
+            // the single writer connection would otherwise be held by the refresh until the hold is released
+            CharacterNoteDto note = CompletableFuture
+                    .supplyAsync(() -> characterService.addNote(1, new NoteRequest("seen during a refresh", "test")))
+                    .get(5, TimeUnit.SECONDS);
+
+            assertThat(note.id()).isPositive();
+            assertThat(count("character_notes")).isPositive();
+        } finally {
+            hold.release();
+        }
+        assertThat(running.get(10, TimeUnit.SECONDS).locations().inserted()).isEqualTo(30);
+        assertThat(count("locations")).isEqualTo(60);
+    }
+}
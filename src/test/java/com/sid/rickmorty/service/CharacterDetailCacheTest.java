@@ -0,0 +1,204 @@
+package com.sid.rickmorty.service;
+
+import com.sid.rickmorty.model.dto.CharacterDetailDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CharacterDetailCacheTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService readers = Executors.newFixedThreadPool(8);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    void stopReaders() {
+        readers.shutdownNow();
+    }
+
+    @Test
+    void concurrentMissesForOneIdShareASingleLoad() throws Exception {
+        CharacterDetailCache cache = new CharacterDetailCache(100, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Optional<CharacterDetailDto>> slowLoader = () -> {
+            loads.incrementAndGet();
+            await(release);
+            return Optional.of(character(1, "Rick Sanchez"));
+        };
+
+        List<Future<Optional<CharacterDetailDto>>> reads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            reads.add(readers.submit(() -> cache.get(1, slowLoader)));
+        }
+        // every reader but the loading one is waiting on the load in flight before it is allowed to finish
+        awaitCount("characters.cache.coalesced", 7);
+        release.countDown();
+
+        for (Future<Optional<CharacterDetailDto>> read : reads) {
+            assertThat(read.get(5, TimeUnit.SECONDS)).contains(character(1, "Rick Sanchez"));
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(cache.get(1, this::unexpectedLoad)).contains(character(1, "Rick Sanchez"));
+        assertThat(count("characters.cache.misses")).isEqualTo(8);
+        assertThat(count("characters.cache.hits")).isEqualTo(1);
+    }
+
+    @Test
+    void anInvalidationDuringALoadKeepsItsResultOutOfTheCache() throws Exception {
+        CharacterDetailCache cache = new CharacterDetailCache(100, meterRegistry);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Optional<CharacterDetailDto>> stale = readers.submit(() -> cache.get(1, () -> {
+            loading.countDown();
+            await(release);
+            return Optional.of(character(1, "before the write"));
+        }));
+        await(loading);
+
+        cache.invalidate(1);
+        release.countDown();
+
+        // the racing read still answers, but the next one loads what the write left behind
+        assertThat(stale.get(5, TimeUnit.SECONDS)).contains(character(1, "before the write"));
+        assertThat(cache.get(1, () -> Optional.of(character(1, "after the write"))))
+                .contains(character(1, "after the write"));
+        assertThat(cache.get(1, this::unexpectedLoad)).contains(character(1, "after the write"));
+    }
+
+    @Test
+    void aFailedLoadReachesEveryWaiterAndIsRetried() throws Exception {
+        CharacterDetailCache cache = new CharacterDetailCache(100, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Optional<CharacterDetailDto>> failing = () -> {
+            loads.incrementAndGet();
+            await(release);
+            throw new IllegalStateException("database unavailable");
+        };
+        List<Future<Optional<CharacterDetailDto>>> reads = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            reads.add(readers.submit(() -> cache.get(1, failing)));
+        }
+        awaitCount("characters.cache.coalesced", 2);
+        release.countDown();
+
+        for (Future<Optional<CharacterDetailDto>> read : reads) {
+            assertThatThrownBy(() -> read.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasRootCauseInstanceOf(IllegalStateException.class);
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(cache.get(1, () -> Optional.of(character(1, "Rick Sanchez")))).isPresent();
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void unknownIdsAreNotCached() {
+        CharacterDetailCache cache = new CharacterDetailCache(100, meterRegistry);
+
+        assertThat(cache.get(404, this::missing)).isEmpty();
+        assertThat(cache.get(404, this::missing)).isEmpty();
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void theLeastRecentlyReadEntryIsEvictedPastTheBound() {
+        CharacterDetailCache cache = new CharacterDetailCache(2, meterRegistry);
+        cache.get(1, () -> Optional.of(character(1, "Rick Sanchez")));
+        cache.get(2, () -> Optional.of(character(2, "Morty Smith")));
+        cache.get(1, this::unexpectedLoad);
+
+        cache.get(3, () -> Optional.of(character(3, "Summer Smith")));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(1, this::unexpectedLoad)).isPresent();
+        assertThat(cache.get(2, () -> Optional.of(character(2, "Morty Smith")))).isPresent();
+        assertThat(count("characters.cache.evictions")).isEqualTo(2);
+    }
+
+    @Test
+    void aRefreshDropsOnlyTheCharactersItWrote() {
+        CharacterDetailCache cache = new CharacterDetailCache(100, meterRegistry);
+        cache.get(1, () -> Optional.of(character(1, "Rick Sanchez")));
+        cache.get(2, () -> Optional.of(character(2, "Morty Smith")));
+
+        cache.onCatalogRefreshed(new CatalogRefreshedEvent(2, Instant.now(), Set.of(2, 99)));
+
+        assertThat(cache.get(1, this::unexpectedLoad)).isPresent();
+        assertThat(cache.get(2, () -> Optional.of(character(2, "Morty Smith (updated)"))))
+                .contains(character(2, "Morty Smith (updated)"));
+    }
+
+    @Test
+    void aZeroBoundDisablesCaching() {
+        CharacterDetailCache cache = new CharacterDetailCache(0, meterRegistry);
+
+        cache.get(1, () -> {
+            loads.incrementAndGet();
+            return Optional.of(character(1, "Rick Sanchez"));
+        });
+        cache.get(1, () -> {
+            loads.incrementAndGet();
+            return Optional.of(character(1, "Rick Sanchez"));
+        });
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    private Optional<CharacterDetailDto> missing() {
+        loads.incrementAndGet();
+        return Optional.empty();
+    }
+
+    private Optional<CharacterDetailDto> unexpectedLoad() {
+        throw new AssertionError("expected a cache hit");
+    }
+
+    private static CharacterDetailDto character(int id, String name) {
+        return new CharacterDetailDto(id, name, "Alive", "Human", "Male", "Earth (C-137)", "Citadel of Ricks",
+                "https://example.test/avatar/" + id + ".jpeg", List.of());
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).functionCounter().count();
+    }
+
+    private void awaitCount(String name, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count(name) < expected) {
+            assertThat(System.nanoTime()).as("%s never reached %d", name, expected).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("latch was never released");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.sid.rickmorty.service;
+
+import com.sid.rickmorty.model.dto.CharacterDetailDto;
+import com.sid.rickmorty.model.dto.CharacterNoteDto;
+import com.sid.rickmorty.model.dto.NoteRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CharacterServiceTest extends IngestionTestSupport {
+
+    @Autowired
+    CharacterService characterService;
+
+    @Autowired
+    CharacterDetailCache detailCache;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void catalogue() {
+        jdbcTemplate.update("DELETE FROM character_notes");
+        upstream.character(1, "Rick Sanchez", "Alive");
+        upstream.character(2, "Morty Smith", "Alive");
+        upstream.location(1, "Earth (C-137)", List.of(1, 2));
+        locationService.refreshFromSource();
+        detailCache.invalidate(1);
+        detailCache.invalidate(2);
+    }
+
+    @Test
+    void aNoteIsVisibleOnTheNextRead() {
+        assertThat(characterService.getCharacter(1)).map(CharacterDetailDto::notes).contains(List.of());
+
+        CharacterNoteDto note = characterService.addNote(1, new NoteRequest("wubba lubba dub dub", "test"));
+
+        assertThat(characterService.getCharacter(1)).map(CharacterDetailDto::notes).contains(List.of(note));
+    }
+
+    @Test
+    void aReadDuringTheNoteTransactionCannotPinThePreNoteDetail() {
+        CharacterNoteDto note = new TransactionTemplate(transactionManager).execute(status -> {
+            CharacterNoteDto added = characterService.addNote(1, new NoteRequest("pending", "test"));
+            // a miss on another connection still loads the committed, pre-note state and caches it
+            CharacterDetailDto racing = CompletableFuture.supplyAsync(() -> characterService.getCharacter(1))
+                    .join().orElseThrow();
+            assertThat(racing.notes()).isEmpty();
+            return added;
+        });
+
+        assertThat(characterService.getCharacter(1)).map(CharacterDetailDto::notes).contains(List.of(note));
+    }
+
+    @Test
+    void aRolledBackNoteLeavesTheCachedDetailInPlace() {
+        CharacterDetailDto before = characterService.getCharacter(1).orElseThrow();
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            characterService.addNote(1, new NoteRequest("never committed", "test"));
+            status.setRollbackOnly();
+        });
+
+        assertThat(detailCache.size()).isEqualTo(1);
+        assertThat(characterService.getCharacter(1)).contains(before);
+    }
+
+    @Test
+    void aRefreshReplacesTheDetailOfTheCharactersItChanged() throws Exception {
+        characterService.getCharacter(1);
+        characterService.getCharacter(2);
+
+        upstream.character(2, "Morty Smith", "Dead");
+        locationService.refreshFromSource();
+
+        assertThat(CompletableFuture.supplyAsync(() -> characterService.getCharacter(2)).get(5, TimeUnit.SECONDS))
+                .map(CharacterDetailDto::status).contains("Dead");
+        assertThat(characterService.getCharacter(1)).map(CharacterDetailDto::status).contains("Alive");
+        assertThat(detailCache.size()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,113 @@
+package com.sid.rickmorty.service;
+
+import com.sid.rickmorty.repository.CharacterNoteRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConnectionRoutingTest extends IngestionTestSupport {
+
+    private static final int CHARACTER = 9_001;
+
+    @Autowired
+    @Qualifier("writerDataSource")
+    HikariDataSource writer;
+
+    @Autowired
+    @Qualifier("readerDataSource")
+    HikariDataSource reader;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    CharacterNoteRepository notes;
+
+    @Test
+    void theDatabaseRunsInWalMode() {
+        assertThat(jdbcTemplate.queryForObject("PRAGMA journal_mode", String.class)).isEqualToIgnoringCase("wal");
+    }
+
+    @Test
+    void readOnlyTransactionsBorrowFromTheReaderPoolOnly() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        readOnly.executeWithoutResult(status -> {
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM locations", Integer.class);
+            assertThat(reader.getHikariPoolMXBean().getActiveConnections()).isEqualTo(1);
+            assertThat(writer.getHikariPoolMXBean().getActiveConnections()).isZero();
+            assertThatThrownBy(() -> jdbcTemplate.update(
+                    "INSERT INTO character_notes (character_id, note) VALUES (?, 'read-only')", CHARACTER))
+                    .isInstanceOf(DataAccessException.class)
+                    .hasMessageContaining("readonly");
+        });
+        assertThat(reader.getHikariPoolMXBean().getActiveConnections()).isZero();
+    }
+
+    @Test
+    void everythingElseUsesTheWriter() {
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        readWrite.executeWithoutResult(status -> {
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM locations", Integer.class);
+            assertThat(writer.getHikariPoolMXBean().getActiveConnections()).isEqualTo(1);
+            assertThat(reader.getHikariPoolMXBean().getActiveConnections()).isZero();
+        });
+        // outside a transaction the pool is only picked once a statement runs
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SELECT 1");
+            }
+            assertThat(writer.getHikariPoolMXBean().getActiveConnections()).isEqualTo(1);
+            assertThat(reader.getHikariPoolMXBean().getActiveConnections()).isZero();
+            return null;
+        });
+    }
+
+    @Test
+    void readersNeitherWaitForNorSeeAnOpenWriteTransaction() throws Exception {
+        upstream.catalogue(5, 10);
+        locationService.refreshFromSource();
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holdingTheWriter = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    jdbcTemplate.update("INSERT INTO character_notes (character_id, note) VALUES (?, 'pending')",
+                            CHARACTER);
+                    written.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        try {
+            assertThat(written.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // the only writer connection is taken, so any of these reaching for it would block until released
+            assertThat(CompletableFuture.supplyAsync(() -> notes.findByCharacterId(CHARACTER))
+                    .get(5, TimeUnit.SECONDS)).isEmpty();
+            assertThat(CompletableFuture.supplyAsync(() -> locationService.listLocations(null, null, null, null))
+                    .get(5, TimeUnit.SECONDS)).hasSize(5);
+        } finally {
+            release.countDown();
+        }
+        holdingTheWriter.get(10, TimeUnit.SECONDS);
+        assertThat(notes.findByCharacterId(CHARACTER)).hasSize(1);
+        jdbcTemplate.update("DELETE FROM character_notes WHERE character_id = ?", CHARACTER);
+    }
+}
@@ -0,0 +1,120 @@
+package com.sid.rickmorty.service;
+
+import com.sid.rickmorty.store.CharacterStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.event.ApplicationEventMulticaster;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IngestionPipelineTest extends IngestionTestSupport {
+
+    // IngestionTestSupport sets rickmorty.ingestion.concurrency to this
+    private static final int CONCURRENCY = 4;
+
+    @Autowired
+    ApplicationEventMulticaster multicaster;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    CharacterStore characterStore;
+
+    private final List<Published> published = new CopyOnWriteArrayList<>();
+    private ApplicationListener<PayloadApplicationEvent<CatalogRefreshedEvent>> listener;
+
+    @BeforeEach
+    void listen() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        // records what another connection and the character store can see at the moment the event is published
+        listener = ApplicationListener.forPayload(event -> published.add(new Published(event,
+                catalogVersion.current(),
+                CompletableFuture.supplyAsync(() -> readOnly.execute(status -> jdbcTemplate.queryForList(
+                        "SELECT id, status FROM characters ORDER BY id"))).join(),
+                characterStore.columns().size())));
+        multicaster.addApplicationListener(listener);
+    }
+
+    @AfterEach
+    void stopListening() {
+        multicaster.removeApplicationListener(listener);
+    }
+
+    @Test
+    void upstreamPagesAreFetchedConcurrentlyUpToTheConfiguredLimit() {
+        upstream.catalogue(200, 150);
+        upstream.latency = Duration.ofMillis(20);
+
+        RefreshReport report = locationService.refreshFromSource(RefreshProgress.NONE);
+
+        assertThat(upstream.peakInFlight.get()).isGreaterThan(1).isLessThanOrEqualTo(CONCURRENCY);
+        assertThat(upstream.inFlight.get()).isZero();
+        assertThat(report.locations().inserted()).isEqualTo(200);
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM locations ORDER BY id", Integer.class))
+                .isEqualTo(IntStream.rangeClosed(1, 200).boxed().toList());
+        assertThat(jdbcTemplate.queryForList("SELECT name FROM locations WHERE id = 137", String.class))
+                .containsExactly("Location 137");
+        assertThat(count("characters")).isEqualTo(report.characters().inserted()).isEqualTo(150);
+    }
+
+    @Test
+    void theRefreshEventIsPublishedOnceTheRowsAreCommittedAndLoaded() {
+        upstream.character(1, "Rick Sanchez", "Alive");
+        upstream.character(2, "Morty Smith", "Alive");
+        upstream.location(1, "Earth (C-137)", List.of(1, 2));
+        locationService.refreshFromSource();
+        published.clear();
+
+        upstream.character(2, "Morty Smith", "Dead");
+        upstream.character(3, "Summer Smith", "Alive");
+        upstream.location(1, "Earth (C-137)", List.of(1, 2, 3));
+        locationService.refreshFromSource();
+
+        assertThat(published).hasSize(1);
+        Published refreshed = published.getFirst();
+        assertThat(refreshed.event().characterIds()).containsExactlyInAnyOrder(2, 3);
+        assertThat(refreshed.event().version()).isEqualTo(refreshed.versionSeen()).isEqualTo(catalogVersion.current());
+        assertThat(refreshed.rowsSeen()).containsExactly(
+                Map.of("id", 1, "status", "Alive"),
+                Map.of("id", 2, "status", "Dead"),
+                Map.of("id", 3, "status", "Alive"));
+        assertThat(refreshed.storedCharacters()).isEqualTo(3);
+    }
+
+    @Test
+    void aRefreshThatChangesNothingOrFailsPublishesNoEvent() {
+        upstream.catalogue(45, 60);
+        locationService.refreshFromSource();
+        long version = catalogVersion.current();
+        published.clear();
+
+        locationService.refreshFromSource();
+        assertThat(published).isEmpty();
+
+        upstream.location(30, "Renamed", upstream.locations.get(30).residentIds());
+        upstream.failLocationPage = 2;
+        assertThatThrownBy(() -> locationService.refreshFromSource()).hasMessageContaining("locations page 2");
+        assertThat(published).isEmpty();
+        assertThat(catalogVersion.current()).isEqualTo(version);
+    }
+
+    private record Published(CatalogRefreshedEvent event, long versionSeen, List<Map<String, Object>> rowsSeen,
+                             int storedCharacters) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.sid.rickmorty.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Boots the application against a throwaway SQLite file and a {@link StubUpstream}, and starts every test from an
+ * empty catalogue with no staged or previous generation.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "rickmorty.ingestion.enabled=false",
+        "rickmorty.ingestion.concurrency=4",
+        "rickmorty.ingestion.character-batch-size=10",
+        "rickmorty.ingestion.write-batch-size=25",
+        "rickmorty.upstream.cache.dir=",
+        "logging.level.com.sid.rickmorty=WARN"
+})
+@Import(IngestionTestSupport.StubUpstreamConfiguration.class)
+abstract class IngestionTestSupport {
+
+    private static final Path DATABASE = temporaryDatabase();
+
+    @Autowired
+    LocationService locationService;
+
+    @Autowired
+    CatalogVersion catalogVersion;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    StubUpstream upstream;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + DATABASE);
+    }
+
+    @BeforeEach
+    void emptyCatalogue() {
+        upstream.reset();
+        for (CatalogStaging.Tables generation : new CatalogStaging.Tables[]{CatalogStaging.NEXT, CatalogStaging.PREVIOUS}) {
+            generation.all().forEach(table -> jdbcTemplate.execute("DROP TABLE IF EXISTS " + table));
+        }
+        CatalogStaging.LIVE.all().forEach(table -> jdbcTemplate.update("DELETE FROM " + table));
+    }
+
+    int count(String table) {
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+        return rows == null ? 0 : rows;
+    }
+
+    boolean exists(String table) {
+        return !jdbcTemplate.queryForList("SELECT name FROM sqlite_master WHERE type = 'table' AND name = ?",
+                String.class, table).isEmpty();
+    }
+
+    // the live catalogue as comparable rows, so tests can assert that a generation is exactly what it was
+    List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rows.addAll(jdbcTemplate.queryForList("SELECT * FROM locations ORDER BY id"));
+        rows.addAll(jdbcTemplate.queryForList("SELECT * FROM characters ORDER BY id"));
+        rows.addAll(jdbcTemplate.queryForList(
+                "SELECT location_id, character_id FROM location_residents ORDER BY location_id, character_id"));
+        rows.addAll(jdbcTemplate.queryForList("SELECT * FROM content_hashes ORDER BY kind, id"));
+        return rows;
+    }
+
+    private static Path temporaryDatabase() {
+        try {
+            Path directory = Files.createTempDirectory("rickmorty-test");
+            directory.toFile().deleteOnExit();
+            return directory.resolve("catalogue.db");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @TestConfiguration
+    static class StubUpstreamConfiguration {
+
+        @Bean
+        @Primary
+        StubUpstream stubUpstream() {
+            return new StubUpstream();
+        }
+    }
+}
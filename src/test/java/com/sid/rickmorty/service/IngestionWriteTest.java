@@ -0,0 +1,69 @@
+package com.sid.rickmorty.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IngestionWriteTest extends IngestionTestSupport {
+
+    // IngestionTestSupport sets rickmorty.ingestion.write-batch-size to this
+    private static final int WRITE_BATCH_SIZE = 25;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void changedCharactersAreWrittenInBatchesAndEachPageOnce() {
+        upstream.catalogue(45, 120);
+        long locationWrites = writes("locations");
+        long characterWrites = writes("characters");
+        double inserted = rows("characters", "inserted");
+
+        RefreshReport report = locationService.refreshFromSource(RefreshProgress.NONE);
+
+        int characters = report.characters().inserted();
+        assertThat(characters).isGreaterThan(2 * WRITE_BATCH_SIZE).isEqualTo(count("characters"));
+        assertThat(writes("characters") - characterWrites).isEqualTo(Math.ceilDiv(characters, WRITE_BATCH_SIZE));
+        // 45 locations are three upstream pages of 20
+        assertThat(writes("locations") - locationWrites).isEqualTo(3);
+        assertThat(count("locations")).isEqualTo(45);
+        assertThat(count("location_residents")).isEqualTo(report.residents().inserted());
+        assertThat(rows("characters", "inserted") - inserted).isEqualTo(characters);
+    }
+
+    @Test
+    void onlyPagesAndBatchesWithChangesAreWritten() {
+        upstream.catalogue(45, 120);
+        locationService.refreshFromSource();
+        long locationWrites = writes("locations");
+        long characterWrites = writes("characters");
+
+        locationService.refreshFromSource();
+        assertThat(writes("locations")).isEqualTo(locationWrites);
+        assertThat(writes("characters")).isEqualTo(characterWrites);
+
+        // location 25 is on the second page; the changed characters fit one batch
+        upstream.location(25, "Renamed", upstream.locations.get(25).residentIds());
+        List.of(8, 15, 22).forEach(id -> upstream.character(id, "Character " + id, "Dead"));
+        RefreshReport report = locationService.refreshFromSource(RefreshProgress.NONE);
+
+        assertThat(report.locations().updated()).isEqualTo(1);
+        assertThat(report.characters().updated()).isEqualTo(3);
+        assertThat(writes("locations") - locationWrites).isEqualTo(1);
+        assertThat(writes("characters") - characterWrites).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForList("SELECT status FROM characters WHERE id IN (8, 15, 22)", String.class))
+                .containsOnly("Dead");
+    }
+
+    private long writes(String rows) {
+        return meterRegistry.get("ingestion.page.write").tag("rows", rows).timer().count();
+    }
+
+    private double rows(String table, String outcome) {
+        return meterRegistry.counter("ingestion.rows", "table", table, "outcome", outcome).count();
+    }
+}
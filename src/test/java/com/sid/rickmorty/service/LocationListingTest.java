@@ -0,0 +1,114 @@
+package com.sid.rickmorty.service;
+
+import com.sid.rickmorty.client.ApiCharacter;
+import com.sid.rickmorty.model.dto.LocationDto;
+import com.sid.rickmorty.model.dto.ResidentSummaryDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocationListingTest extends IngestionTestSupport {
+
+    private static final String[] DIMENSIONS = {"Dimension C-137", "Replacement Dimension", "unknown"};
+    private static final String[] TYPES = {"Planet", "Space station", "Cluster", "Microverse"};
+
+    @BeforeEach
+    void catalogue() {
+        for (int id = 1; id <= 30; id++) {
+            upstream.character(id, "Character " + id, id % 3 == 0 ? "Dead" : "Alive");
+        }
+        // a resident with nothing but its name still lists, with its missing fields as null
+        upstream.characters.put(31, new ApiCharacter(31, "Mr. Poopybutthole", null, null, null, "", "", null));
+        for (int id = 1; id <= 45; id++) {
+            List<Integer> residents = new ArrayList<>();
+            // every fifth location is empty; the rest list residents out of id order
+            for (int r = 0; r < (id % 5 == 0 ? 0 : 1 + id % 4); r++) {
+                residents.add(1 + (id * 11 + r * 17) % 31);
+            }
+            upstream.location(id, "Location " + id, TYPES[id % TYPES.length], DIMENSIONS[id % DIMENSIONS.length],
+                    residents);
+        }
+        locationService.refreshFromSource();
+    }
+
+    @Test
+    void theUnfilteredListingMatchesPerLocationLookups() {
+        List<LocationDto> listing = locationService.listLocations(null, null, null, null);
+
+        assertThat(listing).hasSize(45).isEqualTo(lookUpEachLocation(location -> true));
+        assertThat(listing).filteredOn(location -> location.id() % 5 == 0)
+                .allSatisfy(location -> assertThat(location.residents()).isEmpty());
+        assertThat(listing).flatMap(LocationDto::residents)
+                .contains(new ResidentSummaryDto(31, "Mr. Poopybutthole", null, null, null));
+    }
+
+    @Test
+    void pagesTogetherAreTheWholeListingInOrder() {
+        List<LocationDto> expected = lookUpEachLocation(location -> true);
+        for (int size : new int[]{1, 7, 20, 45, 100}) {
+            List<LocationDto> paged = new ArrayList<>();
+            for (int page = 0; ; page++) {
+                List<LocationDto> slice = locationService.listLocations(page, size, null, null);
+                if (slice.isEmpty()) {
+                    break;
+                }
+                assertThat(slice).hasSizeLessThanOrEqualTo(size);
+                paged.addAll(slice);
+            }
+            assertThat(paged).as("pages of %d", size).isEqualTo(expected);
+        }
+        assertThat(locationService.listLocations(2, 20, null, null)).isEqualTo(expected.subList(40, 45));
+        assertThat(locationService.listLocations(9, 5, null, null)).isEmpty();
+    }
+
+    @Test
+    void filtersAreCaseInsensitiveExactMatchesAppliedBeforePaging() {
+        Predicate<LocationDto> replacementPlanets = location ->
+                location.dimension().equals("Replacement Dimension") && location.type().equals("Planet");
+        List<LocationDto> expected = lookUpEachLocation(replacementPlanets);
+        assertThat(expected).hasSizeGreaterThan(2);
+
+        assertThat(locationService.listLocations(null, null, " replacement DIMENSION ", "planet")).isEqualTo(expected);
+        assertThat(locationService.listLocations(1, 2, "Replacement Dimension", "Planet"))
+                .isEqualTo(expected.subList(2, Math.min(4, expected.size())));
+        assertThat(locationService.listLocations(null, null, "unknown", null))
+                .isEqualTo(lookUpEachLocation(location -> location.dimension().equals("unknown")));
+        assertThat(locationService.listLocations(null, null, "Replacement", null)).isEmpty();
+        assertThat(locationService.listLocations(null, null, " ", "")).hasSize(45);
+    }
+
+    @Test
+    void invalidPagingIsRejectedAndAPageBeyondAnUnsizedListingIsEmpty() {
+        assertThatThrownBy(() -> locationService.listLocations(-1, 10, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> locationService.listLocations(0, 0, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(locationService.listLocations(1, null, null, null)).isEmpty();
+    }
+
+    // the listing as the former implementation built it: each location's resident ids, then each resident by id
+    private List<LocationDto> lookUpEachLocation(Predicate<LocationDto> filter) {
+        List<LocationDto> locations = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, name, type, dimension FROM locations ORDER BY id",
+                (rs, row) -> new LocationDto(rs.getInt("id"), rs.getString("name"), rs.getString("type"),
+                        rs.getString("dimension"), new ArrayList<>())).forEach(location -> {
+            jdbcTemplate.queryForList("SELECT character_id FROM location_residents WHERE location_id = ? "
+                    + "ORDER BY character_id", Integer.class, location.id()).forEach(characterId ->
+                    location.residents().addAll(jdbcTemplate.query(
+                            "SELECT id, name, status, species, image FROM characters WHERE id = ?",
+                            (rs, row) -> new ResidentSummaryDto(rs.getInt("id"), rs.getString("name"),
+                                    rs.getString("status"), rs.getString("species"), rs.getString("image")),
+                            characterId)));
+            if (filter.test(location)) {
+                locations.add(location);
+            }
+        });
+        return locations;
+    }
+}
@@ -0,0 +1,59 @@
+package com.sid.rickmorty.service;
+
+import com.sid.rickmorty.model.dto.IngestionJobDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RefreshLockTest extends IngestionTestSupport {
+
+    @Test
+    void scheduledRefreshAndRollbackSkipWhileARefreshRuns() throws Exception {
+        upstream.catalogue(30, 50);
+        locationService.refreshFromSource();
+        upstream.location(31, "Location 31", List.of(1, 2, 3));
+        StubUpstream.Hold hold = upstream.hold(2);
+        CompletableFuture<RefreshReport> running =
+                CompletableFuture.supplyAsync(() -> locationService.refreshFromSource(RefreshProgress.NONE));
+        hold.awaitReached();
+
+        RefreshReport skipped = locationService.refreshFromSource();
+        IngestionJob scheduled = new IngestionJob(IngestionJobDto.Trigger.SCHEDULED);
+        scheduled.run(locationService);
+        boolean rolledBack = locationService.rollback();
+        hold.release();
+
+        assertThat(skipped.skipped()).isTrue();
+        assertThat(skipped.changed()).isFalse();
+        assertThat(scheduled.snapshot().status()).isEqualTo(IngestionJobDto.Status.SKIPPED);
+        assertThat(scheduled.snapshot().report().skipped()).isTrue();
+        assertThat(rolledBack).isFalse();
+        RefreshReport completed = running.get(10, TimeUnit.SECONDS);
+        assertThat(completed.skipped()).isFalse();
+        assertThat(completed.locations().inserted()).isEqualTo(1);
+    }
+
+    @Test
+    void manualJobWaitsForTheCatalogueInsteadOfSkipping() throws Exception {
+        upstream.catalogue(30, 50);
+        StubUpstream.Hold hold = upstream.hold(2);
+        CompletableFuture<RefreshReport> running =
+                CompletableFuture.supplyAsync(() -> locationService.refreshFromSource(RefreshProgress.NONE));
+        hold.awaitReached();
+
+        IngestionJob manual = new IngestionJob(IngestionJobDto.Trigger.MANUAL);
+        CompletableFuture<Void> queued = CompletableFuture.runAsync(() -> manual.run(locationService));
+        Thread.sleep(200);
+        assertThat(manual.snapshot().status()).isEqualTo(IngestionJobDto.Status.RUNNING);
+        hold.release();
+
+        running.get(10, TimeUnit.SECONDS);
+        queued.get(10, TimeUnit.SECONDS);
+        assertThat(manual.snapshot().status()).isEqualTo(IngestionJobDto.Status.SUCCEEDED);
+        assertThat(manual.snapshot().report().skipped()).isFalse();
+    }
+}
@@ -0,0 +1,71 @@
+package com.sid.rickmorty.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResidentFetchTest extends IngestionTestSupport {
+
+    @Test
+    void eachResidentIsFetchedOnceInBatchesWhenTheListingHasNoPageCount() {
+        upstream.catalogue(45, 120);
+        upstream.reportCharacterPages = false;
+
+        locationService.refreshFromSource();
+
+        Set<Integer> referenced = referencedResidents();
+        List<Integer> batched = new ArrayList<>();
+        upstream.batchRequests.forEach(batch -> {
+            assertThat(batch).hasSizeLessThanOrEqualTo(10);
+            batched.addAll(batch);
+        });
+        // the probe listing page counts towards the residents, so batches only ask for the rest, each id once
+        assertThat(new HashSet<>(batched)).hasSameSizeAs(batched);
+        assertThat(upstream.characterPageRequests).containsExactly(1);
+        assertThat(upstream.served.entrySet()).allSatisfy(entry -> assertThat(entry.getValue()).hasValue(1));
+        assertThat(storedCharacters()).isEqualTo(referenced);
+    }
+
+    @Test
+    void usesTheListingWhenItTakesFewerRequestsThanBatches() {
+        // 60 characters are 3 listing pages, against 6 batches of 10 for the 55+ referenced ones
+        upstream.catalogue(40, 60);
+
+        locationService.refreshFromSource();
+
+        assertThat(upstream.characterPageRequests).containsExactlyInAnyOrder(1, 2, 3);
+        assertThat(upstream.batchRequests).isEmpty();
+        assertThat(upstream.served.entrySet()).allSatisfy(entry -> assertThat(entry.getValue()).hasValue(1));
+        assertThat(storedCharacters()).isEqualTo(referencedResidents());
+    }
+
+    @Test
+    void aSmallResidentSetIsOneBatchWithoutProbingTheListing() {
+        upstream.character(1, "Rick Sanchez", "Alive");
+        upstream.character(2, "Morty Smith", "Alive");
+        upstream.location(1, "Earth (C-137)", List.of(1, 2));
+        upstream.location(2, "Citadel of Ricks", List.of(2, 1));
+
+        locationService.refreshFromSource();
+
+        assertThat(upstream.batchRequests).containsExactly(List.of(1, 2));
+        assertThat(upstream.characterPageRequests).isEmpty();
+        assertThat(count("location_residents")).isEqualTo(4);
+    }
+
+    private Set<Integer> referencedResidents() {
+        Set<Integer> referenced = new TreeSet<>();
+        upstream.locations.values().forEach(location -> referenced.addAll(location.residentIds()));
+        return referenced;
+    }
+
+    private Set<Integer> storedCharacters() {
+        return new TreeSet<>(jdbcTemplate.queryForList("SELECT id FROM characters", Integer.class));
+    }
+}
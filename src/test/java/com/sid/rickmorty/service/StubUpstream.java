@@ -0,0 +1,216 @@
+package com.sid.rickmorty.service;
+
+import com.sid.rickmorty.client.ApiCharacter;
+import com.sid.rickmorty.client.ApiLocation;
+import com.sid.rickmorty.client.ApiPage;
+import com.sid.rickmorty.client.RickAndMortyClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory stand-in for the upstream API that serves whatever catalogue a test puts into it and records every
+ * request, so tests can check what a refresh fetched.
+ */
+class StubUpstream extends RickAndMortyClient {
+
+    static final int PAGE_SIZE = 20;
+
+    final Map<Integer, ApiLocation> locations = new TreeMap<>();
+    final Map<Integer, ApiCharacter> characters = new TreeMap<>();
+    final List<List<Integer>> batchRequests = new CopyOnWriteArrayList<>();
+    final List<Integer> characterPageRequests = new CopyOnWriteArrayList<>();
+    final Map<Integer, AtomicInteger> served = new ConcurrentHashMap<>();
+    volatile boolean reportCharacterPages = true;
+    volatile int failLocationPage = -1;
+    // how long every request takes, so concurrent fetches overlap
+    volatile Duration latency = Duration.ZERO;
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger peakInFlight = new AtomicInteger();
+    private volatile Hold hold;
+
+    StubUpstream() {
+        super(WebClient.create(), new SimpleMeterRegistry());
+    }
+
+    void reset() {
+        locations.clear();
+        characters.clear();
+        batchRequests.clear();
+        characterPageRequests.clear();
+        served.clear();
+        reportCharacterPages = true;
+        failLocationPage = -1;
+        latency = Duration.ZERO;
+        peakInFlight.set(0);
+        Hold previous = hold;
+        hold = null;
+        if (previous != null) {
+            previous.release();
+        }
+    }
+
+    /**
+     * Makes the request for location page {@code page} wait until the returned hold is released, so a test can act
+     * while a refresh is part-way through.
+     */
+    Hold hold(int page) {
+        Hold created = new Hold(page, new CountDownLatch(1), new CountDownLatch(1));
+        hold = created;
+        return created;
+    }
+
+    /**
+     * {@code count} locations whose residents are drawn from {@code 1..characterCount}, overlapping between locations.
+     */
+    void catalogue(int count, int characterCount) {
+        for (int id = 1; id <= characterCount; id++) {
+            character(id, "Character " + id, "Alive");
+        }
+        for (int id = 1; id <= count; id++) {
+            List<Integer> residents = new ArrayList<>();
+            for (int r = 0; r < 6; r++) {
+                residents.add(1 + (id * 7 + r * 13) % characterCount);
+            }
+            location(id, "Location " + id, residents);
+        }
+    }
+
+    void location(int id, String name, List<Integer> residentIds) {
+        location(id, name, "Planet", "Dimension C-137", residentIds);
+    }
+
+    void location(int id, String name, String type, String dimension, List<Integer> residentIds) {
+        locations.put(id, new ApiLocation(id, name, type, dimension, List.copyOf(residentIds)));
+    }
+
+    void character(int id, String name, String status) {
+        characters.put(id, new ApiCharacter(id, name, status, "Human", "Male", "Earth", "Earth",
+                "https://example.test/avatar/" + id + ".jpeg"));
+    }
+
+    @Override
+    public Mono<ApiPage<ApiLocation>> fetchLocationsPage(int page) {
+        if (page == failLocationPage) {
+            return Mono.error(new ApiServerException("Server error: 500 on locations page " + page, null));
+        }
+        return request(Mono.fromSupplier(() -> {
+            Hold current = hold;
+            if (current != null && current.page() == page) {
+                current.block();
+            }
+            return page(new ArrayList<>(locations.values()), page, true);
+        }));
+    }
+
+    @Override
+    public Mono<ApiPage<ApiCharacter>> fetchCharactersPage(int page) {
+        return request(Mono.fromSupplier(() -> {
+            characterPageRequests.add(page);
+            ApiPage<ApiCharacter> listing = page(new ArrayList<>(characters.values()), page, reportCharacterPages);
+            listing.results().forEach(character -> count(character.id()));
+            return listing;
+        }));
+    }
+
+    @Override
+    public Mono<List<ApiCharacter>> fetchCharactersBatch(List<Integer> ids) {
+        return request(Mono.fromSupplier(() -> {
+            batchRequests.add(List.copyOf(ids));
+            List<ApiCharacter> found = new ArrayList<>();
+            for (Integer id : ids) {
+                ApiCharacter character = characters.get(id);
+                if (character != null) {
+                    found.add(character);
+                    count(id);
+                }
+            }
+            return found;
+        }));
+    }
+
+    @Override
+    public Flux<ApiLocation> streamLocationsPage(int page) {
+        return fetchLocationsPage(page).flatMapIterable(ApiPage::results);
+    }
+
+    @Override
+    public Flux<ApiCharacter> streamCharactersPage(int page) {
+        return fetchCharactersPage(page).flatMapIterable(ApiPage::results);
+    }
+
+    @Override
+    public Flux<ApiCharacter> streamCharactersBatch(List<Integer> ids) {
+        return fetchCharactersBatch(ids).flatMapIterable(characters -> characters);
+    }
+
+    record Hold(int page, CountDownLatch reached, CountDownLatch released) {
+
+        void awaitReached() throws InterruptedException {
+            if (!reached.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("location page " + page + " was never requested");
+            }
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        private void block() {
+            reached.countDown();
+            try {
+                if (!released.await(10, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("location page " + page + " was never released");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    // counts the request as in flight from subscription until it answers, after the configured latency. It stops
+    // counting before the answer is passed on, since by the time doFinally runs the caller may have sent the next one
+    private <T> Mono<T> request(Mono<T> response) {
+        Duration delay = latency;
+        Mono<T> answered = delay.isZero() ? response : response.delaySubscription(delay);
+        return Mono.defer(() -> {
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            AtomicBoolean done = new AtomicBoolean();
+            Runnable finished = () -> {
+                if (done.compareAndSet(false, true)) {
+                    inFlight.decrementAndGet();
+                }
+            };
+            return answered.doOnSuccess(value -> finished.run())
+                    .doOnError(error -> finished.run())
+                    .doOnCancel(finished);
+        });
+    }
+
+    private void count(int id) {
+        served.computeIfAbsent(id, ignored -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private static <T> ApiPage<T> page(List<T> all, int page, boolean withCount) {
+        int pages = Math.max(1, Math.ceilDiv(all.size(), PAGE_SIZE));
+        List<T> slice = all.subList(Math.min(all.size(), (page - 1) * PAGE_SIZE), Math.min(all.size(), page * PAGE_SIZE));
+        ApiPage.Info info = withCount
+                ? new ApiPage.Info(all.size(), pages, page < pages ? "page=" + (page + 1) : null)
+                : new ApiPage.Info(null, null, null);
+        return new ApiPage<>(info, List.copyOf(slice));
+    }
+}
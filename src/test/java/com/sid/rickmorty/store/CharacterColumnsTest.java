@@ -0,0 +1,138 @@
+package com.sid.rickmorty.store;
+
+import com.sid.rickmorty.model.dto.ResidentSummaryDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CharacterColumnsTest {
+
+    private static final String[] STATUS = {"Alive", "Dead", "unknown", null};
+    private static final String[] SPECIES = {"Human", "Alien", "Mythological Creature", null};
+    private static final String[] PLACES = {"Earth (C-137)", "Citadel of Ricks", "", null};
+    private static final String[] IMAGES = {
+            "https://rickandmortyapi.com/api/character/avatar/%d.jpeg",
+            "https://cdn.example.test/avatars/%d.png",
+            "avatar-%d.jpeg",
+            "https://rickandmortyapi.com/api/character/avatar/",
+            "",
+            null};
+
+    @Test
+    void everyRowReadsBackAsItWasAddedIncludingNulls() {
+        List<Row> rows = rows(500, new Random(11));
+        // built from less than the expected size, so every array has to grow
+        CharacterColumns columns = build(rows, 0);
+
+        assertThat(columns.size()).isEqualTo(rows.size());
+        for (int ordinal = 0; ordinal < rows.size(); ordinal++) {
+            Row row = rows.get(ordinal);
+            assertThat(columns.id(ordinal)).isEqualTo(row.id());
+            assertThat(columns.ordinalOf(row.id())).isEqualTo(ordinal);
+            assertThat(columns.name(ordinal)).isEqualTo(row.name());
+            assertThat(columns.status().value(ordinal)).isEqualTo(row.status());
+            assertThat(columns.species().value(ordinal)).isEqualTo(row.species());
+            assertThat(columns.gender().value(ordinal)).isEqualTo(row.gender());
+            assertThat(columns.origin().value(ordinal)).isEqualTo(row.origin());
+            assertThat(columns.location().value(ordinal)).isEqualTo(row.location());
+            assertThat(columns.image(ordinal)).isEqualTo(row.image());
+            assertThat(columns.summary(ordinal)).isEqualTo(
+                    new ResidentSummaryDto(row.id(), row.name(), row.status(), row.species(), row.image()));
+        }
+    }
+
+    @Test
+    void idsNotInTheStoreHaveNoOrdinal() {
+        CharacterColumns columns = build(List.of(
+                new Row(2, "Morty Smith", "Alive", "Human", "Male", null, null, null),
+                new Row(5, "Summer Smith", "Alive", "Human", "Female", null, null, null),
+                new Row(9, "Beth Smith", "Alive", "Human", "Female", null, null, null)), 3);
+
+        assertThat(columns.ordinalOf(5)).isEqualTo(1);
+        assertThat(List.of(-1, 0, 1, 3, 6, 10, Integer.MAX_VALUE)).allSatisfy(id ->
+                assertThat(columns.ordinalOf(id)).isEqualTo(-1));
+        assertThat(CharacterColumns.empty().size()).isZero();
+        assertThat(CharacterColumns.empty().ordinalOf(1)).isEqualTo(-1);
+    }
+
+    @Test
+    void imagesSharingADirectoryStoreItOnce() {
+        List<Row> rows = new ArrayList<>();
+        for (int id = 1; id <= 1_000; id++) {
+            String image = (id % 2 == 0 ? IMAGES[0] : IMAGES[1]).formatted(id);
+            rows.add(new Row(id, "Character " + id, "Alive", "Human", "Male", "Earth", "Earth", image));
+        }
+        CharacterColumns columns = build(rows, rows.size());
+
+        assertThat(columns.image(0)).isEqualTo("https://cdn.example.test/avatars/1.png");
+        assertThat(columns.image(999)).isEqualTo("https://rickandmortyapi.com/api/character/avatar/1000.jpeg");
+        // two directories, however many rows use them: a row costs its file name, not the whole URL
+        long urlChars = rows.stream().mapToLong(row -> row.image().length()).sum();
+        assertThat(columns.estimatedBytes()).isLessThan(2 * urlChars);
+    }
+
+    @Test
+    void lowCardinalityColumnsAreDictionariesInFirstSeenOrderWithNullAsMinusOne() {
+        CharacterColumns columns = build(List.of(
+                new Row(1, "Rick Sanchez", "Alive", "Human", "Male", null, null, null),
+                new Row(2, "Birdperson", "Dead", "Bird-Person", "Male", null, null, null),
+                new Row(3, "Mr. Poopybutthole", null, null, null, null, null, null),
+                new Row(4, "Morty Smith", "Alive", "Human", "Male", null, null, null)), 4);
+
+        CharacterColumns.DictionaryColumn status = columns.status();
+        assertThat(status.cardinality()).isEqualTo(2);
+        assertThat(List.of(status.code(0), status.code(1), status.code(2), status.code(3)))
+                .containsExactly(0, 1, -1, 0);
+        assertThat(status.valueOf(1)).isEqualTo("Dead");
+        assertThat(status.valueOf(-1)).isNull();
+        assertThat(columns.origin().cardinality()).isZero();
+    }
+
+    @Test
+    void rowsMustBeAddedInAscendingIdOrder() {
+        CharacterColumns.Builder builder = CharacterColumns.builder(2)
+                .add(3, "Rick Sanchez", null, null, null, null, null, null);
+
+        assertThatThrownBy(() -> builder.add(3, "Rick Sanchez", null, null, null, null, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.add(1, "Morty Smith", null, null, null, null, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static CharacterColumns build(List<Row> rows, int expectedRows) {
+        CharacterColumns.Builder builder = CharacterColumns.builder(expectedRows);
+        rows.forEach(row -> builder.add(row.id(), row.name(), row.status(), row.species(), row.gender(),
+                row.origin(), row.location(), row.image()));
+        return builder.build();
+    }
+
+    private static List<Row> rows(int count, Random random) {
+        List<Row> rows = new ArrayList<>();
+        Set<Integer> ids = new LinkedHashSet<>();
+        while (ids.size() < count) {
+            ids.add(1 + random.nextInt(count * 10));
+        }
+        ids.stream().sorted().forEach(id -> {
+            String image = pick(IMAGES, random);
+            rows.add(new Row(id, random.nextInt(10) == 0 ? "" : "Ñame " + id + " ü", pick(STATUS, random),
+                    pick(SPECIES, random), random.nextBoolean() ? "Male" : null, pick(PLACES, random),
+                    pick(PLACES, random), image == null ? null : image.formatted(id)));
+        });
+        return rows;
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private record Row(int id, String name, String status, String species, String gender, String origin,
+                       String location, String image) {
+    }
+}